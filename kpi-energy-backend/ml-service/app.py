@@ -2,6 +2,7 @@ from flask import Flask, request, jsonify
 from flask_cors import CORS
 import numpy as np
 import joblib
+import hashlib
 import os
 
 app = Flask(__name__)
@@ -29,9 +30,22 @@ def load_model(data_type):
             f"❌ Modèle {data_type} introuvable. Lance d'abord 'python3 train_models.py' pour entraîner et sauvegarder les modèles."
         )
 
+def compute_model_version():
+    """
+    Version des modèles chargés (empreinte des fichiers) : le backend invalide
+    son cache de résultats quand elle change.
+    """
+    digest = hashlib.sha1()
+    for name in sorted(os.listdir(MODELS_DIR)):
+        if name.endswith('.joblib'):
+            stat = os.stat(os.path.join(MODELS_DIR, name))
+            digest.update(f"{name}:{stat.st_size}:{int(stat.st_mtime)}".encode())
+    return digest.hexdigest()[:12]
+
 # Chargement des modèles
 electricity_model, electricity_scaler = load_model("electricity")
 water_model, water_scaler = load_model("water")
+MODEL_VERSION = compute_model_version()
 
 @app.route('/detect-anomaly', methods=['POST'])
 def detect_anomaly():
@@ -42,9 +56,9 @@ def detect_anomaly():
         data_type = data.get('data_type')
 
         if data_type == 'electricity':
-            return detect_electricity_anomaly(data)
+            return jsonify(detect_electricity_anomalies([data])[0])
         elif data_type == 'water':
-            return detect_water_anomaly(data)
+            return jsonify(detect_water_anomalies([data])[0])
         else:
             return jsonify({'error': 'Type de données non supporté'}), 400
 
@@ -55,8 +69,45 @@ def detect_anomaly():
         return jsonify({'error': str(e)}), 500
 
 
-def detect_electricity_anomaly(data):
-    features = [
+@app.route('/detect-anomaly-batch', methods=['POST'])
+def detect_anomaly_batch():
+    """
+    Évalue un lot de points en un seul appel.
+    Entrée : {"items": [{...}, ...]} - Sortie : {"results": [{...}, ...]} dans le même ordre.
+    Les points sont regroupés par type pour ne faire qu'un transform/predict par modèle.
+    """
+    try:
+        items = request.get_json().get('items', [])
+        print(f"📥 Lot reçu: {len(items)} points")
+
+        results = [None] * len(items)
+        electricity_idx = [i for i, item in enumerate(items) if item.get('data_type') == 'electricity']
+        water_idx = [i for i, item in enumerate(items) if item.get('data_type') == 'water']
+
+        if electricity_idx:
+            scored = detect_electricity_anomalies([items[i] for i in electricity_idx])
+            for i, result in zip(electricity_idx, scored):
+                results[i] = result
+        if water_idx:
+            scored = detect_water_anomalies([items[i] for i in water_idx])
+            for i, result in zip(water_idx, scored):
+                results[i] = result
+
+        for i, result in enumerate(results):
+            if result is None:
+                results[i] = {'error': 'Type de données non supporté'}
+
+        return jsonify({'results': results, 'model_version': MODEL_VERSION})
+
+    except Exception as e:
+        import traceback
+        print("❌ Erreur détectée dans /detect-anomaly-batch :")
+        traceback.print_exc()
+        return jsonify({'error': str(e)}), 500
+
+
+def electricity_features(data):
+    return [
         data.get('network60kv_active_energy', 0),
         data.get('network60kv_reactive_energy', 0),
         data.get('network60kv_peak', 0),
@@ -67,62 +118,54 @@ def detect_electricity_anomaly(data):
         data.get('network22kv_power_factor', 0)
     ]
 
-    print(f"📋 Features électriques brutes: {features}")
-
-    features_array = np.array(features).reshape(1, -1)
-    features_scaled = electricity_scaler.transform(features_array)
 
-    print(f"📊 Features électriques scaled: {features_scaled}")
-
-    prediction = electricity_model.predict(features_scaled)
-    anomaly_score = electricity_model.decision_function(features_scaled)[0]
-
-    print(f"🔮 Prédiction électrique: {prediction[0]}")
-    print(f"📈 Score d'anomalie électrique: {anomaly_score}")
-
-    anomaly_type = classify_electricity_anomaly(data, anomaly_score)
-    is_anomaly = (prediction[0] == -1) or (anomaly_type not in ["GENERAL_ANOMALY"])
-
-
-    return jsonify({
-        'is_anomaly': bool(is_anomaly),
-        'anomaly_score': float(anomaly_score),
-        'anomaly_type': anomaly_type,
-        'features': features
-    })
-
-
-def detect_water_anomaly(data):
-    features = [
+def water_features(data):
+    return [
         data.get('f3bis', 0),
         data.get('f3', 0),
         data.get('se2', 0),
         data.get('se3bis', 0)
     ]
 
-    print(f"📋 Features eau brutes: {features}")
 
-    features_array = np.array(features).reshape(1, -1)
-    features_scaled = water_scaler.transform(features_array)
-
-    print(f"📊 Features eau scaled: {features_scaled}")
-
-    prediction = water_model.predict(features_scaled)
-    anomaly_score = water_model.decision_function(features_scaled)[0]
-
-    print(f"🔮 Prédiction eau: {prediction[0]}")
-    print(f"📈 Score d'anomalie eau: {anomaly_score}")
-
-    anomaly_type = classify_water_anomaly(data, anomaly_score)
-    is_anomaly = (prediction[0] == -1) or (anomaly_type not in ["GENERAL_ANOMALY"])
-
-
-    return jsonify({
-        'is_anomaly': bool(is_anomaly),
-        'anomaly_score': float(anomaly_score),
-        'anomaly_type': anomaly_type,
-        'features': features
-    })
+def detect_electricity_anomalies(items):
+    features = [electricity_features(data) for data in items]
+    features_scaled = electricity_scaler.transform(np.array(features))
+    predictions = electricity_model.predict(features_scaled)
+    anomaly_scores = electricity_model.decision_function(features_scaled)
+
+    results = []
+    for data, row, prediction, anomaly_score in zip(items, features, predictions, anomaly_scores):
+        anomaly_type = classify_electricity_anomaly(data, anomaly_score)
+        is_anomaly = (prediction == -1) or (anomaly_type not in ["GENERAL_ANOMALY"])
+        results.append({
+            'is_anomaly': bool(is_anomaly),
+            'anomaly_score': float(anomaly_score),
+            'anomaly_type': anomaly_type,
+            'features': row,
+            'model_version': MODEL_VERSION
+        })
+    return results
+
+
+def detect_water_anomalies(items):
+    features = [water_features(data) for data in items]
+    features_scaled = water_scaler.transform(np.array(features))
+    predictions = water_model.predict(features_scaled)
+    anomaly_scores = water_model.decision_function(features_scaled)
+
+    results = []
+    for data, row, prediction, anomaly_score in zip(items, features, predictions, anomaly_scores):
+        anomaly_type = classify_water_anomaly(data, anomaly_score)
+        is_anomaly = (prediction == -1) or (anomaly_type not in ["GENERAL_ANOMALY"])
+        results.append({
+            'is_anomaly': bool(is_anomaly),
+            'anomaly_score': float(anomaly_score),
+            'anomaly_type': anomaly_type,
+            'features': row,
+            'model_version': MODEL_VERSION
+        })
+    return results
 
 
 def classify_electricity_anomaly(data, anomaly_score):
@@ -232,7 +275,8 @@ def classify_water_anomaly(data, anomaly_score):
 def health_check():
     return jsonify({
         'status': 'healthy',
-        'services': ['anomaly_detection']
+        'services': ['anomaly_detection'],
+        'model_version': MODEL_VERSION
     })
 
 
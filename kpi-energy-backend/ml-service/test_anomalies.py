@@ -87,5 +87,25 @@ def test_anomalies():
 
         print("\n" + "-"*50 + "\n")
 
+    print("=== TEST LOT ===")
+    try:
+        response = requests.post(
+            f"{BASE_URL}/detect-anomaly-batch",
+            json={'items': test_cases},
+            timeout=10
+        )
+
+        if response.status_code == 200:
+            results = response.json()['results']
+            print(f"✅ {len(results)} résultats pour {len(test_cases)} points")
+            for i, result in enumerate(results, 1):
+                print(f"   {i}: {result.get('anomaly_type')} (anomalie={result.get('is_anomaly')})")
+        else:
+            print(f"❌ Erreur HTTP: {response.status_code}")
+            print(f"Message: {response.text}")
+
+    except Exception as e:
+        print(f"❌ Erreur de connexion: {e}")
+
 if __name__ == "__main__":
     test_anomalies()
\ No newline at end of file
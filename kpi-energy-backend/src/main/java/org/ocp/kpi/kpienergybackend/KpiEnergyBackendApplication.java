@@ -4,10 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableJpaRepositories(basePackages = "org.ocp.kpi.kpienergybackend.repository")
 @EntityScan(basePackages = "org.ocp.kpi.kpienergybackend.entity")
+@EnableScheduling
 public class KpiEnergyBackendApplication {
     public static void main(String[] args) {
         SpringApplication.run(KpiEnergyBackendApplication.class, args);
@@ -11,6 +11,15 @@ public class AppConfig {
     private ResetPassword resetPassword = new ResetPassword();
     private Rasa rasa = new Rasa();
     private Chatbot chatbot = new Chatbot();
+    private Ml ml = new Ml();
+    private Cluster cluster = new Cluster();
+    private Jobs jobs = new Jobs();
+    private SummaryCache summaryCache = new SummaryCache();
+    private UserCache userCache = new UserCache();
+    private CacheBus cacheBus = new CacheBus();
+    private Dashboard dashboard = new Dashboard();
+    private Export export = new Export();
+    private ExportJobs exportJobs = new ExportJobs();
 
     @Data
     public static class ResetPassword {
@@ -28,4 +37,141 @@ public class AppConfig {
         private int sessionTimeout = 3600;
         private int maxHistory = 50;
     }
+
+    @Data
+    public static class Export {
+        private int fetchSize = 1000;
+        private int bufferChars = 65536;
+        private int flushEveryRows = 5000;
+        private int xlsxRowWindow = 500;
+    }
+
+    @Data
+    public static class ExportJobs {
+        private String directory = System.getProperty("java.io.tmpdir") + "/kpi-exports";
+        private int workers = 2;
+        private int queueCapacity = 16;
+        private int retentionMinutes = 60;
+        private int maxJobs = 100;
+        private int cleanupMs = 300000;
+    }
+
+    @Data
+    public static class Dashboard {
+        private int workers = 8;
+        private int queueCapacity = 64;
+        private int timeoutMs = 3000;
+    }
+
+    @Data
+    public static class CacheBus {
+        private boolean enabled = true;
+        private String channel = "kpi_cache_invalidation";
+        private int pollMs = 1000;
+        private int reconnectDelayMs = 5000;
+    }
+
+    @Data
+    public static class UserCache {
+        private boolean enabled = true;
+        private int maxEntries = 1000;
+        private int ttlSeconds = 300; // borne l'obsolescence si une notification est perdue
+    }
+
+    @Data
+    public static class SummaryCache {
+        private boolean enabled = true;
+        private int maxYears = 64; // par type de source confondus
+    }
+
+    @Data
+    public static class Jobs {
+        private int workers = 2;
+        private int queueCapacity = 16;
+        private int tickMs = 30000;
+        private int leaseSeconds = 3600;
+        private int defaultMaxAttempts = 3;
+        private int defaultBackoffSeconds = 60;
+        private int historyDays = 30;
+    }
+
+    @Data
+    public static class Cluster {
+        private String nodeId; // par défaut pid@hôte
+        private int shardLeaseSeconds = 600;
+        private int shardPollMs = 15000;
+        private int shardWorkers = 1; // Parts scannées en parallèle sur ce nœud
+        private int shardMaxAttempts = 3;
+        private int shardRetryDelaySeconds = 60;
+    }
+
+    @Data
+    public static class Ml {
+        private String serviceUrl = "http://localhost:5000";
+        private String scorer = "http"; // http, stub, isolation-forest
+        private int batchSize = 200;
+        private int concurrency = 4;
+        private int maxConnections = 8;
+        private int connectTimeoutMs = 2000;
+        private int readTimeoutMs = 10000;
+        private int versionPollMs = 30000; // 0 : version lue uniquement dans les réponses
+        private boolean ruleFallback = true;
+        private int scanJobHistory = 50;
+        private Limiter limiter = new Limiter();
+        private Breaker breaker = new Breaker();
+        private Coalescer coalescer = new Coalescer();
+        private Forest forest = new Forest();
+        private ResultCache resultCache = new ResultCache();
+        private Realtime realtime = new Realtime();
+    }
+
+    @Data
+    public static class Realtime {
+        private boolean enabled = true;
+        private int workers = 2;
+        private int queueCapacity = 500;
+    }
+
+    @Data
+    public static class ResultCache {
+        private boolean enabled = true;
+        private int maxEntries = 10000;
+        private int ttlSeconds = 600;
+    }
+
+    @Data
+    public static class Coalescer {
+        private boolean enabled = true;
+        private int windowMs = 5;
+        private int maxBatchSize = 32;
+        private int queueCapacity = 1000;
+        private int dispatchThreads = 4;
+    }
+
+    @Data
+    public static class Limiter {
+        private int minLimit = 1;
+        private int maxLimit = 16;
+        private int targetLatencyMs = 2000;
+        private double backoffRatio = 0.9;
+    }
+
+    @Data
+    public static class Breaker {
+        private int failureThreshold = 5;
+        private int openDurationSeconds = 30;
+        private int halfOpenTrialCalls = 3;
+    }
+
+    @Data
+    public static class Forest {
+        private int trees = 200;
+        private int sampleSize = 256;
+        private double electricityContamination = 0.25;
+        private double waterContamination = 0.20;
+        private int trainingLimit = 10000;
+        private int minTrainingRows = 24;
+        private int retrainIntervalHours = 24;
+        private long seed = 42;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package org.ocp.kpi.kpienergybackend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Réparations de schéma exécutées avant Hibernate (ddl-auto=update), qui se contente de journaliser
+ * l'échec d'une contrainte impossible à créer.
+ * uk_anomalies_source : les doublons (source_type, source_id) laissés par d'anciens scans concurrents
+ * sont supprimés en gardant la plus ancienne ligne, puis la contrainte est créée dans la même transaction.
+ */
+@Configuration
+public class SchemaRepairConfig {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaRepairConfig.class);
+
+    private static final String TABLE_EXISTS_SQL = "SELECT to_regclass('anomalies') IS NOT NULL";
+
+    private static final String CONSTRAINT_EXISTS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_anomalies_source')";
+
+    private static final String DEDUPE_SQL =
+            "DELETE FROM anomalies a USING anomalies b " +
+            "WHERE a.source_type = b.source_type AND a.source_id = b.source_id AND a.id > b.id";
+
+    private static final String ADD_CONSTRAINT_SQL =
+            "ALTER TABLE anomalies ADD CONSTRAINT uk_anomalies_source UNIQUE (source_type, source_id)";
+
+    @Bean
+    public SchemaRepair schemaRepair(JdbcTemplate jdbcTemplate) {
+        SchemaRepair repair = new SchemaRepair();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            repairAnomalyConstraint(connection);
+            return null;
+        });
+        return repair;
+    }
+
+    private static void repairAnomalyConstraint(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            // Instances démarrées en même temps : une seule répare, les autres voient la contrainte
+            statement.execute("SELECT pg_advisory_xact_lock(hashtext('uk_anomalies_source'))");
+            if (!queryBoolean(connection, TABLE_EXISTS_SQL) || queryBoolean(connection, CONSTRAINT_EXISTS_SQL)) {
+                connection.commit();
+                return;
+            }
+            int removed = statement.executeUpdate(DEDUPE_SQL);
+            statement.execute(ADD_CONSTRAINT_SQL);
+            connection.commit();
+            logger.info("Contrainte uk_anomalies_source créée ({} doublons supprimés)", removed);
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static boolean queryBoolean(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Hibernate (EntityManagerFactory) démarre après la réparation
+     */
+    @Configuration
+    static class EntityManagerFactoryAfterSchemaRepair extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryAfterSchemaRepair() {
+            super(SchemaRepair.class);
+        }
+    }
+
+    /**
+     * Marqueur : son existence signifie que les réparations ont été appliquées
+     */
+    public static final class SchemaRepair {
+    }
+}
@@ -54,11 +54,15 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/anomalies").hasAnyRole("USER", "ADMIN") // Lecture pour tous les utilisateurs authentifiés
                         .requestMatchers(HttpMethod.GET, "/api/anomalies/stats").hasAnyRole("USER", "ADMIN") // Stats pour tous
                         .requestMatchers(HttpMethod.GET, "/api/anomalies/critical").hasRole("ADMIN") // Anomalies critiques réservées aux admin
+                        .requestMatchers(HttpMethod.GET, "/api/anomalies/ml-status").hasRole("ADMIN") // État du service ML réservé aux admin
                         .requestMatchers(HttpMethod.POST, "/api/anomalies/scan-now").hasRole("ADMIN") // Scan manuel réservé aux admin
+                        .requestMatchers(HttpMethod.POST, "/api/anomalies/rescan-all").hasRole("ADMIN") // Rescan complet réservé aux admin
+                        .requestMatchers("/api/anomalies/scan-jobs", "/api/anomalies/scan-jobs/**", "/api/anomalies/scan-shards").hasRole("ADMIN") // Suivi des scans réservé aux admin
                         .requestMatchers(HttpMethod.POST, "/api/anomalies/*/resolve").hasRole("ADMIN") // Résolution réservée aux admin
                         .requestMatchers(HttpMethod.POST, "/api/anomalies/validate-data").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("/api/electricity/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("/api/water/**").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers("/api/dashboard/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers(
                                 "/api/reports/**"
                         ).hasAnyRole("USER", "ADMIN")
@@ -77,7 +81,7 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:4200"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
-        configuration.setExposedHeaders(Arrays.asList("Content-Disposition"));
+        configuration.setExposedHeaders(Arrays.asList("Content-Disposition", "Content-Range", "Accept-Ranges", "ETag", "Last-Modified"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -1,17 +1,42 @@
 package org.ocp.kpi.kpienergybackend.controller;
 
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.security.CustomUserDetailsService;
+import org.ocp.kpi.kpienergybackend.service.CacheInvalidationBus;
+import org.ocp.kpi.kpienergybackend.service.KpiSummaryCache;
+import org.ocp.kpi.kpienergybackend.service.SingleFlight;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/admin")
 @PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
 public class AdminController {
 
+    private final KpiSummaryCache summaryCache;
+    private final CustomUserDetailsService userDetailsService;
+    private final CacheInvalidationBus invalidationBus;
+    private final SingleFlight singleFlight;
+
     @GetMapping("/test")
     public String adminAccess() {
         return "Admin Board";
     }
-}
\ No newline at end of file
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("summary_cache", summaryCache.getStats());
+        stats.put("user_cache", userDetailsService.getCacheStats());
+        stats.put("invalidation_bus", invalidationBus.getStats());
+        stats.put("single_flight", singleFlight.getStats());
+        return ResponseEntity.ok(stats);
+    }
+}
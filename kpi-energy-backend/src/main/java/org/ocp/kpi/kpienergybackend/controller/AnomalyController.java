@@ -2,11 +2,19 @@ package org.ocp.kpi.kpienergybackend.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.ocp.kpi.kpienergybackend.entity.Anomaly;
+import org.ocp.kpi.kpienergybackend.entity.ScanShard;
 import org.ocp.kpi.kpienergybackend.service.AnomalyDetectionService;
 import org.ocp.kpi.kpienergybackend.service.AnomalyService;
+import org.ocp.kpi.kpienergybackend.service.LeaseService;
+import org.ocp.kpi.kpienergybackend.service.RealtimeAnomalyDetector;
+import org.ocp.kpi.kpienergybackend.service.ScanJob;
+import org.ocp.kpi.kpienergybackend.service.ScanJobService;
+import org.ocp.kpi.kpienergybackend.service.ScanShardService;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -19,6 +27,10 @@ import java.util.Map;
 public class AnomalyController {
     private final AnomalyService anomalyService;
     private final AnomalyDetectionService detectionService;
+    private final RealtimeAnomalyDetector realtimeDetector;
+    private final ScanJobService scanJobService;
+    private final ScanShardService scanShardService;
+    private final LeaseService leaseService;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -53,9 +65,84 @@ public class AnomalyController {
 
     @PostMapping("/scan-now")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> triggerManualScan() {
-        detectionService.scanAllDataForAnomalies();
-        return ResponseEntity.ok("Scan des anomalies déclenché");
+    public ResponseEntity<Map<String, Object>> triggerManualScan(
+            @RequestParam(required = false) String sourceType,
+            Authentication authentication) {
+        return submitScan(sourceType, false, authentication);
+    }
+
+    @PostMapping("/rescan-all")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> triggerFullRescan(
+            @RequestParam(required = false) String sourceType,
+            Authentication authentication) {
+        return submitScan(sourceType, true, authentication);
+    }
+
+    @GetMapping("/scan-jobs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<Map<String, Object>> getScanJobs() {
+        return scanJobService.getJobs().stream().map(ScanJob::snapshot).toList();
+    }
+
+    @GetMapping("/scan-jobs/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getScanJob(@PathVariable String id) {
+        return scanJobService.findJob(id)
+                .map(job -> ResponseEntity.ok(job.snapshot()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/scan-jobs/{id}/cancel")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> cancelScanJob(@PathVariable String id) {
+        return scanJobService.cancel(id)
+                .map(job -> ResponseEntity.ok(job.snapshot()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/scan-shards")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getLatestScanShards() {
+        List<ScanShard> shards = scanShardService.getLatestRun();
+        return Map.of(
+                "node_id", leaseService.getNodeId(),
+                "shards", shards
+        );
+    }
+
+    private ResponseEntity<Map<String, Object>> submitScan(String sourceType, boolean fullRescan,
+                                                           Authentication authentication) {
+        List<String> sourceTypes;
+        if (sourceType == null || "ALL".equalsIgnoreCase(sourceType)) {
+            sourceTypes = ScanJobService.ALL_SOURCE_TYPES;
+        } else if (ScanJobService.ALL_SOURCE_TYPES.contains(sourceType.toUpperCase())) {
+            sourceTypes = List.of(sourceType.toUpperCase());
+        } else {
+            return ResponseEntity.badRequest().body(Map.of("error", "Type de source inconnu: " + sourceType));
+        }
+
+        try {
+            ScanJob job = scanJobService.submit(sourceTypes, fullRescan,
+                    authentication != null ? authentication.getName() : null);
+            // 202 : le scan continue en arrière-plan, l'avancement se lit sur /scan-jobs/{id}
+            return ResponseEntity.accepted().body(job.snapshot());
+        } catch (ScanJobService.ScanConflictException e) {
+            if (e.getRunningJob() == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", e.getMessage(),
+                    "running_job", e.getRunningJob().snapshot()));
+        }
+    }
+
+    @GetMapping("/ml-status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getMlStatus() {
+        Map<String, Object> status = detectionService.getScoringStatus();
+        status.put("realtime_detection", realtimeDetector.getStats());
+        return status;
     }
 
     @PostMapping("/validate-data")
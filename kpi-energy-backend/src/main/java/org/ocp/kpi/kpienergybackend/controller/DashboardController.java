@@ -0,0 +1,26 @@
+package org.ocp.kpi.kpienergybackend.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.service.DashboardService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    @GetMapping("/{year}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getDashboard(@PathVariable int year) {
+        return ResponseEntity.ok(dashboardService.getDashboard(year));
+    }
+}
@@ -3,13 +3,20 @@ package org.ocp.kpi.kpienergybackend.controller;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.ocp.kpi.kpienergybackend.dto.ElectricityDataDto;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityDataView;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityPeriodDto;
 import org.ocp.kpi.kpienergybackend.dto.ElectricitySummaryDto;
 import org.ocp.kpi.kpienergybackend.entity.ElectricityData;
+import org.ocp.kpi.kpienergybackend.service.DataVersionService;
 import org.ocp.kpi.kpienergybackend.service.ElectricityDataService;
+import org.ocp.kpi.kpienergybackend.service.RollupService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -20,6 +27,8 @@ import java.util.Optional;
 public class ElectricityDataController {
 
     private final ElectricityDataService electricityService;
+    private final RollupService rollupService;
+    private final DataVersionService versionService;
 
     @PostMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
@@ -30,11 +39,16 @@ public class ElectricityDataController {
 
     @GetMapping("/{year}/{month}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<ElectricityData> getData(
+    public ResponseEntity<ElectricityDataView> getData(
             @PathVariable int year,
-            @PathVariable int month
+            @PathVariable int month,
+            WebRequest request
     ) {
-        Optional<ElectricityData> data = electricityService.getDataByYearAndMonth(year, month);
+        if (versionService.isNotModified(request, versionService.forMonth("ELECTRICITY", year, month))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        Optional<ElectricityDataView> data = electricityService.getDataByYearAndMonth(year, month);
         return data.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -42,7 +56,12 @@ public class ElectricityDataController {
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<ElectricitySummaryDto> getMonthlySummary(
             @PathVariable int year,
-            @PathVariable int month) {
+            @PathVariable int month,
+            WebRequest request) {
+        if (versionService.isNotModified(request, versionService.forMonth("ELECTRICITY", year, month))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
         Optional<ElectricitySummaryDto> summary = electricityService.getMonthlySummary(year, month);
         return summary.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -50,11 +69,67 @@ public class ElectricityDataController {
     @GetMapping("/annual-summary/{year}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<List<ElectricitySummaryDto>> getAnnualSummary(
-            @PathVariable int year) {
+            @PathVariable int year,
+            WebRequest request) {
+        if (versionService.isNotModified(request, versionService.forYears("ELECTRICITY", year, year))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
         List<ElectricitySummaryDto> summary = electricityService.getAnnualSummary(year);
         return ResponseEntity.ok(summary);
     }
 
+    @GetMapping("/range/{startYear}/{endYear}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> getRange(
+            @PathVariable int startYear,
+            @PathVariable int endYear,
+            @RequestParam(defaultValue = "month") String groupBy,
+            WebRequest request) {
+        String grouping = groupBy.toLowerCase();
+        if (!ElectricityDataService.RANGE_GROUPINGS.contains(grouping)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "groupBy doit valoir month, quarter ou year"));
+        }
+        if (endYear < startYear) {
+            return ResponseEntity.badRequest().body(Map.of("error", "endYear doit être supérieur ou égal à startYear"));
+        }
+        if (versionService.isNotModified(request, versionService.forYears("ELECTRICITY", startYear, endYear))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<ElectricityPeriodDto> periods = electricityService.getRange(startYear, endYear, grouping);
+        return ResponseEntity.ok(periods);
+    }
+
+    @GetMapping("/rollup")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRollup(WebRequest request) {
+        if (versionService.isNotModified(request, versionService.forAll("ELECTRICITY"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        Map<String, Object> rollup = new LinkedHashMap<>();
+        rollup.put("allTime", rollupService.getElectricityAllTime().orElse(null));
+        rollup.put("years", rollupService.getElectricityYears());
+        return ResponseEntity.ok(rollup);
+    }
+
+    @GetMapping("/rollup/{year}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getYearRollup(@PathVariable int year, WebRequest request) {
+        if (versionService.isNotModified(request, versionService.forYears("ELECTRICITY", year, year))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        return rollupService.getElectricityYear(year)
+                .<ResponseEntity<Map<String, Object>>>map(total -> {
+                    Map<String, Object> rollup = new LinkedHashMap<>();
+                    rollup.put("year", total);
+                    rollup.put("quarters", rollupService.getElectricityQuarters(year));
+                    return ResponseEntity.ok(rollup);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/limits")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<Map<String, Double>> getLimits() {
@@ -65,9 +140,14 @@ public class ElectricityDataController {
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<ElectricityDataDto> getDataForEdit(
             @PathVariable int year,
-            @PathVariable int month
+            @PathVariable int month,
+            WebRequest request
     ) {
-        Optional<ElectricityData> data = electricityService.getDataByYearAndMonth(year, month);
+        if (versionService.isNotModified(request, versionService.forMonth("ELECTRICITY", year, month))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        Optional<ElectricityDataView> data = electricityService.getDataByYearAndMonth(year, month);
         return data.map(d -> ResponseEntity.ok(convertToDto(d)))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -83,7 +163,7 @@ public class ElectricityDataController {
         return ResponseEntity.noContent().build();
     }
 
-    private ElectricityDataDto convertToDto(ElectricityData data) {
+    private ElectricityDataDto convertToDto(ElectricityDataView data) {
         ElectricityDataDto dto = new ElectricityDataDto();
         dto.setYear(data.getYear());
         dto.setMonth(data.getMonth());
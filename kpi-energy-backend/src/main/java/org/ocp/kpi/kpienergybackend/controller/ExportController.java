@@ -17,6 +17,8 @@ import java.time.format.DateTimeFormatter;
 @CrossOrigin(origins = "http://localhost:4200", exposedHeaders = HttpHeaders.CONTENT_DISPOSITION)
 public class ExportController {
 
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
     private final ExportService exportService;
 
     private String generateFileName(String prefix, String extension, Integer year, Integer month) {
@@ -70,4 +72,46 @@ public class ExportController {
 
         exportService.exportCombinedToCSV(year, month, response);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/electricity/xlsx")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public void exportElectricityToXlsx(
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType(XLSX_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=" + generateFileName("electricity", "xlsx", year, month));
+
+        exportService.exportElectricityToXlsx(year, month, response);
+    }
+
+    @GetMapping("/water/xlsx")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public void exportWaterToXlsx(
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType(XLSX_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=" + generateFileName("water", "xlsx", year, month));
+
+        exportService.exportWaterToXlsx(year, month, response);
+    }
+
+    @GetMapping("/combined/xlsx")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public void exportCombinedToXlsx(
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType(XLSX_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=" + generateFileName("combined", "xlsx", year, month));
+
+        exportService.exportCombinedToXlsx(year, month, response);
+    }
+}
@@ -0,0 +1,122 @@
+package org.ocp.kpi.kpienergybackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.service.ExportJob;
+import org.ocp.kpi.kpienergybackend.service.ExportJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Exports asynchrones. Les jobs n'existent que sur l'instance qui les a créés (voir ExportJobService) :
+ * derrière plusieurs instances, ces routes doivent être servies avec affinité de session.
+ */
+@RestController
+@RequestMapping("/api/reports/export-jobs")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:4200")
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping("/{type}/{format}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> submitExport(
+            @PathVariable String type,
+            @PathVariable String format,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            Authentication authentication) {
+
+        try {
+            ExportJob job = exportJobService.submit(type.toLowerCase(Locale.ROOT), format.toLowerCase(Locale.ROOT),
+                    year, month, authentication != null ? authentication.getName() : null);
+            // 200 : fichier identique déjà prêt ; 202 : génération en cours, l'avancement se lit sur /export-jobs/{id}
+            return job.getStatus() == ExportJob.Status.COMPLETED
+                    ? ResponseEntity.ok(view(job, authentication))
+                    : ResponseEntity.accepted().body(view(job, authentication));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Trop d'exports en attente, réessayez plus tard"));
+        }
+    }
+
+    /**
+     * Jobs de l'utilisateur connecté ; tous les jobs pour un administrateur
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public List<Map<String, Object>> getExportJobs(Authentication authentication) {
+        return exportJobService.getJobs(authentication.getName(), isAdmin(authentication)).stream()
+                .map(job -> view(job, authentication))
+                .toList();
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getExportJob(@PathVariable String id, Authentication authentication) {
+        return exportJobService.findJob(id)
+                .map(job -> ResponseEntity.ok(view(job, authentication)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/download")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public void downloadExport(
+            @PathVariable String id,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        Optional<ExportJob> job = exportJobService.findJob(id);
+        if (job.isEmpty()) {
+            writeError(response, HttpStatus.NOT_FOUND, Map.of("error", "Export inconnu sur cette instance"));
+            return;
+        }
+        if (job.get().getStatus() != ExportJob.Status.COMPLETED) {
+            writeError(response, HttpStatus.CONFLICT, Map.of(
+                    "error", "Export non terminé",
+                    "job", view(job.get(), authentication)));
+            return;
+        }
+        exportJobService.serve(job.get(), request, response);
+    }
+
+    /**
+     * Vue d'un job ; l'auteur de la demande n'est montré qu'aux administrateurs
+     */
+    private Map<String, Object> view(ExportJob job, Authentication authentication) {
+        Map<String, Object> snapshot = job.snapshot();
+        if (!isAdmin(authentication)) {
+            snapshot.remove("requested_by");
+        }
+        return snapshot;
+    }
+
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, Map<String, Object> body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
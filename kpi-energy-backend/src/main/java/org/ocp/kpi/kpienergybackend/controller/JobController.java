@@ -0,0 +1,55 @@
+package org.ocp.kpi.kpienergybackend.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.dto.JobDefinitionDto;
+import org.ocp.kpi.kpienergybackend.entity.JobDefinition;
+import org.ocp.kpi.kpienergybackend.entity.JobRun;
+import org.ocp.kpi.kpienergybackend.service.JobSchedulerService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/jobs")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class JobController {
+    private final JobSchedulerService jobSchedulerService;
+
+    @GetMapping
+    public List<Map<String, Object>> getJobs() {
+        return jobSchedulerService.getJobsStatus();
+    }
+
+    @GetMapping("/{name}/runs")
+    public ResponseEntity<List<JobRun>> getRuns(@PathVariable String name,
+                                                @RequestParam(defaultValue = "20") int limit) {
+        if (!jobSchedulerService.isKnownJob(name)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(jobSchedulerService.getRecentRuns(name, limit));
+    }
+
+    @PostMapping("/{name}/run")
+    public ResponseEntity<Map<String, String>> runNow(@PathVariable String name) {
+        if (!jobSchedulerService.triggerNow(name)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Tâche " + name + " planifiée pour exécution immédiate"));
+    }
+
+    @PutMapping("/{name}")
+    public ResponseEntity<?> updateJob(@PathVariable String name, @RequestBody JobDefinitionDto dto) {
+        try {
+            return jobSchedulerService.updateDefinition(name, dto)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -3,13 +3,21 @@ package org.ocp.kpi.kpienergybackend.controller;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.ocp.kpi.kpienergybackend.dto.WaterDataDto;
+import org.ocp.kpi.kpienergybackend.dto.WaterDataView;
+import org.ocp.kpi.kpienergybackend.dto.WaterSummaryDto;
 import org.ocp.kpi.kpienergybackend.entity.WaterData;
+import org.ocp.kpi.kpienergybackend.service.DataVersionService;
+import org.ocp.kpi.kpienergybackend.service.RollupService;
 import org.ocp.kpi.kpienergybackend.service.WaterDataService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -18,6 +26,8 @@ import java.util.Optional;
 public class WaterDataController {
 
     private final WaterDataService waterService;
+    private final RollupService rollupService;
+    private final DataVersionService versionService;
 
     @PostMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
@@ -28,29 +38,73 @@ public class WaterDataController {
 
     @GetMapping("/{year}/{month}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<WaterData> getData(
+    public ResponseEntity<WaterDataView> getData(
             @PathVariable int year,
-            @PathVariable int month
+            @PathVariable int month,
+            WebRequest request
     ) {
-        Optional<WaterData> data = waterService.getDataByYearAndMonth(year, month);
+        if (versionService.isNotModified(request, versionService.forMonth("WATER", year, month))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        Optional<WaterDataView> data = waterService.getDataByYearAndMonth(year, month);
         return data.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
 
     @GetMapping("/monthly/{year}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<List<WaterData>> getMonthlyDataForYear(@PathVariable int year) {
-        List<WaterData> data = waterService.getMonthlyDataForYear(year);
+    public ResponseEntity<List<WaterSummaryDto>> getMonthlyDataForYear(@PathVariable int year, WebRequest request) {
+        if (versionService.isNotModified(request, versionService.forYears("WATER", year, year))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        List<WaterSummaryDto> data = waterService.getMonthlyDataForYear(year);
         return ResponseEntity.ok(data);
     }
 
     @GetMapping("/annual/{startYear}/{endYear}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<List<WaterData>> getAnnualData(@PathVariable int startYear, @PathVariable int endYear) {
-        List<WaterData> data = waterService.getAnnualData(startYear, endYear);
+    public ResponseEntity<List<WaterSummaryDto>> getAnnualData(@PathVariable int startYear, @PathVariable int endYear,
+                                                               WebRequest request) {
+        if (versionService.isNotModified(request, versionService.forYears("WATER", startYear, endYear))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        List<WaterSummaryDto> data = waterService.getAnnualData(startYear, endYear);
         return ResponseEntity.ok(data);
     }
 
+    @GetMapping("/rollup")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRollup(WebRequest request) {
+        if (versionService.isNotModified(request, versionService.forAll("WATER"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        Map<String, Object> rollup = new LinkedHashMap<>();
+        rollup.put("allTime", rollupService.getWaterAllTime().orElse(null));
+        rollup.put("years", rollupService.getWaterYears());
+        return ResponseEntity.ok(rollup);
+    }
+
+    @GetMapping("/rollup/{year}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getYearRollup(@PathVariable int year, WebRequest request) {
+        if (versionService.isNotModified(request, versionService.forYears("WATER", year, year))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        return rollupService.getWaterYear(year)
+                .<ResponseEntity<Map<String, Object>>>map(total -> {
+                    Map<String, Object> rollup = new LinkedHashMap<>();
+                    rollup.put("year", total);
+                    rollup.put("quarters", rollupService.getWaterQuarters(year));
+                    return ResponseEntity.ok(rollup);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @DeleteMapping("/{year}/{month}")
     @PreAuthorize("hasRole('ADMIN')")
     @Transactional
@@ -66,14 +120,19 @@ public class WaterDataController {
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<WaterDataDto> getDataForEdit(
             @PathVariable int year,
-            @PathVariable int month
+            @PathVariable int month,
+            WebRequest request
     ) {
-        Optional<WaterData> data = waterService.getDataByYearAndMonth(year, month);
+        if (versionService.isNotModified(request, versionService.forMonth("WATER", year, month))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        Optional<WaterDataView> data = waterService.getDataByYearAndMonth(year, month);
         return data.map(d -> ResponseEntity.ok(convertToDto(d)))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    private WaterDataDto convertToDto(WaterData data) {
+    private WaterDataDto convertToDto(WaterDataView data) {
         WaterDataDto dto = new WaterDataDto();
         dto.setYear(data.getYear());
         dto.setMonth(data.getMonth());
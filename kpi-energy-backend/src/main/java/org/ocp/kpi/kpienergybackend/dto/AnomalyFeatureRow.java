@@ -0,0 +1,16 @@
+package org.ocp.kpi.kpienergybackend.dto;
+
+import java.util.Map;
+
+/**
+ * Ligne projetée pour le scan d'anomalies : identifiant source, période et features numériques.
+ */
+public interface AnomalyFeatureRow {
+    Long getId();
+
+    int getYear();
+
+    int getMonth();
+
+    Map<String, Object> toMlInput();
+}
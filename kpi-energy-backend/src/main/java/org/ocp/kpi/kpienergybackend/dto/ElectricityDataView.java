@@ -0,0 +1,21 @@
+package org.ocp.kpi.kpienergybackend.dto;
+
+/**
+ * Projection fermée de ElectricityData : colonnes numériques uniquement, sans le créateur ni les dates
+ */
+public interface ElectricityDataView {
+    int getYear();
+    int getMonth();
+    double getNetwork60kvActiveEnergy();
+    double getNetwork60kvReactiveEnergy();
+    double getNetwork60kvPowerFactor();
+    double getNetwork60kvPeak();
+    double getNetwork22kvActiveEnergy();
+    double getNetwork22kvReactiveEnergy();
+    double getNetwork22kvPowerFactor();
+    double getNetwork22kvPeak();
+
+    default double getTotalActiveEnergy() {
+        return getNetwork60kvActiveEnergy() + getNetwork22kvActiveEnergy();
+    }
+}
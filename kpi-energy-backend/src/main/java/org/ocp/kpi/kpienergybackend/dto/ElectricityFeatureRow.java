@@ -0,0 +1,42 @@
+package org.ocp.kpi.kpienergybackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ElectricityFeatureRow implements AnomalyFeatureRow {
+    private Long id;
+    private int year;
+    private int month;
+    private double network60kvActiveEnergy;
+    private double network60kvReactiveEnergy;
+    private double network60kvPeak;
+    private double network22kvActiveEnergy;
+    private double network22kvReactiveEnergy;
+    private double network22kvPeak;
+    private double network60kvPowerFactor;
+    private double network22kvPowerFactor;
+
+    @Override
+    public Map<String, Object> toMlInput() {
+        Map<String, Object> mlInput = new HashMap<>();
+        mlInput.put("data_type", "electricity");
+        mlInput.put("year", year);
+        mlInput.put("month", month);
+        mlInput.put("network60kv_active_energy", network60kvActiveEnergy);
+        mlInput.put("network60kv_reactive_energy", network60kvReactiveEnergy);
+        mlInput.put("network60kv_peak", network60kvPeak);
+        mlInput.put("network22kv_active_energy", network22kvActiveEnergy);
+        mlInput.put("network22kv_reactive_energy", network22kvReactiveEnergy);
+        mlInput.put("network22kv_peak", network22kvPeak);
+        mlInput.put("network60kv_power_factor", network60kvPowerFactor);
+        mlInput.put("network22kv_power_factor", network22kvPowerFactor);
+        return mlInput;
+    }
+}
@@ -0,0 +1,31 @@
+package org.ocp.kpi.kpienergybackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Agrégat électrique d'une période (mois, trimestre ou année) ; quarter et month sont absents
+ * selon le regroupement demandé.
+ */
+@Value
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ElectricityPeriodDto {
+    int year;
+    Integer quarter;
+    Integer month;
+    int monthCount;
+    double network60kvConsumption;
+    double network60kvReactiveEnergy;
+    double network60kvPeak; // maximum de la période
+    double network60kvPowerFactor; // calculé sur les énergies cumulées
+    double network60kvAvgPowerFactor; // moyenne des facteurs mensuels
+    double network22kvConsumption;
+    double network22kvReactiveEnergy;
+    double network22kvPeak;
+    double network22kvPowerFactor;
+    double network22kvAvgPowerFactor;
+    double totalConsumption;
+    double avgMonthlyConsumption;
+}
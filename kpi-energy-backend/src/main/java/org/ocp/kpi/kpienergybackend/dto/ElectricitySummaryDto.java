@@ -1,10 +1,9 @@
 package org.ocp.kpi.kpienergybackend.dto;
 
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@NoArgsConstructor
+// Immuable : les listes annuelles sont partagées par le cache des synthèses
+@Value
 public class ElectricitySummaryDto {
     private int year;
     private int month;
@@ -0,0 +1,16 @@
+package org.ocp.kpi.kpienergybackend.dto;
+
+import lombok.Data;
+
+/**
+ * Modification d'une tâche planifiée ; les champs null sont laissés inchangés.
+ * window : "HH:mm-HH:mm", ou chaîne vide pour retirer la restriction horaire.
+ */
+@Data
+public class JobDefinitionDto {
+    private String cron;
+    private Boolean enabled;
+    private String window;
+    private Integer maxAttempts;
+    private Integer backoffSeconds;
+}
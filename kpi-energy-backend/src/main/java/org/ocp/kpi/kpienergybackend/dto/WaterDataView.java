@@ -0,0 +1,17 @@
+package org.ocp.kpi.kpienergybackend.dto;
+
+/**
+ * Projection fermée de WaterData : colonnes numériques uniquement, sans le créateur ni les dates
+ */
+public interface WaterDataView {
+    int getYear();
+    int getMonth();
+    double getF3bis();
+    double getF3();
+    double getSe2();
+    double getSe3bis();
+
+    default double getTotalProduction() {
+        return getF3bis() + getF3() + getSe2() + getSe3bis();
+    }
+}
@@ -0,0 +1,34 @@
+package org.ocp.kpi.kpienergybackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaterFeatureRow implements AnomalyFeatureRow {
+    private Long id;
+    private int year;
+    private int month;
+    private double f3bis;
+    private double f3;
+    private double se2;
+    private double se3bis;
+
+    @Override
+    public Map<String, Object> toMlInput() {
+        Map<String, Object> mlInput = new HashMap<>();
+        mlInput.put("data_type", "water");
+        mlInput.put("year", year);
+        mlInput.put("month", month);
+        mlInput.put("f3bis", f3bis);
+        mlInput.put("f3", f3);
+        mlInput.put("se2", se2);
+        mlInput.put("se3bis", se3bis);
+        return mlInput;
+    }
+}
@@ -0,0 +1,35 @@
+package org.ocp.kpi.kpienergybackend.dto;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+// Immuable : les listes annuelles sont partagées par le cache des synthèses
+@Value
+public class WaterSummaryDto {
+    Long id;
+    int year;
+    int month;
+    double f3bis;
+    double f3;
+    double se2;
+    double se3bis;
+    double totalProduction;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+
+    public WaterSummaryDto(Long id, int year, int month,
+                           double f3bis, double f3, double se2, double se3bis,
+                           LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.year = year;
+        this.month = month;
+        this.f3bis = f3bis;
+        this.f3 = f3;
+        this.se2 = se2;
+        this.se3bis = se3bis;
+        this.totalProduction = f3bis + f3 + se2 + se3bis;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "anomalies")
+@Table(name = "anomalies", uniqueConstraints =
+        @UniqueConstraint(name = "uk_anomalies_source", columnNames = {"source_type", "source_id"}))
 public class Anomaly {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
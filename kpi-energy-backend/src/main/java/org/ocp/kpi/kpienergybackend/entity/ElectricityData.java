@@ -1,5 +1,6 @@
 package org.ocp.kpi.kpienergybackend.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -85,7 +86,8 @@ public class ElectricityData {
         }
     }
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by", referencedColumnName = "id")
+    @JsonIgnore // Ni le compte du créateur ni un proxy non initialisé dans les réponses et l'audit
     private Utilisateur createdBy;
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package org.ocp.kpi.kpienergybackend.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Agrégats électriques pré-calculés par période : periodType YEAR (quarter = 0),
+ * QUARTER (quarter 1 à 4) ou ALL (year = 0, quarter = 0, tout l'historique).
+ * Maintenus par RollupService à chaque saisie ou suppression.
+ */
+@Entity
+@Table(name = "electricity_rollup", uniqueConstraints =
+        @UniqueConstraint(name = "uk_electricity_rollup_period", columnNames = {"period_type", "year", "quarter"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ElectricityRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+
+    @Column(name = "period_type", nullable = false, length = 10)
+    private String periodType;
+
+    @Column(name = "year", nullable = false)
+    private int year;
+
+    @Column(name = "quarter", nullable = false)
+    private int quarter;
+
+    @Column(name = "month_count", nullable = false)
+    private long monthCount;
+
+    @Column(name = "sum_60kv_active_energy")
+    private double sum60kvActiveEnergy;
+
+    @Column(name = "sum_60kv_reactive_energy")
+    private double sum60kvReactiveEnergy;
+
+    @Column(name = "sum_22kv_active_energy")
+    private double sum22kvActiveEnergy;
+
+    @Column(name = "sum_22kv_reactive_energy")
+    private double sum22kvReactiveEnergy;
+
+    @Column(name = "total_active_energy")
+    private double totalActiveEnergy;
+
+    @Column(name = "max_60kv_peak")
+    private double max60kvPeak;
+
+    @Column(name = "max_22kv_peak")
+    private double max22kvPeak;
+
+    @Column(name = "min_60kv_power_factor")
+    private double min60kvPowerFactor;
+
+    @Column(name = "sum_60kv_power_factor")
+    @JsonIgnore
+    private double sum60kvPowerFactor;
+
+    @Column(name = "min_22kv_power_factor")
+    private double min22kvPowerFactor;
+
+    @Column(name = "sum_22kv_power_factor")
+    @JsonIgnore
+    private double sum22kvPowerFactor;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public double getAvg60kvPowerFactor() {
+        return monthCount == 0 ? 0 : sum60kvPowerFactor / monthCount;
+    }
+
+    public double getAvg22kvPowerFactor() {
+        return monthCount == 0 ? 0 : sum22kvPowerFactor / monthCount;
+    }
+
+    public double getAvgMonthlyActiveEnergy() {
+        return monthCount == 0 ? 0 : totalActiveEnergy / monthCount;
+    }
+}
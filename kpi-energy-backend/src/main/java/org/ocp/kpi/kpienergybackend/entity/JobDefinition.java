@@ -0,0 +1,55 @@
+package org.ocp.kpi.kpienergybackend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Planification persistante d'une tâche de fond : expression cron, fenêtre horaire autorisée
+ * et politique de nouvel essai. Créée au démarrage avec les valeurs par défaut de la tâche,
+ * puis modifiable par les administrateurs.
+ */
+@Entity
+@Table(name = "job_definition")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobDefinition {
+
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "cron", nullable = false, length = 100)
+    private String cron;
+
+    @Column(name = "enabled", nullable = false)
+    private boolean enabled;
+
+    // Fenêtre d'exécution (heure locale) ; null : à toute heure. Peut franchir minuit (22:00-06:00)
+    @Column(name = "window_start")
+    private LocalTime windowStart;
+
+    @Column(name = "window_end")
+    private LocalTime windowEnd;
+
+    @Column(name = "max_attempts", nullable = false)
+    private int maxAttempts;
+
+    @Column(name = "backoff_seconds", nullable = false)
+    private int backoffSeconds;
+
+    @Column(name = "next_run_at")
+    private LocalDateTime nextRunAt;
+
+    // Tentative de la prochaine exécution (> 1 après un échec)
+    @Column(name = "next_attempt", nullable = false)
+    private int nextAttempt;
+
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+}
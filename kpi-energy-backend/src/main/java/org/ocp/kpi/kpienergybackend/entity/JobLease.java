@@ -0,0 +1,33 @@
+package org.ocp.kpi.kpienergybackend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bail d'exécution d'une tâche planifiée : dans un cluster, seul le nœud propriétaire
+ * d'un bail non expiré exécute la tâche. Acquis et renouvelé par upsert natif (LeaseService).
+ */
+@Entity
+@Table(name = "job_lease")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobLease {
+
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "owner", nullable = false, length = 100)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "acquired_at", nullable = false)
+    private LocalDateTime acquiredAt;
+}
@@ -0,0 +1,50 @@
+package org.ocp.kpi.kpienergybackend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Historique d'exécution d'une tâche de fond
+ */
+@Entity
+@Table(name = "job_run", indexes = @Index(name = "idx_job_run_name_started", columnList = "job_name, started_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 100)
+    private String jobName;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status; // RUNNING, SUCCEEDED, FAILED
+
+    @Column(name = "attempt", nullable = false)
+    private int attempt;
+
+    @Column(name = "node", length = 100)
+    private String node;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "rows_processed")
+    private Long rowsProcessed;
+
+    @Column(name = "error", columnDefinition = "TEXT")
+    private String error;
+}
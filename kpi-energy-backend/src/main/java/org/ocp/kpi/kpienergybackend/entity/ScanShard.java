@@ -0,0 +1,64 @@
+package org.ocp.kpi.kpienergybackend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Part d'un scan planifié (un type de source, une année), réservée par un nœud du cluster.
+ * Statuts : PENDING, RUNNING (bail jusqu'à leaseUntil), DONE, FAILED.
+ * Une part en échec repasse PENDING (réservable après leaseUntil) tant qu'il lui reste des tentatives.
+ */
+@Entity
+@Table(name = "anomaly_scan_shard", uniqueConstraints =
+        @UniqueConstraint(name = "uk_scan_shard", columnNames = {"run_id", "source_type", "year"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScanShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false, length = 36)
+    private String runId;
+
+    @Column(name = "source_type", nullable = false, length = 20)
+    private String sourceType;
+
+    @Column(name = "year", nullable = false)
+    private int year;
+
+    // Début de la fenêtre incrémentale (null : rescan complet)
+    @Column(name = "since")
+    private LocalDateTime since;
+
+    @Column(name = "run_started_at", nullable = false)
+    private LocalDateTime runStartedAt;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "owner", length = 100)
+    private String owner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    // Réservations successives de la part (nouvel essai ou bail expiré)
+    @Column(name = "attempts", columnDefinition = "INTEGER NOT NULL DEFAULT 0")
+    private int attempts;
+
+    @Column(name = "scanned_rows")
+    private long scannedRows;
+
+    @Column(name = "anomalies_found")
+    private long anomaliesFound;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
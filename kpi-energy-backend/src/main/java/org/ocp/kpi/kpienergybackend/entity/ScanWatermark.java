@@ -0,0 +1,27 @@
+package org.ocp.kpi.kpienergybackend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dernier scan d'anomalies réussi par source ("ELECTRICITY" ou "WATER").
+ * Le scan incrémental ne traite que les lignes créées ou modifiées depuis lastScannedAt.
+ */
+@Entity
+@Table(name = "anomaly_scan_watermark")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScanWatermark {
+
+    @Id
+    @Column(name = "source_type", length = 20)
+    private String sourceType;
+
+    @Column(name = "last_scanned_at", nullable = false)
+    private LocalDateTime lastScannedAt;
+}
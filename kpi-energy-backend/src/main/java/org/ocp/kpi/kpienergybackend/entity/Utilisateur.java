@@ -2,6 +2,7 @@ package org.ocp.kpi.kpienergybackend.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.ocp.kpi.kpienergybackend.event.UtilisateurChangeListener;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,6 +14,7 @@ import java.util.Collections;
 @Data
 @Entity
 @Table(name = "utilisateur")
+@EntityListeners(UtilisateurChangeListener.class)
 public class Utilisateur implements UserDetails {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
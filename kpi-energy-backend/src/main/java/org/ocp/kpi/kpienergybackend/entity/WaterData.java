@@ -1,5 +1,6 @@
 package org.ocp.kpi.kpienergybackend.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -35,8 +36,9 @@ public class WaterData {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by", referencedColumnName = "id")
+    @JsonIgnore // Ni le compte du créateur ni un proxy non initialisé dans les réponses et l'audit
     private Utilisateur createdBy;
 
     @PrePersist
@@ -0,0 +1,67 @@
+package org.ocp.kpi.kpienergybackend.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Agrégats de production d'eau pré-calculés par période (YEAR, QUARTER ou ALL, comme ElectricityRollup).
+ * La production totale d'un mois est f3bis + f3 + se2 + se3bis.
+ */
+@Entity
+@Table(name = "water_rollup", uniqueConstraints =
+        @UniqueConstraint(name = "uk_water_rollup_period", columnNames = {"period_type", "year", "quarter"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WaterRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+
+    @Column(name = "period_type", nullable = false, length = 10)
+    private String periodType;
+
+    @Column(name = "year", nullable = false)
+    private int year;
+
+    @Column(name = "quarter", nullable = false)
+    private int quarter;
+
+    @Column(name = "month_count", nullable = false)
+    private long monthCount;
+
+    @Column(name = "sum_f3bis")
+    private double sumF3bis;
+
+    @Column(name = "sum_f3")
+    private double sumF3;
+
+    @Column(name = "sum_se2")
+    private double sumSe2;
+
+    @Column(name = "sum_se3bis")
+    private double sumSe3bis;
+
+    @Column(name = "total_production")
+    private double totalProduction;
+
+    @Column(name = "max_monthly_production")
+    private double maxMonthlyProduction;
+
+    @Column(name = "min_monthly_production")
+    private double minMonthlyProduction;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public double getAvgMonthlyProduction() {
+        return monthCount == 0 ? 0 : totalProduction / monthCount;
+    }
+}
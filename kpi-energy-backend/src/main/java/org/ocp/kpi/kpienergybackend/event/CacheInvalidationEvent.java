@@ -0,0 +1,15 @@
+package org.ocp.kpi.kpienergybackend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Invalidation d'une entrée de cache local, diffusée aux autres instances après validation
+ * de la transaction (CacheInvalidationBus).
+ */
+@Data
+@AllArgsConstructor
+public class CacheInvalidationEvent {
+    private String cache; // "user", "summary"
+    private String key;
+}
@@ -0,0 +1,20 @@
+package org.ocp.kpi.kpienergybackend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Publié par les services de saisie quand un mois de données électriques ou d'eau est enregistré
+ * ou supprimé. Les écouteurs le reçoivent après la validation de la transaction.
+ */
+@Data
+@AllArgsConstructor
+public class KpiDataChangedEvent {
+    public enum ChangeType { SAVED, DELETED }
+
+    private String sourceType; // "ELECTRICITY" ou "WATER"
+    private Long sourceId;
+    private int year;
+    private int month;
+    private ChangeType changeType;
+}
@@ -0,0 +1,26 @@
+package org.ocp.kpi.kpienergybackend.event;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.entity.Utilisateur;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Écouteur JPA de Utilisateur : toute écriture (services, contrôleurs, réinitialisation de mot de passe)
+ * invalide le cache des comptes, sur cette instance et sur les autres.
+ */
+@Component
+@RequiredArgsConstructor
+public class UtilisateurChangeListener {
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Utilisateur utilisateur) {
+        eventPublisher.publishEvent(new CacheInvalidationEvent("user", utilisateur.getEmail()));
+    }
+}
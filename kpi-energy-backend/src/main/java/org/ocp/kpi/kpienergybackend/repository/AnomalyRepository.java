@@ -1,14 +1,18 @@
 package org.ocp.kpi.kpienergybackend.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.ocp.kpi.kpienergybackend.entity.Anomaly;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AnomalyRepository extends JpaRepository<Anomaly, Long> {
@@ -43,9 +47,13 @@ public interface AnomalyRepository extends JpaRepository<Anomaly, Long> {
             @Param("minScore") double minScore,
             @Param("startDate") LocalDateTime startDate);
 
-    // NOUVELLE MÉTHODE POUR AnomalyDetectionService
+    // Méthodes pour AnomalyDetectionService
     List<Anomaly> findBySourceTypeAndSourceId(String sourceType, Long sourceId);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.sourceId FROM Anomaly a WHERE a.sourceType = :sourceType AND a.sourceId IS NOT NULL")
+    Stream<Long> streamSourceIds(@Param("sourceType") String sourceType);
+
     @Query("SELECT a FROM Anomaly a WHERE DATE(a.detectedAt) = :date")
     List<Anomaly> findTodayAnomalies(@Param("date") LocalDate date);
 }
\ No newline at end of file
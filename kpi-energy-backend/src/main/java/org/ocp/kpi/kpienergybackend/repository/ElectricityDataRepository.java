@@ -1,18 +1,28 @@
 package org.ocp.kpi.kpienergybackend.repository;
 
 import jakarta.transaction.Transactional;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityDataView;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityFeatureRow;
 import org.ocp.kpi.kpienergybackend.dto.ElectricitySummaryDto;
 import org.ocp.kpi.kpienergybackend.entity.ElectricityData;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ElectricityDataRepository extends JpaRepository<ElectricityData, Long> {
     Optional<ElectricityData> findByYearAndMonth(int year, int month);
 
+    // Projection : lecture de la seule table electricity_data
+    Optional<ElectricityDataView> findViewByYearAndMonth(int year, int month);
+
     @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.ElectricitySummaryDto(" +
             "e.year, e.month, " +
             "e.network60kvPeak, e.network60kvPowerFactor, " +
@@ -32,9 +42,66 @@ public interface ElectricityDataRepository extends JpaRepository<ElectricityData
             "e.network22kvPeak, e.network22kvPowerFactor, " +
             "e.network22kvActiveEnergy) " +
             "FROM ElectricityData e " +
-            "WHERE e.year = :year")
+            "WHERE e.year = :year ORDER BY e.month")
     List<ElectricitySummaryDto> findAnnualSummary(@Param("year") int year);
 
+    // Lecture en flux pour le scan d'anomalies : colonnes numériques uniquement, curseur par lots de 500
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.ElectricityFeatureRow(" +
+            "e.id, e.year, e.month, " +
+            "e.network60kvActiveEnergy, e.network60kvReactiveEnergy, e.network60kvPeak, " +
+            "e.network22kvActiveEnergy, e.network22kvReactiveEnergy, e.network22kvPeak, " +
+            "e.network60kvPowerFactor, e.network22kvPowerFactor) " +
+            "FROM ElectricityData e")
+    Stream<ElectricityFeatureRow> streamFeatureRows();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.ElectricityFeatureRow(" +
+            "e.id, e.year, e.month, " +
+            "e.network60kvActiveEnergy, e.network60kvReactiveEnergy, e.network60kvPeak, " +
+            "e.network22kvActiveEnergy, e.network22kvReactiveEnergy, e.network22kvPeak, " +
+            "e.network60kvPowerFactor, e.network22kvPowerFactor) " +
+            "FROM ElectricityData e WHERE e.createdAt > :since OR e.updatedAt > :since")
+    Stream<ElectricityFeatureRow> streamFeatureRowsModifiedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT COUNT(e) FROM ElectricityData e WHERE e.createdAt > :since OR e.updatedAt > :since")
+    long countModifiedSince(@Param("since") LocalDateTime since);
+
+    // Découpage des scans planifiés par année (parts réparties entre les nœuds)
+    @Query("SELECT DISTINCT e.year FROM ElectricityData e ORDER BY e.year")
+    List<Integer> findDistinctYears();
+
+    @Query("SELECT DISTINCT e.year FROM ElectricityData e " +
+            "WHERE e.createdAt > :since OR e.updatedAt > :since ORDER BY e.year")
+    List<Integer> findDistinctYearsModifiedSince(@Param("since") LocalDateTime since);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.ElectricityFeatureRow(" +
+            "e.id, e.year, e.month, " +
+            "e.network60kvActiveEnergy, e.network60kvReactiveEnergy, e.network60kvPeak, " +
+            "e.network22kvActiveEnergy, e.network22kvReactiveEnergy, e.network22kvPeak, " +
+            "e.network60kvPowerFactor, e.network22kvPowerFactor) " +
+            "FROM ElectricityData e WHERE e.year = :year")
+    Stream<ElectricityFeatureRow> streamFeatureRowsForYear(@Param("year") int year);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.ElectricityFeatureRow(" +
+            "e.id, e.year, e.month, " +
+            "e.network60kvActiveEnergy, e.network60kvReactiveEnergy, e.network60kvPeak, " +
+            "e.network22kvActiveEnergy, e.network22kvReactiveEnergy, e.network22kvPeak, " +
+            "e.network60kvPowerFactor, e.network22kvPowerFactor) " +
+            "FROM ElectricityData e WHERE e.year = :year AND (e.createdAt > :since OR e.updatedAt > :since)")
+    Stream<ElectricityFeatureRow> streamFeatureRowsForYearModifiedSince(@Param("year") int year,
+                                                                        @Param("since") LocalDateTime since);
+
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.ElectricityFeatureRow(" +
+            "e.id, e.year, e.month, " +
+            "e.network60kvActiveEnergy, e.network60kvReactiveEnergy, e.network60kvPeak, " +
+            "e.network22kvActiveEnergy, e.network22kvReactiveEnergy, e.network22kvPeak, " +
+            "e.network60kvPowerFactor, e.network22kvPowerFactor) " +
+            "FROM ElectricityData e WHERE e.year = :year AND e.month = :month")
+    Optional<ElectricityFeatureRow> findFeatureRow(@Param("year") int year, @Param("month") int month);
+
     @Transactional
     void deleteByYearAndMonth(int year, int month);
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package org.ocp.kpi.kpienergybackend.repository;
+
+import org.ocp.kpi.kpienergybackend.entity.ElectricityRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ElectricityRollupRepository extends JpaRepository<ElectricityRollup, Long> {
+    Optional<ElectricityRollup> findByPeriodTypeAndYearAndQuarter(String periodType, int year, int quarter);
+
+    List<ElectricityRollup> findByPeriodTypeAndYearOrderByQuarterAsc(String periodType, int year);
+
+    List<ElectricityRollup> findByPeriodTypeOrderByYearAsc(String periodType);
+}
@@ -0,0 +1,35 @@
+package org.ocp.kpi.kpienergybackend.repository;
+
+import jakarta.transaction.Transactional;
+import org.ocp.kpi.kpienergybackend.entity.JobDefinition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface JobDefinitionRepository extends JpaRepository<JobDefinition, String> {
+
+    List<JobDefinition> findByEnabledTrueAndNextRunAtLessThanEqual(LocalDateTime now);
+
+    /**
+     * Réserver une échéance : seul le nœud qui voit encore l'ancienne valeur de nextRunAt l'obtient
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobDefinition d SET d.nextRunAt = :next, d.lastRunAt = :now " +
+            "WHERE d.name = :name AND d.nextRunAt = :expected")
+    int claimDueRun(@Param("name") String name,
+                    @Param("expected") LocalDateTime expected,
+                    @Param("next") LocalDateTime next,
+                    @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobDefinition d SET d.nextRunAt = :next, d.nextAttempt = :attempt WHERE d.name = :name")
+    int reschedule(@Param("name") String name,
+                   @Param("next") LocalDateTime next,
+                   @Param("attempt") int attempt);
+}
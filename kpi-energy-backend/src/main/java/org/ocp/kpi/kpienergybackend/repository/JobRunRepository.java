@@ -0,0 +1,29 @@
+package org.ocp.kpi.kpienergybackend.repository;
+
+import jakarta.transaction.Transactional;
+import org.ocp.kpi.kpienergybackend.entity.JobRun;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface JobRunRepository extends JpaRepository<JobRun, Long> {
+
+    List<JobRun> findByJobNameOrderByStartedAtDesc(String jobName, Pageable pageable);
+
+    // Par tâche : nombre d'exécutions, échecs, durée moyenne et maximale, lignes traitées
+    @Query("SELECT r.jobName, COUNT(r), " +
+            "SUM(CASE WHEN r.status = 'FAILED' THEN 1 ELSE 0 END), " +
+            "AVG(r.durationMs), MAX(r.durationMs), SUM(r.rowsProcessed) " +
+            "FROM JobRun r GROUP BY r.jobName")
+    List<Object[]> summarizeByJob();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM JobRun r WHERE r.startedAt < :before")
+    int deleteStartedBefore(@Param("before") LocalDateTime before);
+}
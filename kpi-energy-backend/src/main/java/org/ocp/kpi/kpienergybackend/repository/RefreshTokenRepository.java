@@ -1,13 +1,23 @@
 package org.ocp.kpi.kpienergybackend.repository;
 
+import jakarta.transaction.Transactional;
 import org.ocp.kpi.kpienergybackend.entity.RefreshToken;
 import org.ocp.kpi.kpienergybackend.entity.Utilisateur;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
     Optional<RefreshToken> findByToken(String token);
     Optional<RefreshToken> findByUtilisateur(Utilisateur utilisateur);
     void deleteByUtilisateur(Utilisateur utilisateur);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiryDate < :now")
+    int deleteExpiredBefore(@Param("now") Instant now);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package org.ocp.kpi.kpienergybackend.repository;
+
+import org.ocp.kpi.kpienergybackend.entity.ScanShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ScanShardRepository extends JpaRepository<ScanShard, Long> {
+
+    // Toutes les parts d'un même run partagent runStartedAt
+    @Query("SELECT s FROM ScanShard s WHERE s.runStartedAt = " +
+            "(SELECT MAX(s2.runStartedAt) FROM ScanShard s2) ORDER BY s.sourceType, s.year")
+    List<ScanShard> findLatestRun();
+
+    long countByRunIdAndStatus(String runId, String status);
+
+    long countByRunIdAndSourceTypeAndStatusNot(String runId, String sourceType, String status);
+
+    // Parts encore à traiter ou en cours sous un bail valide (horloge de la base)
+    @Query("SELECT COUNT(s) FROM ScanShard s WHERE s.sourceType IN :sourceTypes AND " +
+            "(s.status = 'PENDING' OR (s.status = 'RUNNING' AND s.leaseUntil > CURRENT_TIMESTAMP))")
+    long countActive(@Param("sourceTypes") List<String> sourceTypes);
+}
@@ -0,0 +1,7 @@
+package org.ocp.kpi.kpienergybackend.repository;
+
+import org.ocp.kpi.kpienergybackend.entity.ScanWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ScanWatermarkRepository extends JpaRepository<ScanWatermark, String> {
+}
@@ -1,14 +1,74 @@
 package org.ocp.kpi.kpienergybackend.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.ocp.kpi.kpienergybackend.dto.WaterDataView;
+import org.ocp.kpi.kpienergybackend.dto.WaterFeatureRow;
+import org.ocp.kpi.kpienergybackend.dto.WaterSummaryDto;
 import org.ocp.kpi.kpienergybackend.entity.WaterData;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface WaterDataRepository extends JpaRepository<WaterData, Long> {
     Optional<WaterData> findByYearAndMonth(int year, int month);
 
+    // Projection : lecture de la seule table water_data
+    Optional<WaterDataView> findViewByYearAndMonth(int year, int month);
+
     List<WaterData> findByYearOrderByMonthAsc(int year);
     List<WaterData> findByYearBetweenOrderByYearAscMonthAsc(int startYear, int endYear);
+
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.WaterSummaryDto(" +
+            "w.id, w.year, w.month, w.f3bis, w.f3, w.se2, w.se3bis, w.createdAt, w.updatedAt) " +
+            "FROM WaterData w WHERE w.year BETWEEN :startYear AND :endYear ORDER BY w.year, w.month")
+    List<WaterSummaryDto> findSummariesBetween(@Param("startYear") int startYear, @Param("endYear") int endYear);
+
+    // Lecture en flux pour le scan d'anomalies : colonnes numériques uniquement, curseur par lots de 500
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.WaterFeatureRow(" +
+            "w.id, w.year, w.month, w.f3bis, w.f3, w.se2, w.se3bis) " +
+            "FROM WaterData w")
+    Stream<WaterFeatureRow> streamFeatureRows();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.WaterFeatureRow(" +
+            "w.id, w.year, w.month, w.f3bis, w.f3, w.se2, w.se3bis) " +
+            "FROM WaterData w WHERE w.createdAt > :since OR w.updatedAt > :since")
+    Stream<WaterFeatureRow> streamFeatureRowsModifiedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT COUNT(w) FROM WaterData w WHERE w.createdAt > :since OR w.updatedAt > :since")
+    long countModifiedSince(@Param("since") LocalDateTime since);
+
+    // Découpage des scans planifiés par année (parts réparties entre les nœuds)
+    @Query("SELECT DISTINCT w.year FROM WaterData w ORDER BY w.year")
+    List<Integer> findDistinctYears();
+
+    @Query("SELECT DISTINCT w.year FROM WaterData w " +
+            "WHERE w.createdAt > :since OR w.updatedAt > :since ORDER BY w.year")
+    List<Integer> findDistinctYearsModifiedSince(@Param("since") LocalDateTime since);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.WaterFeatureRow(" +
+            "w.id, w.year, w.month, w.f3bis, w.f3, w.se2, w.se3bis) " +
+            "FROM WaterData w WHERE w.year = :year")
+    Stream<WaterFeatureRow> streamFeatureRowsForYear(@Param("year") int year);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.WaterFeatureRow(" +
+            "w.id, w.year, w.month, w.f3bis, w.f3, w.se2, w.se3bis) " +
+            "FROM WaterData w WHERE w.year = :year AND (w.createdAt > :since OR w.updatedAt > :since)")
+    Stream<WaterFeatureRow> streamFeatureRowsForYearModifiedSince(@Param("year") int year,
+                                                                  @Param("since") LocalDateTime since);
+
+    @Query("SELECT new org.ocp.kpi.kpienergybackend.dto.WaterFeatureRow(" +
+            "w.id, w.year, w.month, w.f3bis, w.f3, w.se2, w.se3bis) " +
+            "FROM WaterData w WHERE w.year = :year AND w.month = :month")
+    Optional<WaterFeatureRow> findFeatureRow(@Param("year") int year, @Param("month") int month);
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package org.ocp.kpi.kpienergybackend.repository;
+
+import org.ocp.kpi.kpienergybackend.entity.WaterRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface WaterRollupRepository extends JpaRepository<WaterRollup, Long> {
+    Optional<WaterRollup> findByPeriodTypeAndYearAndQuarter(String periodType, int year, int quarter);
+
+    List<WaterRollup> findByPeriodTypeAndYearOrderByQuarterAsc(String periodType, int year);
+
+    List<WaterRollup> findByPeriodTypeOrderByYearAsc(String periodType);
+}
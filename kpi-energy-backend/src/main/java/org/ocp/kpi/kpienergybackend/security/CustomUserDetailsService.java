@@ -1,5 +1,6 @@
 package org.ocp.kpi.kpienergybackend.security;
 
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
 import org.ocp.kpi.kpienergybackend.entity.Utilisateur;
 import org.ocp.kpi.kpienergybackend.repository.UtilisateurRepository;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,20 +10,46 @@ import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     public static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
 
     private final UtilisateurRepository utilisateurRepository;
+    private final AppConfig appConfig;
+
+    // Comptes chargés à chaque requête authentifiée (filtre JWT) ; invalidés par CacheInvalidationBus
+    private final Map<String, CachedUser> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
-    public CustomUserDetailsService(UtilisateurRepository utilisateurRepository) {
+    public CustomUserDetailsService(UtilisateurRepository utilisateurRepository, AppConfig appConfig) {
         this.utilisateurRepository = utilisateurRepository;
+        this.appConfig = appConfig;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        AppConfig.UserCache config = appConfig.getUserCache();
+        if (config.isEnabled()) {
+            CachedUser cached = cache.get(email);
+            if (cached != null && cached.expiresAtNanos - System.nanoTime() > 0) {
+                hits.increment();
+                return cached.userDetails;
+            }
+            misses.increment();
+        }
+
         logger.debug("Tentative de chargement de l'utilisateur avec email: {}", email);
 
+        long loadGeneration = generation.get();
         Utilisateur utilisateur = utilisateurRepository.findByEmail(email)
                 .orElseThrow(() -> {
                     logger.error("Utilisateur non trouvé avec email: {}", email);
@@ -30,6 +57,49 @@ public class CustomUserDetailsService implements UserDetailsService {
                 });
 
         logger.debug("Utilisateur trouvé: {}", utilisateur.getEmail());
-        return new CustomUserDetails(utilisateur);
+        CustomUserDetails userDetails = new CustomUserDetails(utilisateur);
+        if (config.isEnabled() && cache.size() >= config.getMaxEntries()) {
+            long now = System.nanoTime();
+            cache.values().removeIf(cached -> cached.expiresAtNanos - now <= 0);
+        }
+        if (config.isEnabled() && cache.size() < config.getMaxEntries()) {
+            cache.put(email, new CachedUser(userDetails,
+                    System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getTtlSeconds())));
+            // Invalidation survenue pendant la lecture : l'entrée est peut-être périmée
+            if (generation.get() != loadGeneration) {
+                cache.remove(email);
+            }
+        }
+        return userDetails;
+    }
+
+    /**
+     * Vider le cache des comptes (un changement d'email ou de rôle peut concerner n'importe quelle clé)
+     */
+    public void evictAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    public Map<String, Object> getCacheStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", appConfig.getUserCache().isEnabled());
+        stats.put("size", cache.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hit_ratio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        return stats;
+    }
+
+    private static final class CachedUser {
+        private final CustomUserDetails userDetails;
+        private final long expiresAtNanos;
+
+        private CachedUser(CustomUserDetails userDetails, long expiresAtNanos) {
+            this.userDetails = userDetails;
+            this.expiresAtNanos = expiresAtNanos;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limiteur de concurrence AIMD : la limite augmente de 1/limite par appel rapide et réussi,
+ * et est multipliée par backoffRatio dès qu'un appel échoue ou dépasse la latence cible.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private long rejected;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long targetLatencyMs, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * Attendre une place libre ; false si le délai expire
+     */
+    public synchronized boolean acquire(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (inFlight >= (int) limit) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                rejected++;
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void release(long latencyNanos, boolean success) {
+        inFlight--;
+        if (!success || latencyNanos > targetLatencyNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limit", (int) limit);
+        stats.put("min_limit", minLimit);
+        stats.put("max_limit", maxLimit);
+        stats.put("in_flight", inFlight);
+        stats.put("rejected", rejected);
+        stats.put("target_latency_ms", TimeUnit.NANOSECONDS.toMillis(targetLatencyNanos));
+        return stats;
+    }
+}
@@ -2,156 +2,354 @@ package org.ocp.kpi.kpienergybackend.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.dto.AnomalyFeatureRow;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityFeatureRow;
+import org.ocp.kpi.kpienergybackend.dto.WaterFeatureRow;
 import org.ocp.kpi.kpienergybackend.entity.Anomaly;
-import org.ocp.kpi.kpienergybackend.entity.ElectricityData;
-import org.ocp.kpi.kpienergybackend.entity.WaterData;
+import org.ocp.kpi.kpienergybackend.entity.ScanWatermark;
 import org.ocp.kpi.kpienergybackend.repository.AnomalyRepository;
 import org.ocp.kpi.kpienergybackend.repository.ElectricityDataRepository;
+import org.ocp.kpi.kpienergybackend.repository.ScanWatermarkRepository;
 import org.ocp.kpi.kpienergybackend.repository.WaterDataRepository;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class AnomalyDetectionService {
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyDetectionService.class);
+
+    // Le doublon éventuel (scan concurrent) est écarté par la contrainte uk_anomalies_source ;
+    // cible explicite : sans la contrainte, l'insertion échoue au lieu de créer des doublons
+    private static final String INSERT_ANOMALY_SQL =
+            "INSERT INTO anomalies (source_type, source_id, year, month, description, anomaly_type, " +
+            "severity_score, detected_at, resolved) VALUES (?, ?, ?, ?, ?, ?, ?, ?, false) " +
+            "ON CONFLICT (source_type, source_id) DO NOTHING";
+
+    // Auteur des résolutions automatiques (mois corrigé à la saisie)
+    private static final String SYSTEM_RESOLVER = "system";
+
+    // Recouvrement du filigrane : couvre les lignes horodatées avant le scan mais validées pendant
+    private static final Duration WATERMARK_OVERLAP = Duration.ofMinutes(5);
+
     private final ElectricityDataRepository electricityRepo;
     private final WaterDataRepository waterRepo;
     private final AnomalyRepository anomalyRepo;
-    private final RestTemplate restTemplate;
+    private final ScanWatermarkRepository watermarkRepo;
+    private final AnomalyScorer anomalyScorer;
+    private final MlClient mlClient;
+    private final AnomalyRequestCoalescer requestCoalescer;
+    private final AnomalyResultCache resultCache;
+    private final AppConfig appConfig;
     private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Scanner les données électriques, en flux et par lots envoyés au scoreur.
+     * Sans fullRescan, seules les lignes créées ou modifiées depuis le dernier scan réussi sont lues.
+     * Retourne false si des lignes n'ont pas été évaluées par le modèle (service ML en échec,
+     * modèle pas encore entraîné, scan annulé).
+     */
+    public boolean scanElectricityData(boolean fullRescan, ScanProgress progress) {
+        LocalDateTime scanStartedAt = LocalDateTime.now();
+        LocalDateTime since = fullRescan ? null : findWatermark("ELECTRICITY");
 
-    // URL du service Python ML (à configurer dans application.properties)
-    private final String mlServiceUrl = "http://localhost:5000";
+        Boolean complete = transactionTemplate.execute(status -> {
+            progress.addExpectedRows(since == null
+                    ? electricityRepo.count()
+                    : electricityRepo.countModifiedSince(since.minus(WATERMARK_OVERLAP)));
+            try (Stream<ElectricityFeatureRow> rows = since == null
+                    ? electricityRepo.streamFeatureRows()
+                    : electricityRepo.streamFeatureRowsModifiedSince(since.minus(WATERMARK_OVERLAP))) {
+                return scanRows("ELECTRICITY", rows, progress);
+            }
+        });
+
+        // Le filigrane n'avance que si tous les lots ont été évalués
+        if (Boolean.TRUE.equals(complete)) {
+            saveWatermark("ELECTRICITY", scanStartedAt);
+        }
+        return Boolean.TRUE.equals(complete);
+    }
 
     /**
-     * Scanner toutes les données pour détecter les anomalies
+     * Scanner les données d'eau, en flux et par lots envoyés au scoreur
      */
-    @Scheduled(cron = "0 0 2 * * ?") // Exécution quotidienne à 2h du matin
-    public void scanAllDataForAnomalies() {
-        scanElectricityData();
-        scanWaterData();
+    public boolean scanWaterData(boolean fullRescan, ScanProgress progress) {
+        LocalDateTime scanStartedAt = LocalDateTime.now();
+        LocalDateTime since = fullRescan ? null : findWatermark("WATER");
+
+        Boolean complete = transactionTemplate.execute(status -> {
+            progress.addExpectedRows(since == null
+                    ? waterRepo.count()
+                    : waterRepo.countModifiedSince(since.minus(WATERMARK_OVERLAP)));
+            try (Stream<WaterFeatureRow> rows = since == null
+                    ? waterRepo.streamFeatureRows()
+                    : waterRepo.streamFeatureRowsModifiedSince(since.minus(WATERMARK_OVERLAP))) {
+                return scanRows("WATER", rows, progress);
+            }
+        });
+
+        if (Boolean.TRUE.equals(complete)) {
+            saveWatermark("WATER", scanStartedAt);
+        }
+        return Boolean.TRUE.equals(complete);
     }
 
     /**
-     * Scanner les données électriques
+     * Scanner une année d'un type de source (part d'un scan réparti entre les nœuds).
+     * Le filigrane n'est pas modifié : il avance quand toutes les parts du run sont terminées.
      */
-    public void scanElectricityData() {
-        List<ElectricityData> allData = electricityRepo.findAll();
-
-        for (ElectricityData data : allData) {
-            // Préparer les données pour le modèle ML
-            Map<String, Object> mlInput = new HashMap<>();
-            mlInput.put("data_type", "electricity");
-            mlInput.put("year", data.getYear());
-            mlInput.put("month", data.getMonth());
-            mlInput.put("network60kv_active_energy", data.getNetwork60kvActiveEnergy());
-            mlInput.put("network60kv_reactive_energy", data.getNetwork60kvReactiveEnergy());
-            mlInput.put("network60kv_peak", data.getNetwork60kvPeak());
-            mlInput.put("network22kv_active_energy", data.getNetwork22kvActiveEnergy());
-            mlInput.put("network22kv_reactive_energy", data.getNetwork22kvReactiveEnergy());
-            mlInput.put("network22kv_peak", data.getNetwork22kvPeak());
-            mlInput.put("network60kv_power_factor", data.getNetwork60kvPowerFactor());
-            mlInput.put("network22kv_power_factor", data.getNetwork22kvPowerFactor());
-
-            try {
-                // Appeler le service ML
-                Map<String, Object> response = restTemplate.postForObject(
-                        mlServiceUrl + "/detect-anomaly",
-                        mlInput,
-                        Map.class
-                );
-
-                if (response != null && (Boolean) response.get("is_anomaly")) {
-                    saveAnomaly("ELECTRICITY", data.getId(), data.getYear(), data.getMonth(),
-                            response, "Détection automatique");
-                }
-            } catch (Exception e) {
-                // Log l'erreur mais continue
-                System.err.println("Erreur lors de la détection d'anomalie: " + e.getMessage());
+    public boolean scanYear(String sourceType, int year, LocalDateTime since, ScanProgress progress) {
+        Boolean complete = transactionTemplate.execute(status -> {
+            LocalDateTime from = since != null ? since.minus(WATERMARK_OVERLAP) : null;
+            try (Stream<? extends AnomalyFeatureRow> rows = "WATER".equals(sourceType)
+                    ? (from == null ? waterRepo.streamFeatureRowsForYear(year)
+                                    : waterRepo.streamFeatureRowsForYearModifiedSince(year, from))
+                    : (from == null ? electricityRepo.streamFeatureRowsForYear(year)
+                                    : electricityRepo.streamFeatureRowsForYearModifiedSince(year, from))) {
+                return scanRows(sourceType, rows, progress);
+            }
+        });
+        return Boolean.TRUE.equals(complete);
+    }
+
+    /**
+     * Années à scanner pour un type de source (depuis since, ou toutes)
+     */
+    public List<Integer> findYearsToScan(String sourceType, LocalDateTime since) {
+        LocalDateTime from = since != null ? since.minus(WATERMARK_OVERLAP) : null;
+        if ("WATER".equals(sourceType)) {
+            return from == null ? waterRepo.findDistinctYears() : waterRepo.findDistinctYearsModifiedSince(from);
+        }
+        return from == null ? electricityRepo.findDistinctYears() : electricityRepo.findDistinctYearsModifiedSince(from);
+    }
+
+    /**
+     * Évaluer un seul mois (détection à la saisie) ; false si le scoreur n'a pas pu répondre.
+     * Un mois déjà signalé est réévalué : ses valeurs viennent d'être modifiées.
+     */
+    public boolean scanMonth(String sourceType, int year, int month) {
+        Boolean complete = transactionTemplate.execute(status -> {
+            Optional<? extends AnomalyFeatureRow> row = "WATER".equals(sourceType)
+                    ? waterRepo.findFeatureRow(year, month)
+                    : electricityRepo.findFeatureRow(year, month);
+            if (row.isEmpty()) {
+                return true; // Mois supprimé entre-temps
+            }
+            List<Anomaly> reported = anomalyRepo.findBySourceTypeAndSourceId(sourceType, row.get().getId());
+            if (reported.isEmpty()) {
+                return scoreBatch(sourceType, List.of(row.get()), new LongHashSet(1), new ScanProgress());
+            }
+            return rescoreReported(sourceType, row.get(), reported.get(0));
+        });
+        return Boolean.TRUE.equals(complete);
+    }
+
+    /**
+     * Réévaluer un mois déjà signalé : l'anomalie ouverte est mise à jour s'il reste anormal,
+     * résolue par le système sinon. Une réponse de repli ne résout rien, et une anomalie
+     * déjà résolue n'est pas modifiée.
+     */
+    private boolean rescoreReported(String sourceType, AnomalyFeatureRow row, Anomaly anomaly) {
+        Map<String, Object> response;
+        try {
+            response = anomalyScorer.scoreBatch(List.of(row.toMlInput())).get(0);
+        } catch (Exception e) {
+            logger.error("Erreur lors de la réévaluation de {} {}: {}", sourceType, row.getId(), e.getMessage());
+            return false;
+        }
+        if (response == null) {
+            return false;
+        }
+        if (!Boolean.TRUE.equals(anomaly.getResolved())) {
+            if (isAnomaly(response)) {
+                anomaly.setAnomalyType((String) response.get("anomaly_type"));
+                anomaly.setSeverityScore(((Number) response.get("anomaly_score")).doubleValue());
+                anomaly.setDescription(generateAnomalyDescription(sourceType, response));
+                anomaly.setDetectedAt(LocalDateTime.now());
+                anomalyRepo.save(anomaly);
+            } else if (!isDegraded(response)) {
+                anomaly.setResolved(true);
+                anomaly.setResolvedAt(LocalDateTime.now());
+                anomaly.setResolvedBy(SYSTEM_RESOLVER);
+                anomalyRepo.save(anomaly);
+                logger.info("Anomalie {} résolue : {} {} corrigé", anomaly.getId(), sourceType, row.getId());
             }
         }
+        return !isDegraded(response);
     }
 
     /**
-     * Scanner les données d'eau
+     * Parcourir le flux par tranches de taille fixe : seule la tranche courante est en mémoire.
+     * Une tranche couvre app.ml.concurrency lots pour garder autant de requêtes ML en vol.
+     * Les sources déjà signalées sont chargées une fois au début du scan.
+     * Une annulation est prise en compte entre deux tranches.
      */
-    public void scanWaterData() {
-        List<WaterData> allData = waterRepo.findAll();
-
-        for (WaterData data : allData) {
-            Map<String, Object> mlInput = new HashMap<>();
-            mlInput.put("data_type", "water");
-            mlInput.put("year", data.getYear());
-            mlInput.put("month", data.getMonth());
-            mlInput.put("f3bis", data.getF3bis());
-            mlInput.put("f3", data.getF3());
-            mlInput.put("se2", data.getSe2());
-            mlInput.put("se3bis", data.getSe3bis());
-
-            try {
-                Map<String, Object> response = restTemplate.postForObject(
-                        mlServiceUrl + "/detect-anomaly",
-                        mlInput,
-                        Map.class
-                );
-
-                if (response != null && (Boolean) response.get("is_anomaly")) {
-                    saveAnomaly("WATER", data.getId(), data.getYear(), data.getMonth(),
-                            response, "Détection automatique");
+    private boolean scanRows(String sourceType, Stream<? extends AnomalyFeatureRow> rows, ScanProgress progress) {
+        AppConfig.Ml config = appConfig.getMl();
+        int batchSize = Math.max(1, config.getBatchSize()) * Math.max(1, config.getConcurrency());
+        List<AnomalyFeatureRow> batch = new ArrayList<>(batchSize);
+        LongHashSet knownSourceIds = loadKnownSourceIds(sourceType);
+        boolean complete = true;
+
+        Iterator<? extends AnomalyFeatureRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            if (progress.isCancelled()) {
+                logger.info("Scan {} annulé après {} lignes", sourceType, progress.getScannedRows());
+                return false;
+            }
+            batch.add(iterator.next());
+            if (batch.size() == batchSize || !iterator.hasNext()) {
+                complete &= scoreBatch(sourceType, batch, knownSourceIds, progress);
+                progress.addScannedRows(batch.size());
+                batch.clear();
+            }
+        }
+        return complete;
+    }
+
+    private LongHashSet loadKnownSourceIds(String sourceType) {
+        LongHashSet sourceIds = new LongHashSet(1024);
+        try (Stream<Long> ids = anomalyRepo.streamSourceIds(sourceType)) {
+            ids.forEach(sourceIds::add);
+        }
+        logger.debug("{} sources {} déjà signalées", sourceIds.size(), sourceType);
+        return sourceIds;
+    }
+
+    private boolean scoreBatch(String sourceType, List<AnomalyFeatureRow> batch,
+                               LongHashSet knownSourceIds, ScanProgress progress) {
+        List<Map<String, Object>> mlInputs = new ArrayList<>(batch.size());
+        for (AnomalyFeatureRow row : batch) {
+            mlInputs.add(row.toMlInput());
+        }
+
+        try {
+            List<Map<String, Object>> responses = anomalyScorer.scoreBatch(mlInputs);
+            boolean complete = true;
+            List<Object[]> newAnomalies = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                AnomalyFeatureRow row = batch.get(i);
+                Map<String, Object> response = responses.get(i);
+                // Réponse de repli (règles seules) : les anomalies certaines sont gardées,
+                // mais la ligne devra repasser devant le modèle au prochain scan
+                if (response == null || isDegraded(response)) {
+                    complete = false;
+                }
+                if (isAnomaly(response) && knownSourceIds.add(row.getId())) {
+                    newAnomalies.add(anomalyInsertRow(sourceType, row, response));
                 }
-            } catch (Exception e) {
-                System.err.println("Erreur lors de la détection d'anomalie: " + e.getMessage());
             }
+            insertAnomalies(newAnomalies);
+            progress.addAnomalies(newAnomalies.size());
+            return complete;
+        } catch (Exception e) {
+            // Log l'erreur mais continue avec le lot suivant
+            logger.error("Erreur lors de la détection d'anomalie ({}, {} points): {}",
+                    sourceType, batch.size(), e.getMessage());
+            return false;
         }
     }
 
+    public LocalDateTime findWatermark(String sourceType) {
+        return watermarkRepo.findById(sourceType)
+                .map(ScanWatermark::getLastScannedAt)
+                .orElse(null);
+    }
+
+    public void saveWatermark(String sourceType, LocalDateTime scannedAt) {
+        watermarkRepo.save(ScanWatermark.builder()
+                .sourceType(sourceType)
+                .lastScannedAt(scannedAt)
+                .build());
+    }
+
     /**
-     * Vérifier une seule donnée (pour validation en temps réel)
+     * Vérifier une seule donnée (pour validation en temps réel), regroupée en micro-lots
+     * avec les validations concurrentes
      */
     public boolean checkSingleDataPoint(String dataType, Map<String, Object> data) {
         try {
-            Map<String, Object> response = restTemplate.postForObject(
-                    mlServiceUrl + "/detect-anomaly",
-                    data,
-                    Map.class
-            );
-
-            return response != null && (Boolean) response.get("is_anomaly");
+            // Un point déjà validé avec le même modèle ne repart pas vers le scoreur
+            String key = resultCache.keyOf(data);
+            Map<String, Object> result = resultCache.get(key);
+            if (result == null) {
+                result = requestCoalescer.score(data);
+                resultCache.put(key, result);
+            }
+            return isAnomaly(result);
         } catch (Exception e) {
+            logger.warn("Validation impossible pour {}: {}", dataType, e.getMessage());
             return false;
         }
     }
 
     /**
-     * Sauvegarder une anomalie détectée
+     * État du client ML : disjoncteur, limiteur, latences, erreurs, pool de connexions et cache de résultats
      */
-    private void saveAnomaly(String sourceType, Long sourceId, int year, int month,
-                             Map<String, Object> mlResponse, String detectedBy) {
-        // Vérifier si une anomalie similaire existe déjà
-        List<Anomaly> existingAnomalies = anomalyRepo.findBySourceTypeAndSourceId(sourceType, sourceId);
-        if (!existingAnomalies.isEmpty()) {
-            return; // Anomalie déjà enregistrée
-        }
+    public Map<String, Object> getScoringStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("scorer", appConfig.getMl().getScorer());
+        status.put("degraded", mlClient.getCircuitBreaker().getState() != CircuitBreaker.State.CLOSED);
+        status.put("circuit_breaker", mlClient.getCircuitBreaker().snapshot());
+        status.put("concurrency_limiter", mlClient.getLimiter().snapshot());
+        status.put("client", mlClient.getMetrics().snapshot());
+        status.put("validation_coalescer", requestCoalescer.getStats());
+        status.put("result_cache", resultCache.getStats());
+        status.put("connection_pool", mlClient.getPoolStats());
+        return status;
+    }
 
-        Anomaly anomaly = new Anomaly();
-        anomaly.setSourceType(sourceType);
-        anomaly.setSourceId(sourceId);
-        anomaly.setYear(year);
-        anomaly.setMonth(month);
-        anomaly.setSeverityScore((Double) mlResponse.get("anomaly_score"));
-        anomaly.setAnomalyType((String) mlResponse.get("anomaly_type"));
+    private boolean isAnomaly(Map<String, Object> response) {
+        return response != null && Boolean.TRUE.equals(response.get("is_anomaly"));
+    }
 
-        // Générer une description basée sur le type d'anomalie
-        String description = generateAnomalyDescription(sourceType, mlResponse);
-        anomaly.setDescription(description);
+    private boolean isDegraded(Map<String, Object> response) {
+        return Boolean.TRUE.equals(response.get("degraded"));
+    }
 
-        anomalyRepo.save(anomaly);
+    /**
+     * Paramètres d'insertion d'une anomalie détectée
+     */
+    private Object[] anomalyInsertRow(String sourceType, AnomalyFeatureRow row, Map<String, Object> mlResponse) {
+        return new Object[]{
+                sourceType,
+                row.getId(),
+                row.getYear(),
+                row.getMonth(),
+                // Générer une description basée sur le type d'anomalie
+                generateAnomalyDescription(sourceType, mlResponse),
+                mlResponse.get("anomaly_type"),
+                ((Number) mlResponse.get("anomaly_score")).doubleValue(),
+                LocalDateTime.now()
+        };
+    }
+
+    /**
+     * Enregistrer les nouvelles anomalies d'une tranche en un seul lot JDBC
+     */
+    private void insertAnomalies(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ANOMALY_SQL, rows);
+        logger.debug("{} anomalies enregistrées", rows.size());
     }
 
     /**
@@ -159,7 +357,7 @@ public class AnomalyDetectionService {
      */
     private String generateAnomalyDescription(String sourceType, Map<String, Object> mlResponse) {
         String anomalyType = (String) mlResponse.get("anomaly_type");
-        Double score = (Double) mlResponse.get("anomaly_score");
+        Double score = ((Number) mlResponse.get("anomaly_score")).doubleValue();
 
         switch (anomalyType) {
             case "DATA_ENTRY_ERROR":
@@ -0,0 +1,186 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Regroupe les validations unitaires concurrentes (/api/anomalies/validate-data) en micro-lots :
+ * les demandes arrivées pendant app.ml.coalescer.window-ms (ou jusqu'à max-batch-size) partent
+ * en un seul appel scoreBatch, puis chaque appelant reçoit son propre résultat.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnomalyRequestCoalescer {
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyRequestCoalescer.class);
+
+    private final AnomalyScorer anomalyScorer;
+    private final AppConfig appConfig;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private BlockingQueue<PendingRequest> queue;
+    private ExecutorService dispatchExecutor;
+    private Thread collector;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        AppConfig.Coalescer config = appConfig.getMl().getCoalescer();
+        if (!config.isEnabled()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+
+        // Plusieurs lots peuvent être en cours ; au-delà, le collecteur évalue lui-même (contre-pression)
+        AtomicInteger threadNumber = new AtomicInteger();
+        dispatchExecutor = new ThreadPoolExecutor(config.getDispatchThreads(), config.getDispatchThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(config.getDispatchThreads()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "anomaly-coalescer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        running = true;
+        collector = new Thread(this::collectLoop, "anomaly-coalescer-collector");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (collector != null) {
+            collector.interrupt();
+            dispatchExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Évaluer un point, regroupé avec les demandes concurrentes
+     */
+    public Map<String, Object> score(Map<String, Object> input) throws Exception {
+        AppConfig.Ml config = appConfig.getMl();
+        if (!running) {
+            return anomalyScorer.score(input);
+        }
+
+        PendingRequest pending = new PendingRequest(input);
+        if (!queue.offer(pending)) {
+            // File pleine : pas de regroupement pour cette demande
+            rejected.increment();
+            return anomalyScorer.score(input);
+        }
+        requests.increment();
+
+        long timeoutMs = config.getCoalescer().getWindowMs() + config.getConnectTimeoutMs() + config.getReadTimeoutMs();
+        try {
+            return pending.future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            pending.future.cancel(false);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", running);
+        stats.put("requests", requests.sum());
+        stats.put("batches", batchCount);
+        stats.put("avg_batch_size", batchCount == 0 ? 0.0 : (double) requests.sum() / batchCount);
+        stats.put("queued", queue != null ? queue.size() : 0);
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    private void collectLoop() {
+        AppConfig.Coalescer config = appConfig.getMl().getCoalescer();
+        while (running) {
+            try {
+                // Le premier point ouvre la fenêtre ; on attend les suivants jusqu'à l'échéance ou au lot plein
+                PendingRequest first = queue.take();
+                List<PendingRequest> batch = new ArrayList<>(config.getMaxBatchSize());
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getWindowMs());
+                while (batch.size() < config.getMaxBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingRequest next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                batches.increment();
+                dispatchExecutor.execute(() -> dispatch(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Erreur du regroupement des validations: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void dispatch(List<PendingRequest> batch) {
+        List<Map<String, Object>> inputs = new ArrayList<>(batch.size());
+        for (PendingRequest pending : batch) {
+            inputs.add(pending.input);
+        }
+
+        List<Map<String, Object>> results;
+        try {
+            results = anomalyScorer.scoreBatch(inputs);
+        } catch (RuntimeException e) {
+            results = null;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRequest pending = batch.get(i);
+            if (pending.future.isDone()) {
+                continue;
+            }
+            Map<String, Object> result = results != null ? results.get(i) : null;
+            try {
+                // Point non évalué par le lot : nouvel essai unitaire (avec repli éventuel du scoreur)
+                pending.future.complete(result != null ? result : anomalyScorer.score(pending.input));
+            } catch (RuntimeException e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class PendingRequest {
+        private final Map<String, Object> input;
+        private final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+
+        private PendingRequest(Map<String, Object> input) {
+            this.input = input;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache borné (LRU + durée de vie) des résultats de validation unitaire.
+ * La clé est une empreinte de la forme canonique du point : data_type puis features numériques
+ * triées par nom ; l'année et le mois, ignorés par le scoreur, n'en font pas partie.
+ * Chaque entrée porte la version du modèle qui l'a produite : un changement de version la rend invalide.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnomalyResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyResultCache.class);
+
+    private static final Set<String> NON_FEATURE_KEYS = Set.of("data_type", "year", "month");
+
+    private final AnomalyScorer anomalyScorer;
+    private final AppConfig appConfig;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private final LinkedHashMap<String, CachedResult> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            if (size() > appConfig.getMl().getResultCache().getMaxEntries()) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+    private String currentVersion;
+
+    /**
+     * Clé canonique d'un point
+     */
+    public String keyOf(Map<String, Object> input) {
+        StringBuilder canonical = new StringBuilder(256);
+        canonical.append(input.get("data_type"));
+
+        Map<String, Object> sorted = new TreeMap<>(input);
+        for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+            if (NON_FEATURE_KEYS.contains(entry.getKey()) || !(entry.getValue() instanceof Number number)) {
+                continue;
+            }
+            // 1, 1.0 et -0.0 désignent la même valeur
+            double value = number.doubleValue();
+            canonical.append('|').append(entry.getKey()).append('=').append(value == 0.0 ? 0.0 : value);
+        }
+        return digest(canonical.toString());
+    }
+
+    /**
+     * Résultat en cache pour cette clé, ou null (absent, expiré ou produit par un autre modèle)
+     */
+    public Map<String, Object> get(String key) {
+        if (!appConfig.getMl().getResultCache().isEnabled()) {
+            return null;
+        }
+        String version = anomalyScorer.getModelVersion();
+        synchronized (this) {
+            checkVersion(version);
+            CachedResult cached = entries.get(key);
+            if (cached == null) {
+                misses.increment();
+                return null;
+            }
+            if (cached.expiresAtNanos - System.nanoTime() < 0 || !cached.modelVersion.equals(version)) {
+                entries.remove(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return cached.result;
+        }
+    }
+
+    /**
+     * Mémoriser un résultat ; les réponses de repli (règles locales) ne sont pas conservées
+     */
+    public void put(String key, Map<String, Object> result) {
+        AppConfig.ResultCache config = appConfig.getMl().getResultCache();
+        if (!config.isEnabled() || result == null || Boolean.TRUE.equals(result.get("degraded"))) {
+            return;
+        }
+        String version = anomalyScorer.getModelVersion();
+        long expiresAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getTtlSeconds());
+        CachedResult cached = new CachedResult(Collections.unmodifiableMap(new HashMap<>(result)), version, expiresAt);
+        synchronized (this) {
+            checkVersion(version);
+            entries.put(key, cached);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", appConfig.getMl().getResultCache().isEnabled());
+        synchronized (this) {
+            stats.put("size", entries.size());
+            stats.put("model_version", currentVersion);
+        }
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hit_ratio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("expirations", expirations.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private void checkVersion(String version) {
+        if (!version.equals(currentVersion)) {
+            if (currentVersion != null && !entries.isEmpty()) {
+                logger.info("Modèle {} -> {} : {} résultats en cache invalidés", currentVersion, version, entries.size());
+                invalidations.increment();
+            }
+            entries.clear();
+            currentVersion = version;
+        }
+    }
+
+    private static String digest(String canonical) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private static final class CachedResult {
+        private final Map<String, Object> result;
+        private final String modelVersion;
+        private final long expiresAtNanos;
+
+        private CachedResult(Map<String, Object> result, String modelVersion, long expiresAtNanos) {
+            this.result = result;
+            this.modelVersion = modelVersion;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
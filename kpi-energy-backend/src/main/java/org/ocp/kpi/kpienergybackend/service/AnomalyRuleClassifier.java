@@ -0,0 +1,104 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Règles de classification des anomalies, reprises de classify_electricity_anomaly /
+ * classify_water_anomaly du service Python (ml-service/app.py).
+ */
+public final class AnomalyRuleClassifier {
+
+    public static final String GENERAL_ANOMALY = "GENERAL_ANOMALY";
+
+    private AnomalyRuleClassifier() {
+    }
+
+    /**
+     * Résultat complet (is_anomaly / anomaly_score / anomaly_type) à partir des seules règles
+     */
+    public static Map<String, Object> score(Map<String, Object> input) {
+        String anomalyType = "water".equals(input.get("data_type"))
+                ? classifyWater(input, 0.0)
+                : classifyElectricity(input, 0.0);
+        boolean isAnomaly = !GENERAL_ANOMALY.equals(anomalyType);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("is_anomaly", isAnomaly);
+        result.put("anomaly_score", isAnomaly ? -1.0 : 0.0);
+        result.put("anomaly_type", anomalyType);
+        return result;
+    }
+
+    public static String classifyElectricity(Map<String, Object> data, double anomalyScore) {
+        double powerFactor60 = value(data, "network60kv_power_factor", 1);
+        double powerFactor22 = value(data, "network22kv_power_factor", 1);
+
+        if (powerFactor60 < 0.85 || powerFactor22 < 0.75) {
+            return "LOW_POWER_FACTOR";
+        }
+
+        double activeEnergy60 = value(data, "network60kv_active_energy", 0);
+        double peak60 = value(data, "network60kv_peak", 0);
+        if (peak60 > 0 && activeEnergy60 / peak60 < 500) {
+            return "CONSUMPTION_SPIKE";
+        }
+
+        if (activeEnergy60 == 0 || value(data, "network22kv_active_energy", 0) == 0) {
+            return "DATA_ENTRY_ERROR";
+        }
+
+        if (anomalyScore < -0.5) {
+            return "SEVERE_ANOMALY";
+        } else if (anomalyScore < -0.2) {
+            return "MODERATE_ANOMALY";
+        }
+        return GENERAL_ANOMALY;
+    }
+
+    public static String classifyWater(Map<String, Object> data, double anomalyScore) {
+        double f3bis = value(data, "f3bis", 0);
+        double f3 = value(data, "f3", 0);
+        double se2 = value(data, "se2", 0);
+        double se3bis = value(data, "se3bis", 0);
+
+        if (f3bis == 0 || f3 == 0 || se2 == 0 || se3bis == 0) {
+            return "DATA_ENTRY_ERROR";
+        }
+
+        double total = f3bis + f3 + se2 + se3bis;
+        if (total > 500000) {
+            return "WATER_LEAK";
+        }
+
+        if (f3bis > 0 && f3 / f3bis > 2.0) {
+            return "PRODUCTION_ISSUE";
+        }
+
+        if (total < 50000) {
+            return "LOW_CONSUMPTION";
+        }
+
+        if (anomalyScore < -0.5) {
+            return "SEVERE_WATER_ANOMALY";
+        } else if (anomalyScore < -0.2) {
+            return "MODERATE_WATER_ANOMALY";
+        }
+        return GENERAL_ANOMALY;
+    }
+
+    public static double value(Map<String, Object> data, String key, double defaultValue) {
+        Object value = data.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+}
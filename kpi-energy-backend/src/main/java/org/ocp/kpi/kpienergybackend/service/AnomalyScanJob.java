@@ -0,0 +1,41 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scan d'anomalies incrémental nocturne : planifie les parts du run puis en traite sa part ;
+ * les autres nœuds réservent les parts restantes.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnomalyScanJob implements BackgroundJob {
+    private final ScanShardService scanShardService;
+
+    @Override
+    public String getName() {
+        return "anomaly-nightly-scan";
+    }
+
+    @Override
+    public String getDefaultCron() {
+        return "0 0 2 * * ?"; // Exécution quotidienne à 2h du matin
+    }
+
+    @Override
+    public String getDefaultWindow() {
+        return "00:00-06:00";
+    }
+
+    @Override
+    public long run() {
+        String runId = scanShardService.planRun(false);
+        long scannedRows = scanShardService.claimAndRunShards();
+        long failedShards = scanShardService.countFailedShards(runId);
+        if (failedShards > 0) {
+            // Le filigrane n'a pas avancé : le nouvel essai reprend les mêmes lignes
+            throw new IllegalStateException(failedShards + " parts du run " + runId + " en échec");
+        }
+        return scannedRows;
+    }
+}
@@ -0,0 +1,33 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moteur de score des anomalies.
+ * Chaque entrée contient "data_type" et les features numériques ; chaque résultat
+ * contient "is_anomaly", "anomaly_score" et "anomaly_type".
+ */
+public interface AnomalyScorer {
+
+    /**
+     * Évaluer un lot de points (résultats dans le même ordre que les entrées,
+     * null pour un point qui n'a pas pu être évalué)
+     */
+    List<Map<String, Object>> scoreBatch(List<Map<String, Object>> inputs);
+
+    /**
+     * Évaluer un seul point
+     */
+    default Map<String, Object> score(Map<String, Object> input) {
+        List<Map<String, Object>> results = scoreBatch(List.of(input));
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * Version du modèle actif : un changement invalide les résultats mis en cache
+     */
+    default String getModelVersion() {
+        return getClass().getSimpleName();
+    }
+}
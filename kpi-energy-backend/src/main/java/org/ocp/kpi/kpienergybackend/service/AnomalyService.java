@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +16,7 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AnomalyService {
     private final AnomalyRepository anomalyRepository;
+    private final SingleFlight singleFlight;
 
     public List<Anomaly> getAllAnomalies() {
         return anomalyRepository.findAll();
@@ -41,6 +43,10 @@ public class AnomalyService {
     }
 
     public Map<String, Object> getAnomalyStatistics() {
+        return singleFlight.execute("anomaly.statistics", "", this::loadAnomalyStatistics);
+    }
+
+    private Map<String, Object> loadAnomalyStatistics() {
         Long totalActive = anomalyRepository.countByResolvedFalse();
         List<Anomaly> critical = getCriticalAnomalies(0.7);
 
@@ -49,7 +55,8 @@ public class AnomalyService {
         stats.put("critical_anomalies", critical.size());
         stats.put("last_detection", getLastAnomalyDate());
 
-        return stats;
+        // Partagé entre les appelants regroupés
+        return Collections.unmodifiableMap(stats);
     }
 
     private String getLastAnomalyDate() {
@@ -0,0 +1,24 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+/**
+ * Tâche de fond exécutée par JobSchedulerService.
+ * Les valeurs par défaut servent à créer la définition persistante au premier démarrage.
+ */
+public interface BackgroundJob {
+
+    String getName();
+
+    String getDefaultCron();
+
+    /**
+     * Exécuter la tâche ; retourne le nombre de lignes traitées
+     */
+    long run() throws Exception;
+
+    /**
+     * Fenêtre horaire par défaut ("HH:mm-HH:mm"), null pour aucune restriction
+     */
+    default String getDefaultWindow() {
+        return null;
+    }
+}
@@ -0,0 +1,221 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.event.CacheInvalidationEvent;
+import org.ocp.kpi.kpienergybackend.event.KpiDataChangedEvent;
+import org.ocp.kpi.kpienergybackend.security.CustomUserDetailsService;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cohérence des caches locaux entre instances via PostgreSQL LISTEN/NOTIFY.
+ * Une écriture validée publie un message compact "origine|cache|clé" (pg_notify) ; chaque instance
+ * écoute le canal sur une connexion dédiée, hors du pool, et invalide l'entrée correspondante.
+ * Après une reconnexion, des messages ont pu être perdus : tous les caches locaux sont vidés.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationBus {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    public static final String SUMMARY = "summary";
+    public static final String USER = "user";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final KpiSummaryCache summaryCache;
+    private final CustomUserDetailsService userDetailsService;
+    private final AppConfig appConfig;
+
+    // Identifiant d'origine propre à ce processus : ses propres messages sont ignorés à la réception
+    private final String origin = UUID.randomUUID().toString().substring(0, 8);
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder publishFailures = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+
+    private ThreadPoolExecutor publisher;
+    private Thread listener;
+    private volatile boolean running;
+    private volatile boolean connected;
+
+    @PostConstruct
+    public void start() {
+        AppConfig.CacheBus config = appConfig.getCacheBus();
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (!config.getChannel().matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("Nom de canal invalide: " + config.getChannel());
+        }
+        // Publication hors du thread de la requête : la transaction est déjà validée
+        publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-bus-publisher");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        running = true;
+        listener = new Thread(this::listen, "cache-bus-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDataChanged(KpiDataChangedEvent event) {
+        // Le cache local est invalidé par KpiSummaryCache lui-même
+        publish(SUMMARY, event.getSourceType() + ":" + event.getYear());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        apply(event.getCache(), event.getKey());
+        publish(event.getCache(), event.getKey());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", publisher != null);
+        stats.put("connected", connected);
+        stats.put("origin", origin);
+        stats.put("published", published.sum());
+        stats.put("publish_failures", publishFailures.sum());
+        stats.put("received", received.sum());
+        stats.put("applied", applied.sum());
+        stats.put("reconnects", reconnects.sum());
+        return stats;
+    }
+
+    private void publish(String cache, String key) {
+        if (publisher == null) {
+            return;
+        }
+        String payload = origin + "|" + cache + "|" + key;
+        try {
+            publisher.execute(() -> {
+                try {
+                    jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, appConfig.getCacheBus().getChannel(), payload);
+                    published.increment();
+                } catch (RuntimeException e) {
+                    publishFailures.increment();
+                    logger.warn("Invalidation {} non diffusée: {}", payload, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            publishFailures.increment();
+            logger.warn("File de diffusion pleine, invalidation {} perdue", payload);
+        }
+    }
+
+    private void listen() {
+        AppConfig.CacheBus config = appConfig.getCacheBus();
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + config.getChannel());
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                connected = true;
+                clearAll(); // Messages manqués avant l'écoute ou pendant la coupure
+                logger.info("Écoute des invalidations de cache sur {} (origine {})", config.getChannel(), origin);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(config.getPollMs());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                connected = false;
+                if (!running) {
+                    return;
+                }
+                reconnects.increment();
+                logger.warn("Écoute des invalidations interrompue: {}", e.getMessage());
+                try {
+                    Thread.sleep(config.getReconnectDelayMs());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        connected = false;
+    }
+
+    private void handle(String payload) {
+        received.increment();
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length != 3 || origin.equals(parts[0])) {
+            return;
+        }
+        apply(parts[1], parts[2]);
+    }
+
+    private void apply(String cache, String key) {
+        switch (cache) {
+            case SUMMARY -> {
+                int separator = key.lastIndexOf(':');
+                if (separator < 0) {
+                    return;
+                }
+                try {
+                    summaryCache.invalidate(key.substring(0, separator), Integer.parseInt(key.substring(separator + 1)));
+                } catch (NumberFormatException e) {
+                    return;
+                }
+            }
+            case USER -> userDetailsService.evictAll();
+            default -> {
+                return;
+            }
+        }
+        applied.increment();
+    }
+
+    private void clearAll() {
+        summaryCache.clear();
+        userDetailsService.evictAll();
+    }
+}
@@ -0,0 +1,145 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Disjoncteur à trois états.
+ * CLOSED : tout passe ; OPEN après failureThreshold échecs consécutifs : rejet immédiat ;
+ * à l'expiration de openDuration, une sonde de santé décide du passage en HALF_OPEN,
+ * où quelques appels d'essai referment le circuit (ou le rouvrent au premier échec).
+ * La sonde s'exécute sur probeExecutor : aucun appelant n'attend sa réponse, tous sont rejetés
+ * (repli sur les règles locales) tant qu'elle n'a pas conclu.
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final int halfOpenTrialCalls;
+    private final BooleanSupplier healthProbe;
+    private final Executor probeExecutor;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int trialPermits;
+    private int trialSuccesses;
+    private boolean probing;
+    private long rejectedCalls;
+    private LocalDateTime openedAt;
+    private LocalDateTime lastTransitionAt = LocalDateTime.now();
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration,
+                          int halfOpenTrialCalls, BooleanSupplier healthProbe, Executor probeExecutor) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = openDuration;
+        this.halfOpenTrialCalls = Math.max(1, halfOpenTrialCalls);
+        this.healthProbe = healthProbe;
+        this.probeExecutor = probeExecutor;
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialPermits > 0) {
+                trialPermits--;
+                return true;
+            }
+            rejectedCalls++;
+            return false;
+        }
+        if (!probing && !LocalDateTime.now().isBefore(openedAt.plus(openDuration))) {
+            probing = true;
+            try {
+                probeExecutor.execute(this::probe);
+            } catch (RejectedExecutionException e) {
+                probing = false; // Nouvel essai au prochain appel
+            }
+        }
+        rejectedCalls++;
+        return false;
+    }
+
+    /**
+     * Rendre un permis obtenu mais non utilisé (appel abandonné avant envoi)
+     */
+    public synchronized void releasePermit() {
+        if (state == State.HALF_OPEN) {
+            trialPermits++;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN && ++trialSuccesses >= halfOpenTrialCalls) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAt = LocalDateTime.now();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("consecutive_failures", consecutiveFailures);
+        stats.put("rejected_calls", rejectedCalls);
+        stats.put("opened_at", openedAt != null ? openedAt.toString() : null);
+        stats.put("last_transition_at", lastTransitionAt.toString());
+        return stats;
+    }
+
+    private void probe() {
+        boolean healthy;
+        try {
+            healthy = healthProbe.getAsBoolean();
+        } catch (RuntimeException e) {
+            healthy = false;
+        }
+
+        synchronized (this) {
+            probing = false;
+            if (state != State.OPEN) {
+                return;
+            }
+            if (healthy) {
+                transitionTo(State.HALF_OPEN);
+                trialPermits = halfOpenTrialCalls;
+                trialSuccesses = 0;
+            } else {
+                openedAt = LocalDateTime.now();
+            }
+        }
+    }
+
+    private void transitionTo(State newState) {
+        if (state != newState) {
+            logger.warn("Disjoncteur {} : {} -> {}", name, state, newState);
+            state = newState;
+            lastTransitionAt = LocalDateTime.now();
+        }
+    }
+}
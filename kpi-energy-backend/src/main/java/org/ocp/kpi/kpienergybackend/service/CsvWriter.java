@@ -0,0 +1,165 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Écriture CSV en flux : tampon char[] propre, nombres formatés directement dans le tampon
+ * (aucune allocation par ligne, contrairement à printf) et vidage vers le client toutes les
+ * flushEveryRows lignes pour que la réponse avance pendant la lecture du curseur.
+ * Les décimaux sont écrits avec deux chiffres après le point, quelle que soit la locale.
+ */
+public final class CsvWriter implements TableWriter, Flushable {
+    // Écart entre v * 100 calculé et l'écriture décimale de v : moins de 2 ulp, large marge
+    private static final double HALF_MARGIN_ULPS = 64;
+    // Au-delà (ulp(v * 100) >= 1/128), la marge couvre toutes les fractions : arrondi décimal direct
+    private static final double MAX_FAST_CENTS = 0x1p45;
+
+    private final Writer out;
+    private final char[] buffer;
+    private final char[] digits = new char[20];
+    private final int flushEveryRows;
+    private int position;
+    private boolean rowStarted;
+    private long rows;
+
+    public CsvWriter(Writer out, int bufferSize, int flushEveryRows) {
+        this.out = out;
+        this.buffer = new char[Math.max(bufferSize, 64)];
+        this.flushEveryRows = Math.max(flushEveryRows, 1);
+    }
+
+    @Override
+    public CsvWriter header(String... columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                append(",");
+            }
+            append(columns[i]);
+        }
+        return endRow();
+    }
+
+    @Override
+    public CsvWriter field(long value) throws IOException {
+        separator();
+        appendLong(value);
+        return this;
+    }
+
+    /**
+     * Décimal arrondi au centième comme %.2f : moitié vers l'extérieur sur l'écriture décimale
+     * la plus courte du double (2.675 → 2.68), signe conservé (-0.001 → -0.00).
+     */
+    @Override
+    public CsvWriter field(double value) throws IOException {
+        separator();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            append(Double.toString(value));
+            return this;
+        }
+        if (Double.doubleToRawLongBits(value) < 0) {
+            ensure(1);
+            buffer[position++] = '-';
+        }
+        double cents = Math.abs(value) * 100;
+        double fraction = cents - Math.floor(cents);
+        // Près d'une demie, l'arrondi binaire peut différer de l'arrondi décimal
+        if (cents >= MAX_FAST_CENTS || Math.abs(fraction - 0.5) <= HALF_MARGIN_ULPS * Math.ulp(cents)) {
+            append(BigDecimal.valueOf(Math.abs(value)).setScale(2, RoundingMode.HALF_UP).toPlainString());
+            return this;
+        }
+        long scaled = Math.round(cents);
+        appendLong(scaled / 100);
+        ensure(3);
+        long remainder = scaled % 100;
+        buffer[position++] = '.';
+        buffer[position++] = (char) ('0' + remainder / 10);
+        buffer[position++] = (char) ('0' + remainder % 10);
+        return this;
+    }
+
+    @Override
+    public CsvWriter empty() throws IOException {
+        separator();
+        return this;
+    }
+
+    @Override
+    public CsvWriter endRow() throws IOException {
+        ensure(1);
+        buffer[position++] = '\n';
+        rowStarted = false;
+        if (++rows % flushEveryRows == 0) {
+            flush();
+        }
+        return this;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void separator() throws IOException {
+        if (rowStarted) {
+            ensure(1);
+            buffer[position++] = ',';
+        }
+        rowStarted = true;
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        int length = 0;
+        boolean negative = value < 0;
+        long remaining = Math.abs(value);
+        do {
+            digits[length++] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        ensure(length + 1);
+        if (negative) {
+            buffer[position++] = '-';
+        }
+        while (length > 0) {
+            buffer[position++] = digits[--length];
+        }
+    }
+
+    private void append(String text) throws IOException {
+        for (int offset = 0; offset < text.length(); ) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(text.length() - offset, buffer.length - position);
+            text.getChars(offset, offset + count, buffer, position);
+            position += count;
+            offset += count;
+        }
+    }
+
+    private void ensure(int chars) throws IOException {
+        if (buffer.length - position < chars) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Données du tableau de bord en un seul appel : les lectures indépendantes s'exécutent en parallèle
+ * sur un pool borné. Une partie qui dépasse le délai (app.dashboard.timeout-ms) ou échoue est omise
+ * et signalée dans "incomplete" ; les autres sont renvoyées.
+ */
+@Service
+@RequiredArgsConstructor
+public class DashboardService {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+
+    private final ElectricityDataService electricityService;
+    private final WaterDataService waterService;
+    private final AnomalyService anomalyService;
+    private final AppConfig appConfig;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        AppConfig.Dashboard config = appConfig.getDashboard();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(config.getWorkers(), config.getWorkers(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public Map<String, Object> getDashboard(int year) {
+        Map<String, CompletableFuture<Object>> parts = new LinkedHashMap<>();
+        Map<String, String> incomplete = new LinkedHashMap<>();
+        submit(parts, incomplete, "electricitySummary", () -> electricityService.getAnnualSummary(year));
+        submit(parts, incomplete, "waterMonthly", () -> waterService.getMonthlyDataForYear(year));
+        submit(parts, incomplete, "anomalyStatistics", anomalyService::getAnomalyStatistics);
+
+        Map<String, Object> dashboard = new LinkedHashMap<>();
+        dashboard.put("year", year);
+        dashboard.put("limits", electricityService.getLimits());
+
+        // Un seul délai pour l'ensemble : la page attend au plus la partie la plus lente, bornée
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(appConfig.getDashboard().getTimeoutMs());
+        for (Map.Entry<String, CompletableFuture<Object>> part : parts.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                dashboard.put(part.getKey(), part.getValue().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                part.getValue().cancel(false);
+                incomplete.put(part.getKey(), "timeout");
+            } catch (ExecutionException e) {
+                logger.warn("Tableau de bord {} : partie {} en échec: {}", year, part.getKey(), e.getCause().getMessage());
+                incomplete.put(part.getKey(), "error");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                incomplete.put(part.getKey(), "interrupted");
+            }
+        }
+        dashboard.put("incomplete", incomplete);
+        return dashboard;
+    }
+
+    private void submit(Map<String, CompletableFuture<Object>> parts, Map<String, String> incomplete,
+                        String name, Supplier<Object> read) {
+        try {
+            parts.put(name, CompletableFuture.supplyAsync(read, executor));
+        } catch (RejectedExecutionException e) {
+            incomplete.put(name, "busy");
+        }
+    }
+}
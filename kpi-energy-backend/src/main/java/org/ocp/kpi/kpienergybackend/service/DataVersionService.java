@@ -0,0 +1,82 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.util.Map;
+
+/**
+ * Version d'un périmètre de données (mois, année, plage d'années) pour les GET conditionnels.
+ * Calculée par une seule requête d'agrégat (nombre de lignes, dernière création ou modification),
+ * sans charger les entités : le nombre de lignes fait changer l'ETag après une suppression.
+ */
+@Service
+@RequiredArgsConstructor
+public class DataVersionService {
+
+    private static final Map<String, String> TABLES = Map.of("ELECTRICITY", "electricity_data", "WATER", "water_data");
+
+    private static final String VERSION_SQL =
+            "SELECT COUNT(*) AS row_count, MAX(COALESCE(updated_at, created_at)) AS last_modified " +
+            "FROM %s WHERE year BETWEEN ? AND ? AND month BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DataVersion forMonth(String sourceType, int year, int month) {
+        return load(sourceType, year, year, month, month);
+    }
+
+    public DataVersion forYears(String sourceType, int startYear, int endYear) {
+        return load(sourceType, startYear, endYear, 1, 12);
+    }
+
+    public DataVersion forAll(String sourceType) {
+        return load(sourceType, Integer.MIN_VALUE, Integer.MAX_VALUE, 1, 12);
+    }
+
+    /**
+     * Vrai si le client possède déjà cette version : la réponse 304 est préparée, le contenu ne doit pas être chargé.
+     * Sinon, les en-têtes ETag et Last-Modified sont ajoutés à la réponse.
+     */
+    public boolean isNotModified(WebRequest request, DataVersion version) {
+        // Remplace le "no-store" ajouté par Spring Security : le navigateur garde la réponse et la revalide
+        if (request instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            servletRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        }
+        return request.checkNotModified(version.etag, version.lastModified);
+    }
+
+    private DataVersion load(String sourceType, int startYear, int endYear, int startMonth, int endMonth) {
+        String table = TABLES.get(sourceType);
+        return jdbcTemplate.queryForObject(String.format(VERSION_SQL, table), (rs, rowNum) -> {
+            long count = rs.getLong("row_count");
+            Timestamp lastModified = rs.getTimestamp("last_modified");
+            long lastModifiedMillis = lastModified != null
+                    ? lastModified.toLocalDateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : -1;
+            String etag = "\"" + sourceType.toLowerCase() + "-" + startYear + "-" + endYear + "-" + startMonth
+                    + "-" + endMonth + "-" + count + "-" + Math.max(lastModifiedMillis, 0) + "\"";
+            return new DataVersion(etag, lastModifiedMillis);
+        }, startYear, endYear, startMonth, endMonth);
+    }
+
+    public static final class DataVersion {
+        private final String etag;
+        private final long lastModified;
+
+        private DataVersion(String etag, long lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
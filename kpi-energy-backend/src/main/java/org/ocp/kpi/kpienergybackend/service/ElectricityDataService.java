@@ -5,11 +5,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.ocp.kpi.kpienergybackend.dto.ElectricityDataDto;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityDataView;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityPeriodDto;
 import org.ocp.kpi.kpienergybackend.dto.ElectricitySummaryDto;
 import org.ocp.kpi.kpienergybackend.entity.ElectricityData;
 import org.ocp.kpi.kpienergybackend.entity.Utilisateur;
+import org.ocp.kpi.kpienergybackend.event.KpiDataChangedEvent;
 import org.ocp.kpi.kpienergybackend.repository.ElectricityDataRepository;
 import org.ocp.kpi.kpienergybackend.repository.UtilisateurRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -26,10 +31,28 @@ public class ElectricityDataService {
     private final UtilisateurRepository utilisateurRepo;
     private final AuditService auditService;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RollupService rollupService;
+    private final KpiSummaryCache summaryCache;
+    private final SingleFlight singleFlight;
+    private final JdbcTemplate jdbcTemplate;
 
     private static final double COSPHI_LIMIT_60KV = 0.9;
     private static final double COSPHI_LIMIT_22KV = 0.8;
 
+    public static final List<String> RANGE_GROUPINGS = List.of("month", "quarter", "year");
+
+    // Agrégation d'une plage d'années en un seul GROUP BY ; %s : colonnes de regroupement
+    private static final String RANGE_SQL =
+            "SELECT year, %s AS quarter, %s AS month, COUNT(*) AS month_count, " +
+            "SUM(network60kv_active_energy) AS active_60kv, SUM(network60kv_reactive_energy) AS reactive_60kv, " +
+            "MAX(network60kv_peak) AS peak_60kv, AVG(network60kv_power_factor) AS avg_pf_60kv, " +
+            "SUM(network22kv_active_energy) AS active_22kv, SUM(network22kv_reactive_energy) AS reactive_22kv, " +
+            "MAX(network22kv_peak) AS peak_22kv, AVG(network22kv_power_factor) AS avg_pf_22kv " +
+            "FROM electricity_data WHERE year BETWEEN ? AND ? " +
+            "GROUP BY %s ORDER BY %s";
+
+    @Transactional
     public ElectricityData saveElectricityData(ElectricityDataDto dto) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         Utilisateur currentUser = utilisateurRepo.findByEmail(auth.getName()).orElse(null);
@@ -60,7 +83,9 @@ public class ElectricityDataService {
                     .build();
         }
 
-        ElectricityData saved = electricityRepo.save(data);
+        ElectricityData saved = electricityRepo.saveAndFlush(data);
+        // Agrégats mis à jour dans la même transaction que la saisie
+        rollupService.refreshElectricityYear(saved.getYear());
 
         // Audit logging
         try {
@@ -77,19 +102,59 @@ public class ElectricityDataService {
             e.printStackTrace();
         }
 
+        // Détection d'anomalies, cache, etc. : traités après validation de la transaction
+        eventPublisher.publishEvent(new KpiDataChangedEvent("ELECTRICITY", saved.getId(),
+                saved.getYear(), saved.getMonth(), KpiDataChangedEvent.ChangeType.SAVED));
+
         return saved;
     }
 
-    public Optional<ElectricityData> getDataByYearAndMonth(int year, int month) {
-        return electricityRepo.findByYearAndMonth(year, month);
+    public Optional<ElectricityDataView> getDataByYearAndMonth(int year, int month) {
+        return electricityRepo.findViewByYearAndMonth(year, month);
     }
 
     public Optional<ElectricitySummaryDto> getMonthlySummary(int year, int month) {
-        return electricityRepo.findSummaryByYearAndMonth(year, month);
+        // Servi depuis la synthèse annuelle en cache
+        return getAnnualSummary(year).stream()
+                .filter(summary -> summary.getMonth() == month)
+                .findFirst();
     }
 
     public List<ElectricitySummaryDto> getAnnualSummary(int year) {
-        return electricityRepo.findAnnualSummary(year);
+        // Autour du cache : les appels simultanés d'une année absente partagent une seule requête
+        return singleFlight.execute("electricity.annual-summary", year,
+                () -> summaryCache.getYear("ELECTRICITY", year, electricityRepo::findAnnualSummary));
+    }
+
+    /**
+     * Agrégats par mois, trimestre ou année entre deux années incluses
+     */
+    public List<ElectricityPeriodDto> getRange(int startYear, int endYear, String groupBy) {
+        String quarter = "(month - 1) / 3 + 1";
+        String sql = switch (groupBy) {
+            case "month" -> String.format(RANGE_SQL, quarter, "month", "year, month", "year, month");
+            case "quarter" -> String.format(RANGE_SQL, quarter, "CAST(NULL AS integer)", "year, " + quarter, "year, quarter");
+            case "year" -> String.format(RANGE_SQL, "CAST(NULL AS integer)", "CAST(NULL AS integer)", "year", "year");
+            default -> throw new IllegalArgumentException("Regroupement inconnu: " + groupBy);
+        };
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            int monthCount = rs.getInt("month_count");
+            double active60kv = rs.getDouble("active_60kv");
+            double reactive60kv = rs.getDouble("reactive_60kv");
+            double active22kv = rs.getDouble("active_22kv");
+            double reactive22kv = rs.getDouble("reactive_22kv");
+            return new ElectricityPeriodDto(
+                    rs.getInt("year"),
+                    rs.getObject("quarter", Integer.class),
+                    rs.getObject("month", Integer.class),
+                    monthCount,
+                    active60kv, reactive60kv, rs.getDouble("peak_60kv"),
+                    powerFactor(active60kv, reactive60kv), rs.getDouble("avg_pf_60kv"),
+                    active22kv, reactive22kv, rs.getDouble("peak_22kv"),
+                    powerFactor(active22kv, reactive22kv), rs.getDouble("avg_pf_22kv"),
+                    active60kv + active22kv,
+                    (active60kv + active22kv) / monthCount);
+        }, startYear, endYear);
     }
 
     public Map<String, Double> getLimits() {
@@ -101,11 +166,20 @@ public class ElectricityDataService {
         );
     }
 
+    // Même calcul que ElectricityData, appliqué aux énergies cumulées de la période
+    private static double powerFactor(double activeEnergy, double reactiveEnergy) {
+        return activeEnergy != 0 ? Math.cos(Math.atan(reactiveEnergy / activeEnergy)) : 0;
+    }
+
     @Transactional
     public void deleteData(int year, int month) {
         Optional<ElectricityData> data = electricityRepo.findByYearAndMonth(year, month);
         if (data.isPresent()) {
             electricityRepo.delete(data.get());
+            electricityRepo.flush();
+            rollupService.refreshElectricityYear(year);
+            eventPublisher.publishEvent(new KpiDataChangedEvent("ELECTRICITY", data.get().getId(),
+                    year, month, KpiDataChangedEvent.ChangeType.DELETED));
             try {
                 auditService.logAction("DELETE", "electricity_data", data.get().getId(),
                         objectMapper.writeValueAsString(data.get()),
@@ -0,0 +1,180 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Export généré en arrière-plan dans un fichier local, suivi par son identifiant.
+ * Le fichier terminé n'est plus modifié : l'identifiant sert d'ETag pour les reprises (If-Range).
+ */
+public class ExportJob {
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    private final String type;
+    private final String format;
+    private final Integer year;
+    private final Integer month;
+    private final String key;
+    private final Path file;
+    private final String requestedBy;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    // Tous les utilisateurs dont la demande a été servie par ce job (déduplication)
+    private final Set<String> requesters = ConcurrentHashMap.newKeySet();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile long rowsWritten; // Un seul thread d'écriture
+    private volatile long rowsExpected;
+    private volatile long sizeBytes;
+    private volatile String error;
+
+    public ExportJob(String id, String type, String format, Integer year, Integer month,
+                     String key, Path file, String requestedBy) {
+        this.id = id;
+        this.type = type;
+        this.format = format;
+        this.year = year;
+        this.month = month;
+        this.key = key;
+        this.file = file;
+        this.requestedBy = requestedBy;
+        addRequester(requestedBy);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    /**
+     * Paramètres + version des données : deux jobs de même clé produisent le même fichier
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public boolean isRequestedBy(String user) {
+        return user != null && requesters.contains(user);
+    }
+
+    void addRequester(String user) {
+        if (user != null) {
+            requesters.add(user);
+        }
+    }
+
+    public boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+
+    /**
+     * Nom proposé au téléchargement, sur le modèle d'ExportController
+     */
+    public String getFileName() {
+        String timestamp = createdAt.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String extension = "csv".equals(format) ? "csv.gz" : format;
+        if (year != null && month != null) {
+            return String.format("%s_%d_%d_%s.%s", type, year, month, timestamp, extension);
+        } else if (year != null) {
+            return String.format("%s_%d_%s.%s", type, year, timestamp, extension);
+        }
+        return String.format("%s_%s.%s", type, timestamp, extension);
+    }
+
+    void markRunning(long expected) {
+        rowsExpected = expected;
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void rowWritten() {
+        rowsWritten++;
+    }
+
+    void markCompleted(long size) {
+        sizeBytes = size;
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    void markFailed(String errorMessage) {
+        error = errorMessage;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    /**
+     * Vue JSON : avancement en lignes, débit, taille du fichier et lien de téléchargement une fois terminé
+     */
+    public Map<String, Object> snapshot() {
+        long written = rowsWritten;
+        long expected = rowsExpected;
+        LocalDateTime start = startedAt;
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        double elapsedSeconds = start != null ? Duration.between(start, end).toMillis() / 1000.0 : 0.0;
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", id);
+        view.put("status", status.name());
+        view.put("type", type);
+        view.put("format", format);
+        view.put("year", year);
+        view.put("month", month);
+        view.put("requested_by", requestedBy);
+        view.put("created_at", createdAt.toString());
+        view.put("started_at", start != null ? start.toString() : null);
+        view.put("finished_at", finishedAt != null ? finishedAt.toString() : null);
+        view.put("rows_written", written);
+        view.put("rows_expected", expected);
+        view.put("progress", status == Status.COMPLETED ? 1.0
+                : expected > 0 ? Math.min(1.0, (double) written / expected) : 0.0);
+        view.put("throughput_rows_per_second", elapsedSeconds > 0 ? written / elapsedSeconds : 0.0);
+        view.put("size_bytes", status == Status.COMPLETED ? sizeBytes : null);
+        view.put("download_url", status == Status.COMPLETED ? "/api/reports/export-jobs/" + id + "/download" : null);
+        view.put("error", error);
+        return view;
+    }
+}
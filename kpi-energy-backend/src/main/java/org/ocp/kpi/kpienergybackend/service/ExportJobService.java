@@ -0,0 +1,383 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports asynchrones : la requête reçoit un identifiant de job, le fichier est généré en arrière-plan
+ * dans app.export-jobs.directory (CSV compressé gzip, ou XLSX déjà compressé) et servi ensuite par
+ * plages d'octets, ce qui permet de reprendre un téléchargement interrompu.
+ * Deux demandes de mêmes paramètres et de même version de données (DataVersionService) partagent
+ * le même job ; une écriture change la version, la demande suivante régénère le fichier.
+ * Limite : les jobs sont en mémoire et les fichiers sur le disque local de l'instance qui les a créés.
+ * Derrière plusieurs instances, le suivi et le téléchargement doivent être routés vers cette instance
+ * (affinité de session) ; ailleurs, le job est inconnu (404).
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobService.class);
+
+    public static final List<String> FORMATS = List.of("csv", "xlsx");
+
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    // Fichiers créés par ce service ; les autres fichiers du répertoire ne sont jamais supprimés
+    private static final String ARTIFACT_PATTERN = "[0-9a-f-]{36}\\.(csv\\.gz|xlsx)(\\.part)?";
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    // Envoi par sendfile(2) délégué à Tomcat (connecteur NIO) : le fichier ne transite pas par la JVM
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ExportService exportService;
+    private final DataVersionService dataVersionService;
+    private final AppConfig appConfig;
+
+    private final Map<String, ExportJob> jobs = new LinkedHashMap<>();
+    private Path directory;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() throws IOException {
+        AppConfig.ExportJobs config = appConfig.getExportJobs();
+        directory = Paths.get(config.getDirectory()).toAbsolutePath();
+        Files.createDirectories(directory);
+        // Les jobs ne survivent pas au redémarrage : leurs fichiers sont orphelins
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory,
+                path -> path.getFileName().toString().matches(ARTIFACT_PATTERN))) {
+            for (Path leftover : leftovers) {
+                deleteQuietly(leftover);
+            }
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(config.getWorkers(), config.getWorkers(), 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "export-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Réutiliser le job de mêmes paramètres et même version de données, sinon en lancer un nouveau.
+     * RejectedExecutionException si la file d'attente est pleine.
+     */
+    public ExportJob submit(String type, String format, Integer year, Integer month, String requestedBy) {
+        if (!ExportService.TYPES.contains(type)) {
+            throw new IllegalArgumentException("Type d'export inconnu: " + type);
+        }
+        if (!FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Format d'export inconnu: " + format);
+        }
+        Integer effectiveMonth = year != null ? month : null; // Le mois seul n'est pas un filtre
+        String key = type + "|" + format + "|" + year + "|" + effectiveMonth + "|"
+                + dataVersion(type, year, effectiveMonth);
+
+        synchronized (this) {
+            for (ExportJob job : jobs.values()) {
+                if (job.getKey().equals(key) && job.getStatus() != ExportJob.Status.FAILED) {
+                    job.addRequester(requestedBy);
+                    return job;
+                }
+            }
+
+            String id = UUID.randomUUID().toString();
+            Path file = directory.resolve(id + ("csv".equals(format) ? ".csv.gz" : ".xlsx"));
+            ExportJob job = new ExportJob(id, type, format, year, effectiveMonth, key, file, requestedBy);
+            executor.execute(() -> run(job));
+            jobs.put(id, job);
+            trimHistory();
+            logger.info("Job d'export {} créé ({} {}, année={}, mois={}) par {}",
+                    id, type, format, year, effectiveMonth, requestedBy);
+            return job;
+        }
+    }
+
+    public synchronized Optional<ExportJob> findJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Jobs les plus récents d'abord ; ceux demandés par user, ou tous si allUsers
+     */
+    public synchronized List<ExportJob> getJobs(String user, boolean allUsers) {
+        List<ExportJob> recent = new ArrayList<>();
+        for (ExportJob job : jobs.values()) {
+            if (allUsers || job.isRequestedBy(user)) {
+                recent.add(job);
+            }
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /**
+     * Envoyer le fichier d'un job terminé, en entier ou pour la plage demandée (Range, une seule plage)
+     */
+    public void serve(ExportJob job, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = job.getFile();
+        long size = job.getSizeBytes();
+        String etag = "\"" + job.getId() + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setContentType("csv".equals(job.getFormat()) ? "application/gzip" : XLSX_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + job.getFileName());
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range différent (autre fichier, ou date) : le client reçoit le fichier complet
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1); // Exclusif
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break; // Fichier supprimé ou tronqué entre-temps
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Supprimer les jobs terminés depuis plus de app.export-jobs.retention-minutes, avec leur fichier
+     */
+    @Scheduled(fixedDelayString = "${app.export-jobs.cleanup-ms:300000}", initialDelayString = "${app.export-jobs.cleanup-ms:300000}")
+    public synchronized void purgeExpired() {
+        LocalDateTime limit = LocalDateTime.now().minusMinutes(appConfig.getExportJobs().getRetentionMinutes());
+        var iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ExportJob job = iterator.next();
+            if (!job.isActive() && job.getFinishedAt() != null && job.getFinishedAt().isBefore(limit)) {
+                iterator.remove();
+                deleteQuietly(job.getFile());
+            }
+        }
+    }
+
+    private void run(ExportJob job) {
+        Path part = job.getFile().resolveSibling(job.getFile().getFileName() + ".part");
+        try {
+            job.markRunning(exportService.countRows(job.getType(), job.getYear(), job.getMonth()));
+            if ("csv".equals(job.getFormat())) {
+                writeCsv(job, part);
+            } else {
+                writeXlsx(job, part);
+            }
+            // Visible sous son nom final seulement une fois complet
+            Files.move(part, job.getFile(), StandardCopyOption.ATOMIC_MOVE);
+            job.markCompleted(Files.size(job.getFile()));
+            logger.info("Job d'export {} terminé : {} lignes, {} octets", job.getId(),
+                    job.getRowsWritten(), job.getSizeBytes());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Job d'export {} en échec: {}", job.getId(), e.getMessage(), e);
+            deleteQuietly(part);
+            job.markFailed(e.getMessage());
+        }
+    }
+
+    private void writeCsv(ExportJob job, Path target) throws IOException {
+        AppConfig.Export config = appConfig.getExport();
+        try (Writer out = new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(target), config.getBufferChars()), StandardCharsets.UTF_8)) {
+            CsvWriter csv = new CsvWriter(out, config.getBufferChars(), config.getFlushEveryRows());
+            exportService.writeTable(job.getType(), new ProgressWriter(csv, job), job.getYear(), job.getMonth());
+            csv.flush();
+        }
+    }
+
+    private void writeXlsx(ExportJob job, Path target) throws IOException {
+        String sheetName = Character.toUpperCase(job.getType().charAt(0)) + job.getType().substring(1);
+        try (XlsxWriter xlsx = new XlsxWriter(sheetName, appConfig.getExport().getXlsxRowWindow());
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+            exportService.writeTable(job.getType(), new ProgressWriter(xlsx, job), job.getYear(), job.getMonth());
+            xlsx.write(out);
+        }
+    }
+
+    private String dataVersion(String type, Integer year, Integer month) {
+        return switch (type) {
+            case "electricity" -> sourceVersion("ELECTRICITY", year, month);
+            case "water" -> sourceVersion("WATER", year, month);
+            default -> sourceVersion("ELECTRICITY", year, month) + sourceVersion("WATER", year, month);
+        };
+    }
+
+    private String sourceVersion(String sourceType, Integer year, Integer month) {
+        DataVersionService.DataVersion version = year == null ? dataVersionService.forAll(sourceType)
+                : month == null ? dataVersionService.forYears(sourceType, year, year)
+                : dataVersionService.forMonth(sourceType, year, month);
+        return version.getEtag();
+    }
+
+    private void trimHistory() {
+        int maxJobs = Math.max(1, appConfig.getExportJobs().getMaxJobs());
+        var iterator = jobs.values().iterator();
+        while (jobs.size() > maxJobs && iterator.hasNext()) {
+            ExportJob job = iterator.next();
+            if (!job.isActive()) {
+                iterator.remove();
+                deleteQuietly(job.getFile());
+            }
+        }
+    }
+
+    /**
+     * Plage "bytes=début-fin", "bytes=début-" ou "bytes=-n" bornée à la taille du fichier ;
+     * null si l'en-tête est invalide ou contient plusieurs plages (fichier complet)
+     */
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                return suffix <= 0 || size == 0 ? UNSATISFIABLE : new long[] {Math.max(0, size - suffix), size - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+            if (start < 0 || (!last.isEmpty() && end < start)) {
+                return null;
+            }
+            return start >= size ? UNSATISFIABLE : new long[] {start, Math.min(end, size - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Fichier d'export {} non supprimé: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Compte les lignes de données écrites pour l'avancement du job
+     */
+    private static final class ProgressWriter implements TableWriter {
+        private final TableWriter delegate;
+        private final ExportJob job;
+
+        private ProgressWriter(TableWriter delegate, ExportJob job) {
+            this.delegate = delegate;
+            this.job = job;
+        }
+
+        @Override
+        public TableWriter header(String... columns) throws IOException {
+            delegate.header(columns);
+            return this;
+        }
+
+        @Override
+        public TableWriter field(long value) throws IOException {
+            delegate.field(value);
+            return this;
+        }
+
+        @Override
+        public TableWriter field(double value) throws IOException {
+            delegate.field(value);
+            return this;
+        }
+
+        @Override
+        public TableWriter empty() throws IOException {
+            delegate.empty();
+            return this;
+        }
+
+        @Override
+        public TableWriter endRow() throws IOException {
+            delegate.endRow();
+            job.rowWritten();
+            return this;
+        }
+    }
+}
@@ -1,133 +1,245 @@
 package org.ocp.kpi.kpienergybackend.service;
 
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.ocp.kpi.kpienergybackend.dto.CombinedExportData;
-import org.ocp.kpi.kpienergybackend.dto.ElectricitySummaryDto;
-import org.ocp.kpi.kpienergybackend.entity.WaterData;
-import org.ocp.kpi.kpienergybackend.repository.ElectricityDataRepository;
-import org.ocp.kpi.kpienergybackend.repository.WaterDataRepository;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Exports CSV et XLSX en flux : curseur en avant seulement (taille de lot app.export.fetch-size), chaque
+ * ligne est écrite directement dans un TableWriter (tampon de CsvWriter, fenêtre SXSSF de XlsxWriter).
+ * La mémoire reste constante quel que soit le nombre d'années exportées. Les en-têtes HTTP sont posés
+ * par ExportController.
+ */
 @Service
 @RequiredArgsConstructor
 public class ExportService {
 
-    private final ElectricityDataRepository electricityRepo;
-    private final WaterDataRepository waterRepo;
+    private static final String ELECTRICITY_SQL =
+            "SELECT year, month, network60kv_peak, network60kv_power_factor, network60kv_active_energy, " +
+            "network22kv_peak, network22kv_power_factor, network22kv_active_energy FROM electricity_data";
 
-    public void exportElectricityToCSV(Integer year, Integer month, HttpServletResponse response) throws IOException {
-        List<ElectricitySummaryDto> data = getElectricityData(year, month);
+    private static final String WATER_SQL = "SELECT year, month, f3bis, f3, se2, se3bis FROM water_data";
 
-        response.setContentType("text/csv");
-        response.setHeader("Content-Disposition", "attachment; filename=electricity_data.csv");
+    // Jointure externe complète triée : un mois présent d'un seul côté garde des valeurs vides pour l'autre ;
+    // %s : filtre année/mois, appliqué à chaque côté avant la jointure
+    private static final String COMBINED_SQL =
+            "SELECT COALESCE(e.year, w.year) AS year, COALESCE(e.month, w.month) AS month, " +
+            "e.network60kv_active_energy, e.network22kv_active_energy, w.f3bis, w.f3, w.se2, w.se3bis " +
+            "FROM (SELECT year, month, network60kv_active_energy, network22kv_active_energy FROM electricity_data%s) e " +
+            "FULL OUTER JOIN (SELECT year, month, f3bis, f3, se2, se3bis FROM water_data%s) w " +
+            "ON w.year = e.year AND w.month = e.month " +
+            "ORDER BY 1, 2";
 
-        // Write CSV header
-        response.getWriter().println("Year,Month,60KV Peak,60KV Power Factor,60KV Consumption,22KV Peak,22KV Power Factor,22KV Consumption");
+    // Périodes présentes d'un côté ou de l'autre : nombre de lignes de l'export combiné
+    private static final String COMBINED_COUNT_SQL =
+            "SELECT COUNT(*) FROM (SELECT year, month FROM electricity_data%s " +
+            "UNION SELECT year, month FROM water_data%s) p";
 
-        // Write data
-        for (ElectricitySummaryDto item : data) {
-            response.getWriter().printf("%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f%n",
-                    item.getYear(), item.getMonth(),
-                    item.getNetwork60kvPeak(), item.getNetwork60kvPowerFactor(), item.getNetwork60kvConsumption(),
-                    item.getNetwork22kvPeak(), item.getNetwork22kvPowerFactor(), item.getNetwork22kvConsumption());
-        }
+    public static final List<String> TYPES = List.of("electricity", "water", "combined");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AppConfig appConfig;
+
+    // Transaction : PostgreSQL n'utilise un curseur (taille de lot) que hors autocommit
+    @Transactional
+    public void exportElectricityToCSV(Integer year, Integer month, HttpServletResponse response) throws IOException {
+        CsvWriter csv = openCsv(response);
+        writeElectricity(csv, year, month);
+        csv.flush();
     }
 
+    @Transactional
     public void exportWaterToCSV(Integer year, Integer month, HttpServletResponse response) throws IOException {
-        List<WaterData> data = getWaterData(year, month);
-
-        response.setContentType("text/csv");
-        response.setHeader("Content-Disposition", "attachment; filename=water_data.csv");
+        CsvWriter csv = openCsv(response);
+        writeWater(csv, year, month);
+        csv.flush();
+    }
 
-        // Write CSV header
-        response.getWriter().println("Year,Month,F3bis,F3,SE2,SE3bis");
+    @Transactional
+    public void exportCombinedToCSV(Integer year, Integer month, HttpServletResponse response) throws IOException {
+        CsvWriter csv = openCsv(response);
+        writeCombined(csv, year, month);
+        csv.flush();
+    }
 
-        // Write data
-        for (WaterData item : data) {
-            response.getWriter().printf("%d,%d,%.2f,%.2f,%.2f,%.2f%n",
-                    item.getYear(), item.getMonth(),
-                    item.getF3bis(), item.getF3(),
-                    item.getSe2(), item.getSe3bis());
+    @Transactional
+    public void exportElectricityToXlsx(Integer year, Integer month, HttpServletResponse response) throws IOException {
+        try (XlsxWriter xlsx = openXlsx("Electricity")) {
+            writeElectricity(xlsx, year, month);
+            xlsx.write(response.getOutputStream());
         }
     }
 
-    public void exportCombinedToCSV(Integer year, Integer month, HttpServletResponse response) throws IOException {
-        List<CombinedExportData> combinedData = getCombinedData(year, month);
-
-        response.setContentType("text/csv");
-        response.setHeader("Content-Disposition", "attachment; filename=combined_data.csv");
-
-        // Write CSV header
-        response.getWriter().println("Year,Month,60KV Consumption,22KV Consumption,Total Electricity,F3bis,F3,SE2,SE3bis,Total Water");
-
-        // Write data
-        for (CombinedExportData item : combinedData) {
-            response.getWriter().printf("%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f%n",
-                    item.getYear(), item.getMonth(),
-                    item.getElectricity60KV(), item.getElectricity22KV(),
-                    item.getElectricity60KV() + item.getElectricity22KV(),
-                    item.getWaterF3bis(), item.getWaterF3(),
-                    item.getWaterSE2(), item.getWaterSE3bis(),
-                    item.getWaterF3bis() + item.getWaterF3() + item.getWaterSE2() + item.getWaterSE3bis());
+    @Transactional
+    public void exportWaterToXlsx(Integer year, Integer month, HttpServletResponse response) throws IOException {
+        try (XlsxWriter xlsx = openXlsx("Water")) {
+            writeWater(xlsx, year, month);
+            xlsx.write(response.getOutputStream());
         }
     }
 
-    private List<ElectricitySummaryDto> getElectricityData(Integer year, Integer month) {
-        if (year != null && month != null) {
-            return electricityRepo.findAnnualSummary(year).stream()
-                    .filter(d -> d.getMonth() == month)
-                    .collect(Collectors.toList());
-        } else if (year != null) {
-            return electricityRepo.findAnnualSummary(year);
-        } else {
-            return electricityRepo.findAll().stream()
-                    .map(d -> new ElectricitySummaryDto(
-                            d.getYear(), d.getMonth(),
-                            d.getNetwork60kvPeak(), calculatePowerFactor(d.getNetwork60kvActiveEnergy(), d.getNetwork60kvReactiveEnergy()),
-                            d.getNetwork60kvActiveEnergy(),
-                            d.getNetwork22kvPeak(), calculatePowerFactor(d.getNetwork22kvActiveEnergy(), d.getNetwork22kvReactiveEnergy()),
-                            d.getNetwork22kvActiveEnergy()))
-                    .collect(Collectors.toList());
+    @Transactional
+    public void exportCombinedToXlsx(Integer year, Integer month, HttpServletResponse response) throws IOException {
+        try (XlsxWriter xlsx = openXlsx("Combined")) {
+            writeCombined(xlsx, year, month);
+            xlsx.write(response.getOutputStream());
         }
     }
 
-    private List<WaterData> getWaterData(Integer year, Integer month) {
-        if (year != null && month != null) {
-            return waterRepo.findByYearAndMonth(year, month).stream().collect(Collectors.toList());
-        } else if (year != null) {
-            return waterRepo.findByYearOrderByMonthAsc(year);
-        } else {
-            return waterRepo.findAll();
+    /**
+     * Écrire l'export type (voir TYPES) dans out ; utilisé par les exports asynchrones
+     */
+    @Transactional
+    public void writeTable(String type, TableWriter out, Integer year, Integer month) throws IOException {
+        switch (type) {
+            case "electricity" -> writeElectricity(out, year, month);
+            case "water" -> writeWater(out, year, month);
+            case "combined" -> writeCombined(out, year, month);
+            default -> throw new IllegalArgumentException("Type d'export inconnu: " + type);
         }
     }
 
-    private List<CombinedExportData> getCombinedData(Integer year, Integer month) {
-        List<ElectricitySummaryDto> electricityData = getElectricityData(year, month);
-        List<WaterData> waterData = getWaterData(year, month);
+    /**
+     * Nombre de lignes de données (hors en-tête) de l'export type
+     */
+    public long countRows(String type, Integer year, Integer month) {
+        List<Object> params = new ArrayList<>(4);
+        String filter = filter(year, month, params);
+        String sql = switch (type) {
+            case "electricity" -> "SELECT COUNT(*) FROM electricity_data" + filter;
+            case "water" -> "SELECT COUNT(*) FROM water_data" + filter;
+            case "combined" -> {
+                params.addAll(List.copyOf(params));
+                yield String.format(COMBINED_COUNT_SQL, filter, filter);
+            }
+            default -> throw new IllegalArgumentException("Type d'export inconnu: " + type);
+        };
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, params.toArray());
+        return count != null ? count : 0;
+    }
 
-        return electricityData.stream()
-                .map(e -> {
-                    WaterData water = waterData.stream()
-                            .filter(w -> w.getYear() == e.getYear() && w.getMonth() == e.getMonth())
-                            .findFirst()
-                            .orElse(new WaterData());
+    /**
+     * Lignes électricité, dans n'importe quel format ; à appeler dans une transaction
+     */
+    public void writeElectricity(TableWriter out, Integer year, Integer month) throws IOException {
+        out.header("Year", "Month", "60KV Peak", "60KV Power Factor", "60KV Consumption",
+                "22KV Peak", "22KV Power Factor", "22KV Consumption");
+        streamRows(ELECTRICITY_SQL, year, month, rs -> out
+                .field(rs.getInt(1)).field(rs.getInt(2))
+                .field(rs.getDouble(3)).field(rs.getDouble(4)).field(rs.getDouble(5))
+                .field(rs.getDouble(6)).field(rs.getDouble(7)).field(rs.getDouble(8))
+                .endRow());
+    }
+
+    public void writeWater(TableWriter out, Integer year, Integer month) throws IOException {
+        out.header("Year", "Month", "F3bis", "F3", "SE2", "SE3bis");
+        streamRows(WATER_SQL, year, month, rs -> out
+                .field(rs.getInt(1)).field(rs.getInt(2))
+                .field(rs.getDouble(3)).field(rs.getDouble(4))
+                .field(rs.getDouble(5)).field(rs.getDouble(6))
+                .endRow());
+    }
 
-                    return new CombinedExportData(
-                            e.getYear(), e.getMonth(),
-                            e.getNetwork60kvConsumption(), e.getNetwork22kvConsumption(),
-                            water.getF3bis(), water.getF3(), water.getSe2(), water.getSe3bis()
-                    );
-                })
-                .collect(Collectors.toList());
+    public void writeCombined(TableWriter out, Integer year, Integer month) throws IOException {
+        out.header("Year", "Month", "60KV Consumption", "22KV Consumption", "Total Electricity",
+                "F3bis", "F3", "SE2", "SE3bis", "Total Water");
+
+        List<Object> params = new ArrayList<>(4);
+        String filter = filter(year, month, params);
+        params.addAll(List.copyOf(params)); // Même filtre pour les deux côtés
+        String sql = String.format(COMBINED_SQL, filter, filter);
+
+        streamRows(sql, params, rs -> {
+            out.field(rs.getInt(1)).field(rs.getInt(2));
+            double electricity60kv = rs.getDouble(3);
+            if (rs.wasNull()) {
+                out.empty().empty().empty();
+            } else {
+                double electricity22kv = rs.getDouble(4);
+                out.field(electricity60kv).field(electricity22kv).field(electricity60kv + electricity22kv);
+            }
+            double f3bis = rs.getDouble(5);
+            if (rs.wasNull()) {
+                out.empty().empty().empty().empty().empty();
+            } else {
+                double f3 = rs.getDouble(6);
+                double se2 = rs.getDouble(7);
+                double se3bis = rs.getDouble(8);
+                out.field(f3bis).field(f3).field(se2).field(se3bis).field(f3bis + f3 + se2 + se3bis);
+            }
+            out.endRow();
+        });
+    }
+
+    private CsvWriter openCsv(HttpServletResponse response) throws IOException {
+        AppConfig.Export config = appConfig.getExport();
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return new CsvWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8),
+                config.getBufferChars(), config.getFlushEveryRows());
+    }
+
+    private XlsxWriter openXlsx(String sheetName) {
+        return new XlsxWriter(sheetName, appConfig.getExport().getXlsxRowWindow());
+    }
+
+    /**
+     * Parcourir les lignes d'une table filtrées par année et mois (facultatifs), triées par période
+     */
+    private void streamRows(String select, Integer year, Integer month, RowWriter writer) throws IOException {
+        List<Object> params = new ArrayList<>(2);
+        String sql = select + filter(year, month, params) + " ORDER BY year, month";
+        streamRows(sql, params, writer);
+    }
+
+    private void streamRows(String sql, List<Object> params, RowWriter writer) throws IOException {
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(appConfig.getExport().getFetchSize());
+                for (int i = 0; i < params.size(); i++) {
+                    statement.setObject(i + 1, params.get(i));
+                }
+                return statement;
+            }, rs -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // Client déconnecté : arrêt de la lecture
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String filter(Integer year, Integer month, List<Object> params) {
+        if (year == null) {
+            return "";
+        }
+        params.add(year);
+        if (month == null) {
+            return " WHERE year = ?";
+        }
+        params.add(month);
+        return " WHERE year = ? AND month = ?";
     }
 
-    private double calculatePowerFactor(double activeEnergy, double reactiveEnergy) {
-        double apparentEnergy = Math.sqrt(Math.pow(activeEnergy, 2) + Math.pow(reactiveEnergy, 2));
-        return apparentEnergy > 0 ? activeEnergy / apparentEnergy : 0;
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Isolation Forest en Java pur, équivalent à sklearn.ensemble.IsolationForest.
+ * Tous les arbres sont stockés à plat dans des tableaux primitifs (un indice par nœud).
+ * decisionFunction() suit la convention sklearn : négatif = anomalie.
+ */
+public final class IsolationForest {
+    private static final double EULER_GAMMA = 0.5772156649015329;
+    private static final int LEAF = -1;
+
+    private final int[] treeRoots;
+    private final int[] splitFeature;
+    private final double[] splitValue;
+    private final int[] leftChild;
+    private final int[] rightChild;
+    private final int[] nodeSize;
+    private final double normalizer;
+    private int nodeCount;
+    private double offset;
+
+    private IsolationForest(int treeCount, int sampleSize) {
+        int maxNodes = treeCount * (2 * sampleSize - 1);
+        this.treeRoots = new int[treeCount];
+        this.splitFeature = new int[maxNodes];
+        this.splitValue = new double[maxNodes];
+        this.leftChild = new int[maxNodes];
+        this.rightChild = new int[maxNodes];
+        this.nodeSize = new int[maxNodes];
+        this.normalizer = averagePathLength(sampleSize);
+    }
+
+    /**
+     * Entraîner la forêt ; contamination fixe le seuil comme le paramètre sklearn du même nom
+     */
+    public static IsolationForest fit(double[][] samples, int treeCount, int maxSamples,
+                                      double contamination, long seed) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException("Aucune donnée d'entraînement");
+        }
+
+        int sampleSize = Math.min(maxSamples, samples.length);
+        int heightLimit = (int) Math.ceil(Math.log(Math.max(sampleSize, 2)) / Math.log(2));
+        IsolationForest forest = new IsolationForest(treeCount, sampleSize);
+        Random random = new Random(seed);
+        int[] indices = new int[samples.length];
+
+        for (int t = 0; t < treeCount; t++) {
+            // Sous-échantillon sans remise (Fisher-Yates partiel)
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+            for (int i = 0; i < sampleSize; i++) {
+                int j = i + random.nextInt(indices.length - i);
+                int tmp = indices[i];
+                indices[i] = indices[j];
+                indices[j] = tmp;
+            }
+            forest.treeRoots[t] = forest.buildNode(samples, indices, 0, sampleSize, 0, heightLimit, random);
+        }
+
+        double[] trainingScores = new double[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            trainingScores[i] = forest.scoreSamples(samples[i]);
+        }
+        forest.offset = percentile(trainingScores, 100.0 * contamination);
+        return forest;
+    }
+
+    public double decisionFunction(double[] x) {
+        return scoreSamples(x) - offset;
+    }
+
+    public boolean isOutlier(double[] x) {
+        return decisionFunction(x) < 0;
+    }
+
+    /**
+     * Score brut sklearn : -2^(-E[h(x)] / c(psi)), dans [-1, 0]
+     */
+    public double scoreSamples(double[] x) {
+        double totalDepth = 0;
+        for (int root : treeRoots) {
+            int node = root;
+            int depth = 0;
+            while (splitFeature[node] != LEAF) {
+                node = x[splitFeature[node]] < splitValue[node] ? leftChild[node] : rightChild[node];
+                depth++;
+            }
+            totalDepth += depth + averagePathLength(nodeSize[node]);
+        }
+        double meanDepth = totalDepth / treeRoots.length;
+        return -Math.pow(2, -meanDepth / normalizer);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    private int buildNode(double[][] samples, int[] indices, int from, int to,
+                          int depth, int heightLimit, Random random) {
+        int node = nodeCount++;
+        int size = to - from;
+        nodeSize[node] = size;
+
+        if (depth >= heightLimit || size <= 1) {
+            splitFeature[node] = LEAF;
+            return node;
+        }
+
+        int featureCount = samples[indices[from]].length;
+        int feature = random.nextInt(featureCount);
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            double v = samples[indices[i]][feature];
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        if (min == max) {
+            splitFeature[node] = LEAF;
+            return node;
+        }
+
+        double split = min + random.nextDouble() * (max - min);
+
+        // Partition en place : [from, mid) < split <= [mid, to)
+        int mid = from;
+        for (int i = from; i < to; i++) {
+            if (samples[indices[i]][feature] < split) {
+                int tmp = indices[i];
+                indices[i] = indices[mid];
+                indices[mid] = tmp;
+                mid++;
+            }
+        }
+
+        splitFeature[node] = feature;
+        splitValue[node] = split;
+        leftChild[node] = buildNode(samples, indices, from, mid, depth + 1, heightLimit, random);
+        rightChild[node] = buildNode(samples, indices, mid, to, depth + 1, heightLimit, random);
+        return node;
+    }
+
+    /**
+     * c(n) : longueur moyenne d'un chemin infructueux dans un arbre binaire de recherche
+     */
+    static double averagePathLength(int n) {
+        if (n <= 1) {
+            return 0;
+        }
+        if (n == 2) {
+            return 1;
+        }
+        return 2 * (Math.log(n - 1) + EULER_GAMMA) - 2.0 * (n - 1) / n;
+    }
+
+    /**
+     * Percentile avec interpolation linéaire (comportement par défaut de numpy.percentile)
+     */
+    static double percentile(double[] values, double percent) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double rank = percent / 100.0 * (sorted.length - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        return sorted[lower] + (rank - lower) * (sorted[upper] - sorted[lower]);
+    }
+}
@@ -0,0 +1,270 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.dto.AnomalyFeatureRow;
+import org.ocp.kpi.kpienergybackend.repository.ElectricityDataRepository;
+import org.ocp.kpi.kpienergybackend.repository.WaterDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Scoreur Isolation Forest dans la JVM (app.ml.scorer=isolation-forest).
+ * Les modèles sont entraînés sur electricity_data / water_data, avec la même mise à l'échelle
+ * (StandardScaler) et les mêmes règles de classification que le service Python.
+ * L'entraînement a lieu au démarrage puis toutes les retrain-interval-hours sur un thread dédié ;
+ * les nouveaux modèles remplacent les anciens d'un bloc. Une requête n'entraîne jamais : tant qu'aucun
+ * modèle n'existe, seules les règles s'appliquent et le résultat est marqué "degraded" (non mis en cache).
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.ml", name = "scorer", havingValue = "isolation-forest")
+public class IsolationForestAnomalyScorer implements AnomalyScorer {
+    private static final Logger logger = LoggerFactory.getLogger(IsolationForestAnomalyScorer.class);
+
+    // Même ordre que les features du service Python
+    static final String[] ELECTRICITY_FEATURES = {
+            "network60kv_active_energy", "network60kv_reactive_energy", "network60kv_peak",
+            "network22kv_active_energy", "network22kv_reactive_energy", "network22kv_peak",
+            "network60kv_power_factor", "network22kv_power_factor"
+    };
+    static final String[] WATER_FEATURES = {"f3bis", "f3", "se2", "se3bis"};
+
+    private final ElectricityDataRepository electricityRepo;
+    private final WaterDataRepository waterRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final AppConfig appConfig;
+
+    private volatile Models models = Models.UNTRAINED;
+    private ScheduledExecutorService trainer;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        trainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "isolation-forest-trainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalHours = Math.max(1, appConfig.getMl().getForest().getRetrainIntervalHours());
+        trainer.scheduleWithFixedDelay(this::retrainQuietly, 0, intervalHours, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (trainer != null) {
+            trainer.shutdownNow();
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> scoreBatch(List<Map<String, Object>> inputs) {
+        Models current = models; // Même modèle pour tout le lot
+        List<Map<String, Object>> results = new ArrayList<>(inputs.size());
+        for (Map<String, Object> input : inputs) {
+            results.add(scoreOne(current, input));
+        }
+        return results;
+    }
+
+    /**
+     * Réentraîner les deux modèles sur les données actuelles (thread d'entraînement)
+     */
+    public synchronized void retrain() {
+        AppConfig.Forest config = appConfig.getMl().getForest();
+        TrainedModel electricity = train("electricity", ELECTRICITY_FEATURES, config.getElectricityContamination(),
+                () -> electricityRepo.streamFeatureRows());
+        TrainedModel water = train("water", WATER_FEATURES, config.getWaterContamination(),
+                () -> waterRepo.streamFeatureRows());
+        models = new Models(electricity, water, LocalDateTime.now());
+    }
+
+    public LocalDateTime getTrainedAt() {
+        return models.trainedAt;
+    }
+
+    @Override
+    public String getModelVersion() {
+        LocalDateTime trainedAt = models.trainedAt;
+        return "isolation-forest:" + (trainedAt != null ? trainedAt : "untrained");
+    }
+
+    private void retrainQuietly() {
+        try {
+            retrain();
+        } catch (RuntimeException e) {
+            // Les modèles précédents restent actifs jusqu'au prochain essai
+            logger.error("Entraînement Isolation Forest en échec: {}", e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Object> scoreOne(Models current, Map<String, Object> input) {
+        boolean water = "water".equals(input.get("data_type"));
+        TrainedModel model = water ? current.water : current.electricity;
+        double[] features = extract(input, water ? WATER_FEATURES : ELECTRICITY_FEATURES);
+
+        // Sans modèle (pas encore entraîné, historique trop court), seules les règles s'appliquent
+        double anomalyScore = model != null ? model.decisionFunction(features) : 0.0;
+        boolean outlier = model != null && anomalyScore < 0;
+
+        String anomalyType = water
+                ? AnomalyRuleClassifier.classifyWater(input, anomalyScore)
+                : AnomalyRuleClassifier.classifyElectricity(input, anomalyScore);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("is_anomaly", outlier || !AnomalyRuleClassifier.GENERAL_ANOMALY.equals(anomalyType));
+        result.put("anomaly_score", anomalyScore);
+        result.put("anomaly_type", anomalyType);
+        result.put("features", features);
+        if (model == null) {
+            result.put("degraded", true);
+        }
+        return result;
+    }
+
+    private TrainedModel train(String dataType, String[] featureNames, double contamination,
+                               Supplier<Stream<? extends AnomalyFeatureRow>> rows) {
+        AppConfig.Forest config = appConfig.getMl().getForest();
+        double[][] samples = transactionTemplate.execute(status -> {
+            try (Stream<? extends AnomalyFeatureRow> stream = rows.get()) {
+                return reservoirSample(stream.iterator(), featureNames, config.getTrainingLimit(), config.getSeed());
+            }
+        });
+
+        if (samples == null || samples.length < config.getMinTrainingRows()) {
+            logger.warn("Modèle {} non entraîné : {} lignes disponibles (minimum {})",
+                    dataType, samples == null ? 0 : samples.length, config.getMinTrainingRows());
+            return null;
+        }
+
+        long start = System.nanoTime();
+        TrainedModel model = TrainedModel.fit(samples, config.getTrees(), config.getSampleSize(),
+                contamination, config.getSeed());
+        logger.info("Modèle {} entraîné sur {} lignes en {} ms", dataType, samples.length,
+                (System.nanoTime() - start) / 1_000_000);
+        return model;
+    }
+
+    /**
+     * Échantillon uniforme d'au plus limit lignes, en un seul passage sur le flux
+     */
+    private static double[][] reservoirSample(Iterator<? extends AnomalyFeatureRow> rows, String[] featureNames,
+                                              int limit, long seed) {
+        Random random = new Random(seed);
+        List<double[]> reservoir = new ArrayList<>();
+        long seen = 0;
+        while (rows.hasNext()) {
+            double[] features = extract(rows.next().toMlInput(), featureNames);
+            seen++;
+            if (reservoir.size() < limit) {
+                reservoir.add(features);
+            } else {
+                long slot = (long) (random.nextDouble() * seen);
+                if (slot < limit) {
+                    reservoir.set((int) slot, features);
+                }
+            }
+        }
+        return reservoir.toArray(new double[0][]);
+    }
+
+    private static double[] extract(Map<String, Object> input, String[] featureNames) {
+        double[] features = new double[featureNames.length];
+        for (int i = 0; i < featureNames.length; i++) {
+            features[i] = AnomalyRuleClassifier.value(input, featureNames[i], 0);
+        }
+        return features;
+    }
+
+    /**
+     * Modèles actifs, remplacés ensemble à chaque entraînement
+     */
+    private static final class Models {
+        private static final Models UNTRAINED = new Models(null, null, null);
+
+        private final TrainedModel electricity;
+        private final TrainedModel water;
+        private final LocalDateTime trainedAt;
+
+        private Models(TrainedModel electricity, TrainedModel water, LocalDateTime trainedAt) {
+            this.electricity = electricity;
+            this.water = water;
+            this.trainedAt = trainedAt;
+        }
+    }
+
+    /**
+     * Forêt + paramètres de standardisation (moyenne / écart-type par feature)
+     */
+    private static final class TrainedModel {
+        private final double[] mean;
+        private final double[] scale;
+        private final IsolationForest forest;
+
+        private TrainedModel(double[] mean, double[] scale, IsolationForest forest) {
+            this.mean = mean;
+            this.scale = scale;
+            this.forest = forest;
+        }
+
+        static TrainedModel fit(double[][] samples, int trees, int sampleSize, double contamination, long seed) {
+            int featureCount = samples[0].length;
+            double[] mean = new double[featureCount];
+            double[] scale = new double[featureCount];
+            for (double[] sample : samples) {
+                for (int f = 0; f < featureCount; f++) {
+                    mean[f] += sample[f];
+                }
+            }
+            for (int f = 0; f < featureCount; f++) {
+                mean[f] /= samples.length;
+            }
+            for (double[] sample : samples) {
+                for (int f = 0; f < featureCount; f++) {
+                    double d = sample[f] - mean[f];
+                    scale[f] += d * d;
+                }
+            }
+            for (int f = 0; f < featureCount; f++) {
+                double std = Math.sqrt(scale[f] / samples.length);
+                scale[f] = std == 0 ? 1 : std;
+            }
+
+            double[][] scaled = new double[samples.length][];
+            for (int i = 0; i < samples.length; i++) {
+                scaled[i] = standardize(samples[i], mean, scale);
+            }
+            return new TrainedModel(mean, scale, IsolationForest.fit(scaled, trees, sampleSize, contamination, seed));
+        }
+
+        double decisionFunction(double[] features) {
+            return forest.decisionFunction(standardize(features, mean, scale));
+        }
+
+        private static double[] standardize(double[] features, double[] mean, double[] scale) {
+            double[] scaled = new double[features.length];
+            for (int f = 0; f < features.length; f++) {
+                scaled[f] = (features[f] - mean[f]) / scale[f];
+            }
+            return scaled;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.repository.JobRunRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Suppression de l'historique des tâches au-delà de app.jobs.history-days
+ */
+@Component
+@RequiredArgsConstructor
+public class JobHistoryPurgeJob implements BackgroundJob {
+    private final JobRunRepository runRepo;
+    private final AppConfig appConfig;
+
+    @Override
+    public String getName() {
+        return "job-history-purge";
+    }
+
+    @Override
+    public String getDefaultCron() {
+        return "0 45 3 * * ?";
+    }
+
+    @Override
+    public long run() {
+        return runRepo.deleteStartedBefore(LocalDateTime.now().minusDays(appConfig.getJobs().getHistoryDays()));
+    }
+}
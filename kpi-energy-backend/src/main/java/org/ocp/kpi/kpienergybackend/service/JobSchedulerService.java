@@ -0,0 +1,313 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.dto.JobDefinitionDto;
+import org.ocp.kpi.kpienergybackend.entity.JobDefinition;
+import org.ocp.kpi.kpienergybackend.entity.JobRun;
+import org.ocp.kpi.kpienergybackend.repository.JobDefinitionRepository;
+import org.ocp.kpi.kpienergybackend.repository.JobRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ordonnanceur des tâches de fond (beans BackgroundJob) à définitions persistantes.
+ * Toutes les app.jobs.tick-ms, les tâches échues dont la fenêtre horaire est ouverte sont réservées
+ * par mise à jour conditionnelle de next_run_at (une seule instance du cluster l'obtient),
+ * puis exécutées sur un pool borné de threads basse priorité, distinct des threads web.
+ * Un échec est retenté après backoff_seconds * 2^(tentative - 1), jusqu'à max_attempts.
+ */
+@Service
+public class JobSchedulerService {
+    private static final Logger logger = LoggerFactory.getLogger(JobSchedulerService.class);
+
+    private final Map<String, BackgroundJob> jobs;
+    private final JobDefinitionRepository definitionRepo;
+    private final JobRunRepository runRepo;
+    private final LeaseService leaseService;
+    private final AppConfig appConfig;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public JobSchedulerService(List<BackgroundJob> jobs,
+                               JobDefinitionRepository definitionRepo,
+                               JobRunRepository runRepo,
+                               LeaseService leaseService,
+                               AppConfig appConfig) {
+        this.jobs = jobs.stream().collect(Collectors.toMap(BackgroundJob::getName, Function.identity()));
+        this.definitionRepo = definitionRepo;
+        this.runRepo = runRepo;
+        this.leaseService = leaseService;
+        this.appConfig = appConfig;
+
+        AppConfig.Jobs config = appConfig.getJobs();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(config.getWorkers(), config.getWorkers(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "job-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    // Le trafic interactif reste prioritaire
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Créer les définitions manquantes avec les valeurs par défaut des tâches
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerJobs() {
+        AppConfig.Jobs config = appConfig.getJobs();
+        for (BackgroundJob job : jobs.values()) {
+            if (definitionRepo.existsById(job.getName())) {
+                continue;
+            }
+            JobDefinition definition = JobDefinition.builder()
+                    .name(job.getName())
+                    .cron(job.getDefaultCron())
+                    .enabled(true)
+                    .maxAttempts(config.getDefaultMaxAttempts())
+                    .backoffSeconds(config.getDefaultBackoffSeconds())
+                    .nextAttempt(1)
+                    .build();
+            applyWindow(definition, job.getDefaultWindow());
+            definition.setNextRunAt(nextCronTime(definition.getCron(), now()));
+            definitionRepo.save(definition);
+            logger.info("Tâche {} enregistrée ({})", job.getName(), job.getDefaultCron());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.jobs.tick-ms:30000}", initialDelayString = "${app.jobs.tick-ms:30000}")
+    public void tick() {
+        LocalDateTime now = now();
+        for (JobDefinition definition : definitionRepo.findByEnabledTrueAndNextRunAtLessThanEqual(now)) {
+            BackgroundJob job = jobs.get(definition.getName());
+            if (job == null || runningJobs.contains(job.getName()) || !isInWindow(definition, now.toLocalTime())) {
+                continue;
+            }
+            // Échéance suivante posée avant l'exécution : un autre nœud qui lit l'ancienne valeur échoue ici
+            LocalDateTime next = nextCronTime(definition.getCron(), now);
+            if (definitionRepo.claimDueRun(definition.getName(), definition.getNextRunAt(), next, now) != 1) {
+                continue;
+            }
+            dispatch(job, definition);
+        }
+    }
+
+    /**
+     * Exécuter une tâche au prochain passage de l'ordonnanceur
+     */
+    public boolean triggerNow(String name) {
+        return jobs.containsKey(name) && definitionRepo.reschedule(name, now(), 1) == 1;
+    }
+
+    public boolean isKnownJob(String name) {
+        return jobs.containsKey(name);
+    }
+
+    /**
+     * Modifier la planification d'une tâche ; l'échéance est recalculée si le cron change
+     */
+    public Optional<JobDefinition> updateDefinition(String name, JobDefinitionDto dto) {
+        return definitionRepo.findById(name).map(definition -> {
+            if (dto.getCron() != null) {
+                LocalDateTime next = nextCronTime(dto.getCron(), now()); // valide l'expression
+                definition.setCron(dto.getCron());
+                definition.setNextRunAt(next);
+                definition.setNextAttempt(1);
+            }
+            if (dto.getEnabled() != null) {
+                definition.setEnabled(dto.getEnabled());
+            }
+            if (dto.getWindow() != null) {
+                applyWindow(definition, dto.getWindow());
+            }
+            if (dto.getMaxAttempts() != null) {
+                definition.setMaxAttempts(Math.max(1, dto.getMaxAttempts()));
+            }
+            if (dto.getBackoffSeconds() != null) {
+                definition.setBackoffSeconds(Math.max(0, dto.getBackoffSeconds()));
+            }
+            return definitionRepo.save(definition);
+        });
+    }
+
+    public List<JobRun> getRecentRuns(String name, int limit) {
+        return runRepo.findByJobNameOrderByStartedAtDesc(name, PageRequest.of(0, Math.max(1, Math.min(limit, 500))));
+    }
+
+    /**
+     * Définitions et métriques agrégées par tâche
+     */
+    public List<Map<String, Object>> getJobsStatus() {
+        Map<String, Object[]> summaries = runRepo.summarizeByJob().stream()
+                .collect(Collectors.toMap(row -> (String) row[0], Function.identity()));
+
+        return definitionRepo.findAll().stream().map(definition -> {
+            Object[] summary = summaries.get(definition.getName());
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("name", definition.getName());
+            status.put("cron", definition.getCron());
+            status.put("enabled", definition.isEnabled());
+            status.put("window_start", definition.getWindowStart());
+            status.put("window_end", definition.getWindowEnd());
+            status.put("max_attempts", definition.getMaxAttempts());
+            status.put("backoff_seconds", definition.getBackoffSeconds());
+            status.put("next_run_at", definition.getNextRunAt());
+            status.put("next_attempt", definition.getNextAttempt());
+            status.put("last_run_at", definition.getLastRunAt());
+            status.put("running_here", runningJobs.contains(definition.getName()));
+            status.put("runs", summary != null ? summary[1] : 0L);
+            status.put("failures", summary != null ? summary[2] : 0L);
+            status.put("avg_duration_ms", summary != null ? summary[3] : null);
+            status.put("max_duration_ms", summary != null ? summary[4] : null);
+            status.put("rows_processed", summary != null ? summary[5] : 0L);
+            return status;
+        }).toList();
+    }
+
+    /**
+     * Fenêtre "HH:mm-HH:mm" vers windowStart/windowEnd ; null ou vide : aucune restriction
+     */
+    public static void applyWindow(JobDefinition definition, String window) {
+        if (window == null || window.isBlank()) {
+            definition.setWindowStart(null);
+            definition.setWindowEnd(null);
+            return;
+        }
+        String[] bounds = window.split("-");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("Fenêtre invalide (attendu HH:mm-HH:mm): " + window);
+        }
+        definition.setWindowStart(LocalTime.parse(bounds[0].trim()));
+        definition.setWindowEnd(LocalTime.parse(bounds[1].trim()));
+    }
+
+    public static LocalDateTime nextCronTime(String cron, LocalDateTime after) {
+        return CronExpression.parse(cron).next(after);
+    }
+
+    private void dispatch(BackgroundJob job, JobDefinition definition) {
+        runningJobs.add(job.getName());
+        try {
+            executor.execute(() -> {
+                try {
+                    execute(job, definition);
+                } finally {
+                    runningJobs.remove(job.getName());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runningJobs.remove(job.getName());
+            // Pool saturé : l'échéance est rendue pour un prochain passage
+            definitionRepo.reschedule(job.getName(), now().plusSeconds(definition.getBackoffSeconds()),
+                    definition.getNextAttempt());
+            logger.warn("Pool des tâches saturé, {} reportée", job.getName());
+        }
+    }
+
+    private void execute(BackgroundJob job, JobDefinition definition) {
+        String lease = "job:" + job.getName();
+        Duration leaseDuration = Duration.ofSeconds(appConfig.getJobs().getLeaseSeconds());
+        // Une exécution plus longue que l'intervalle cron ne se superpose pas à la suivante, même sur un autre nœud
+        if (!leaseService.tryAcquire(lease, leaseDuration)) {
+            logger.info("Tâche {} encore en cours sur un autre nœud, échéance ignorée", job.getName());
+            return;
+        }
+
+        int attempt = Math.max(1, definition.getNextAttempt());
+        JobRun run = runRepo.save(JobRun.builder()
+                .jobName(job.getName())
+                .status("RUNNING")
+                .attempt(attempt)
+                .node(leaseService.getNodeId())
+                .startedAt(LocalDateTime.now())
+                .build());
+        long start = System.nanoTime();
+        try {
+            long rows = job.run();
+            finish(run, "SUCCEEDED", start, rows, null);
+            if (attempt > 1) {
+                definitionRepo.reschedule(job.getName(), nextCronTime(definition.getCron(), now()), 1);
+            }
+        } catch (Exception e) {
+            finish(run, "FAILED", start, null, e.getMessage());
+            if (attempt < definition.getMaxAttempts()) {
+                long backoff = retryDelaySeconds(definition.getBackoffSeconds(), attempt);
+                definitionRepo.reschedule(job.getName(), now().plusSeconds(backoff), attempt + 1);
+                logger.warn("Tâche {} en échec (tentative {}), nouvel essai dans {} s: {}",
+                        job.getName(), attempt, backoff, e.getMessage());
+            } else {
+                definitionRepo.reschedule(job.getName(), nextCronTime(definition.getCron(), now()), 1);
+                logger.error("Tâche {} en échec après {} tentatives: {}", job.getName(), attempt, e.getMessage(), e);
+            }
+        } finally {
+            leaseService.release(lease);
+        }
+    }
+
+    private void finish(JobRun run, String status, long startNanos, Long rows, String error) {
+        run.setStatus(status);
+        run.setFinishedAt(LocalDateTime.now());
+        run.setDurationMs((System.nanoTime() - startNanos) / 1_000_000);
+        run.setRowsProcessed(rows);
+        run.setError(error);
+        runRepo.save(run);
+        logger.info("Tâche {} : {} en {} ms ({} lignes)", run.getJobName(), status, run.getDurationMs(), rows);
+    }
+
+    /**
+     * Délai avant la tentative suivante : backoffSeconds * 2^(tentative - 1), exposant plafonné à 16
+     */
+    static long retryDelaySeconds(int backoffSeconds, int attempt) {
+        return (long) backoffSeconds << Math.min(attempt - 1, 16);
+    }
+
+    static boolean isInWindow(JobDefinition definition, LocalTime time) {
+        LocalTime start = definition.getWindowStart();
+        LocalTime end = definition.getWindowEnd();
+        if (start == null || end == null) {
+            return true;
+        }
+        // Fenêtre franchissant minuit (ex. 22:00-06:00)
+        return start.isBefore(end)
+                ? !time.isBefore(start) && time.isBefore(end)
+                : !time.isBefore(start) || time.isBefore(end);
+    }
+
+    private static LocalDateTime now() {
+        // Précision à la seconde : next_run_at sert de jeton de réservation (comparaison d'égalité)
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+}
@@ -0,0 +1,210 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.event.KpiDataChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache mémoire des synthèses mensuelles, une entrée (liste immuable) par type de source et par année.
+ * Une écriture invalide uniquement l'année concernée, après validation de sa transaction.
+ * Chaque année porte un numéro de génération : une lecture commencée avant une invalidation
+ * ne remet pas en cache des données périmées.
+ */
+@Component
+@RequiredArgsConstructor
+public class KpiSummaryCache {
+
+    // Estimation de la taille d'une ligne en mémoire (en-tête d'objet, champs, dates)
+    private static final Map<String, Integer> ROW_BYTES = Map.of("ELECTRICITY", 72, "WATER", 224);
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final AppConfig appConfig;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder staleLoads = new LongAdder();
+
+    private final LinkedHashMap<String, CachedYear> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedYear> eldest) {
+            if (size() > appConfig.getSummaryCache().getMaxYears()) {
+                evictions.increment();
+                estimatedBytes -= eldest.getValue().bytes;
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<String, Long> generations = new HashMap<>();
+    private long estimatedBytes;
+
+    /**
+     * Synthèse d'une année, chargée par loader en cas d'absence
+     */
+    public <T> List<T> getYear(String sourceType, int year, IntFunction<List<T>> loader) {
+        if (!appConfig.getSummaryCache().isEnabled()) {
+            return loader.apply(year);
+        }
+        String key = key(sourceType, year);
+        long generation;
+        synchronized (this) {
+            List<T> cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+            generation = generations.getOrDefault(key, 0L);
+        }
+        List<T> rows = List.copyOf(loader.apply(year));
+        store(sourceType, key, generation, rows);
+        return rows;
+    }
+
+    /**
+     * Synthèses d'une plage d'années ; les années absentes sont chargées en une seule requête
+     */
+    public <T> List<T> getYears(String sourceType, int startYear, int endYear,
+                                RangeLoader<T> loader, ToIntFunction<T> yearOf) {
+        if (!appConfig.getSummaryCache().isEnabled() || endYear < startYear
+                || endYear - startYear >= appConfig.getSummaryCache().getMaxYears()) {
+            return loader.load(startYear, endYear);
+        }
+
+        Map<Integer, List<T>> byYear = new HashMap<>();
+        Map<Integer, Long> missing = new LinkedHashMap<>();
+        synchronized (this) {
+            for (int year = startYear; year <= endYear; year++) {
+                String key = key(sourceType, year);
+                List<T> cached = lookup(key);
+                if (cached != null) {
+                    byYear.put(year, cached);
+                } else {
+                    missing.put(year, generations.getOrDefault(key, 0L));
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            int firstMissing = missing.keySet().iterator().next();
+            int lastMissing = firstMissing;
+            for (int year : missing.keySet()) {
+                lastMissing = year;
+            }
+            Map<Integer, List<T>> loaded = new HashMap<>();
+            for (T row : loader.load(firstMissing, lastMissing)) {
+                loaded.computeIfAbsent(yearOf.applyAsInt(row), y -> new ArrayList<>()).add(row);
+            }
+            for (Map.Entry<Integer, Long> entry : missing.entrySet()) {
+                List<T> rows = List.copyOf(loaded.getOrDefault(entry.getKey(), List.of()));
+                store(sourceType, key(sourceType, entry.getKey()), entry.getValue(), rows);
+                byYear.put(entry.getKey(), rows);
+            }
+        }
+
+        List<T> result = new ArrayList<>();
+        for (int year = startYear; year <= endYear; year++) {
+            result.addAll(byYear.get(year));
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDataChanged(KpiDataChangedEvent event) {
+        invalidate(event.getSourceType(), event.getYear());
+    }
+
+    public synchronized void invalidate(String sourceType, int year) {
+        String key = key(sourceType, year);
+        generations.merge(key, 1L, Long::sum);
+        CachedYear removed = entries.remove(key);
+        if (removed != null) {
+            estimatedBytes -= removed.bytes;
+            invalidations.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.keySet().forEach(key -> generations.merge(key, 1L, Long::sum));
+        entries.clear();
+        estimatedBytes = 0;
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", appConfig.getSummaryCache().isEnabled());
+        synchronized (this) {
+            stats.put("years", entries.size());
+            stats.put("rows", entries.values().stream().mapToInt(cached -> cached.rows.size()).sum());
+            stats.put("estimated_bytes", estimatedBytes);
+        }
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hit_ratio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("stale_loads_discarded", staleLoads.sum());
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> lookup(String key) {
+        CachedYear cached = entries.get(key);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return (List<T>) cached.rows;
+    }
+
+    private synchronized void store(String sourceType, String key, long generation, List<?> rows) {
+        if (generations.getOrDefault(key, 0L) != generation) {
+            staleLoads.increment(); // Invalidée pendant le chargement
+            return;
+        }
+        CachedYear cached = new CachedYear(rows,
+                ENTRY_OVERHEAD_BYTES + (long) rows.size() * ROW_BYTES.getOrDefault(sourceType, 128));
+        CachedYear previous = entries.put(key, cached);
+        if (previous != null) {
+            estimatedBytes -= previous.bytes;
+        }
+        estimatedBytes += cached.bytes;
+    }
+
+    private static String key(String sourceType, int year) {
+        return sourceType + ":" + year;
+    }
+
+    /**
+     * Chargement des lignes d'une plage d'années, triées par année
+     */
+    @FunctionalInterface
+    public interface RangeLoader<T> {
+        List<T> load(int startYear, int endYear);
+    }
+
+    private static final class CachedYear {
+        private final List<?> rows;
+        private final long bytes;
+
+        private CachedYear(List<?> rows, long bytes) {
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+}
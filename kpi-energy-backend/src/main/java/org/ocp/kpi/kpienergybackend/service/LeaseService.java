@@ -0,0 +1,74 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+/**
+ * Baux d'exécution partagés entre les instances du backend (table job_lease).
+ * L'acquisition est un upsert conditionnel : elle réussit si le bail n'existe pas, a expiré ou
+ * appartient déjà à ce nœud. Les échéances sont calculées avec l'horloge de PostgreSQL,
+ * pas celle des nœuds.
+ */
+@Service
+public class LeaseService {
+    private static final Logger logger = LoggerFactory.getLogger(LeaseService.class);
+
+    private static final String ACQUIRE_SQL =
+            "INSERT INTO job_lease (name, owner, lease_until, acquired_at) " +
+            "VALUES (?, ?, now() + ? * interval '1 second', now()) " +
+            "ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, lease_until = EXCLUDED.lease_until, " +
+            "acquired_at = CASE WHEN job_lease.owner = EXCLUDED.owner THEN job_lease.acquired_at ELSE now() END " +
+            "WHERE job_lease.lease_until < now() OR job_lease.owner = EXCLUDED.owner";
+
+    private static final String HELD_SQL =
+            "SELECT COUNT(*) FROM job_lease WHERE name = ? AND lease_until > now()";
+
+    private static final String RELEASE_SQL =
+            "UPDATE job_lease SET lease_until = now() WHERE name = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+
+    public LeaseService(JdbcTemplate jdbcTemplate, AppConfig appConfig) {
+        this.jdbcTemplate = jdbcTemplate;
+        String configured = appConfig.getCluster().getNodeId();
+        // Par défaut "pid@hôte" : unique par processus, stable pendant sa durée de vie
+        this.nodeId = configured != null && !configured.isBlank()
+                ? configured
+                : ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    /**
+     * Acquérir ou prolonger le bail ; false si un autre nœud le détient encore
+     */
+    public boolean tryAcquire(String name, Duration ttl) {
+        boolean acquired = jdbcTemplate.update(ACQUIRE_SQL, name, nodeId, ttl.toSeconds()) == 1;
+        logger.debug("Bail {} {} par {}", name, acquired ? "obtenu" : "refusé", nodeId);
+        return acquired;
+    }
+
+    /**
+     * Vrai si un nœud (celui-ci compris) détient actuellement le bail, sans le prendre
+     */
+    public boolean isHeld(String name) {
+        Long held = jdbcTemplate.queryForObject(HELD_SQL, Long.class, name);
+        return held != null && held > 0;
+    }
+
+    /**
+     * Libérer le bail s'il appartient à ce nœud
+     */
+    public void release(String name) {
+        jdbcTemplate.update(RELEASE_SQL, name, nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
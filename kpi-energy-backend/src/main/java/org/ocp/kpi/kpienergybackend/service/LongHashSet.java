@@ -0,0 +1,85 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+/**
+ * Ensemble de longs à adressage ouvert (sondage linéaire), sans boxing :
+ * 8 octets par case et un facteur de charge de 0,5.
+ */
+final class LongHashSet {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean containsEmpty;
+
+    LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Ajouter une valeur ; false si elle était déjà présente
+     */
+    boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int slot = slot(value);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = value;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return true;
+    }
+
+    boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        int slot = slot(value);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long value) {
+        // Mélange de Fibonacci : les identifiants séquentiels se répartissent sur toute la table
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] previous = keys;
+        keys = new long[previous.length * 2];
+        mask = keys.length - 1;
+        for (long value : previous) {
+            if (value != EMPTY) {
+                int slot = slot(value);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Client HTTP dédié au service Python ML : connexions keep-alive en pool, délais explicites,
+ * exécuteur borné, mesure de latence par appel.
+ * Chaque appel passe par un disjoncteur (sonde /health en semi-ouverture) puis par un limiteur
+ * de concurrence adaptatif qui réduit le nombre de requêtes en vol quand la latence augmente.
+ * La version du modèle est relue sur /health toutes les version-poll-ms, même sans appel de score :
+ * le cache de résultats ne sert pas les réponses d'un modèle remplacé au-delà de ce délai.
+ */
+@Component
+public class MlClient {
+    private static final Logger logger = LoggerFactory.getLogger(MlClient.class);
+
+    private final AppConfig appConfig;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService probeExecutor;
+    private final MlClientMetrics metrics = new MlClientMetrics();
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final CircuitBreaker circuitBreaker;
+    private volatile String modelVersion = "unknown";
+
+    public MlClient(AppConfig appConfig) {
+        this.appConfig = appConfig;
+        AppConfig.Ml config = appConfig.getMl();
+        int concurrency = Math.max(1, config.getConcurrency());
+        int maxInFlight = Math.max(concurrency, config.getLimiter().getMaxLimit());
+        int maxConnections = Math.max(maxInFlight, config.getMaxConnections());
+
+        this.limiter = new AdaptiveConcurrencyLimiter(concurrency,
+                config.getLimiter().getMinLimit(), maxInFlight,
+                config.getLimiter().getTargetLatencyMs(), config.getLimiter().getBackoffRatio());
+        // Sonde /health du disjoncteur et relecture de la version sur leur propre thread :
+        // jamais sur celui d'une requête
+        this.probeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ml-client-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.circuitBreaker = new CircuitBreaker("ml-service",
+                config.getBreaker().getFailureThreshold(),
+                Duration.ofSeconds(config.getBreaker().getOpenDurationSeconds()),
+                config.getBreaker().getHalfOpenTrialCalls(),
+                this::isHealthy,
+                probeExecutor);
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(config.getConnectTimeoutMs()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(config.getReadTimeoutMs()))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(config.getConnectTimeoutMs()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(config.getReadTimeoutMs()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+
+        // Autant de threads que la limite maximale : le limiteur décide du nombre réel en vol.
+        // File bornée : au-delà, l'appelant exécute lui-même la requête (contre-pression)
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxInFlight * 16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ml-client-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PostConstruct
+    public void start() {
+        long pollMs = appConfig.getMl().getVersionPollMs();
+        if ("http".equals(appConfig.getMl().getScorer()) && pollMs > 0) {
+            probeExecutor.scheduleWithFixedDelay(this::isHealthy, pollMs, pollMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Évaluer un point via /detect-anomaly
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> detect(Map<String, Object> input) {
+        return execute(1, () -> {
+            Map<String, Object> response = restTemplate.postForObject(
+                    serviceUrl() + "/detect-anomaly", input, Map.class);
+            trackModelVersion(response);
+            return response;
+        });
+    }
+
+    /**
+     * Évaluer un lot via /detect-anomaly-batch (un seul aller-retour)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> detectBatch(List<Map<String, Object>> batch) {
+        return execute(batch.size(), () -> {
+            Map<String, Object> response = restTemplate.postForObject(
+                    serviceUrl() + "/detect-anomaly-batch", Map.of("items", batch), Map.class);
+            trackModelVersion(response);
+
+            Object results = response != null ? response.get("results") : null;
+            if (!(results instanceof List) || ((List<?>) results).size() != batch.size()) {
+                throw new IllegalStateException("Réponse invalide du service ML pour un lot de " + batch.size() + " points");
+            }
+            return (List<Map<String, Object>>) results;
+        });
+    }
+
+    /**
+     * Sonde /health, hors disjoncteur et hors limiteur ; relève aussi la version du modèle
+     */
+    @SuppressWarnings("unchecked")
+    public boolean isHealthy() {
+        try {
+            Map<String, Object> response = restTemplate.getForObject(serviceUrl() + "/health", Map.class);
+            trackModelVersion(response);
+            return response != null && "healthy".equals(response.get("status"));
+        } catch (RuntimeException e) {
+            logger.debug("Sonde /health du service ML en échec: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Soumettre un lot à l'exécuteur borné
+     */
+    public CompletableFuture<List<Map<String, Object>>> submitBatch(List<Map<String, Object>> batch) {
+        return CompletableFuture.supplyAsync(() -> detectBatch(batch), executor);
+    }
+
+    /**
+     * Dernière version de modèle annoncée par le service ML
+     */
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public MlClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    public Map<String, Object> getPoolStats() {
+        var stats = connectionManager.getTotalStats();
+        return Map.of(
+                "leased", stats.getLeased(),
+                "available", stats.getAvailable(),
+                "pending", stats.getPending(),
+                "max", stats.getMax()
+        );
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        executor.shutdownNow();
+        probeExecutor.shutdownNow();
+        httpClient.close();
+    }
+
+    private <T> T execute(int pointCount, Supplier<T> request) {
+        if (!circuitBreaker.allowRequest()) {
+            throw new IllegalStateException("Service ML indisponible (disjoncteur ouvert)");
+        }
+        try {
+            if (!limiter.acquire(appConfig.getMl().getReadTimeoutMs())) {
+                circuitBreaker.releasePermit();
+                throw new IllegalStateException("Trop de requêtes ML en cours");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.releasePermit();
+            throw new IllegalStateException("Attente du service ML interrompue", e);
+        }
+
+        long start = metrics.start();
+        try {
+            T result = request.get();
+            long elapsed = metrics.recordSuccess(start, pointCount);
+            limiter.release(elapsed, true);
+            circuitBreaker.recordSuccess();
+            logger.debug("Appel ML ({} points) en {} ms", pointCount, elapsed / 1_000_000);
+            return result;
+        } catch (RuntimeException e) {
+            long elapsed = metrics.recordFailure(start, isTimeout(e));
+            limiter.release(elapsed, false);
+            circuitBreaker.recordFailure();
+            throw e;
+        }
+    }
+
+    private void trackModelVersion(Map<String, Object> response) {
+        Object version = response != null ? response.get("model_version") : null;
+        if (version != null && !version.toString().equals(modelVersion)) {
+            logger.info("Version du modèle ML : {} -> {}", modelVersion, version);
+            modelVersion = version.toString();
+        }
+    }
+
+    private String serviceUrl() {
+        return appConfig.getMl().getServiceUrl();
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,108 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs de latence des appels au service ML (sans allocation par appel).
+ * Les percentiles sont approchés par un histogramme à seuils exponentiels en millisecondes.
+ */
+public class MlClientMetrics {
+    private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder points = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+
+    public long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public long recordSuccess(long startNanos, int pointCount) {
+        long elapsed = finish(startNanos);
+        points.add(pointCount);
+        return elapsed;
+    }
+
+    public long recordFailure(long startNanos, boolean timeout) {
+        long elapsed = finish(startNanos);
+        failures.increment();
+        if (timeout) {
+            timeouts.increment();
+        }
+        return elapsed;
+    }
+
+    /**
+     * Réponse servie par les règles locales faute de service ML
+     */
+    public void recordFallback() {
+        fallbacks.increment();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Latence (ms) en dessous de laquelle se trouvent percent % des appels
+     */
+    public long percentileMs(double percent) {
+        long total = calls.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * percent / 100.0);
+        long cumulated = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            cumulated += buckets.get(i);
+            if (cumulated >= threshold) {
+                return i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : maxNanos.get() / 1_000_000;
+            }
+        }
+        return maxNanos.get() / 1_000_000;
+    }
+
+    public Map<String, Object> snapshot() {
+        long count = calls.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", count);
+        stats.put("failures", failures.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("points_scored", points.sum());
+        stats.put("rule_fallbacks", fallbacks.sum());
+        stats.put("in_flight", inFlight.get());
+        stats.put("avg_latency_ms", count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count);
+        stats.put("p50_latency_ms", percentileMs(50));
+        stats.put("p99_latency_ms", percentileMs(99));
+        stats.put("max_latency_ms", maxNanos.get() / 1_000_000);
+        return stats;
+    }
+
+    private long finish(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        inFlight.decrementAndGet();
+        calls.increment();
+        totalNanos.add(elapsed);
+        maxNanos.accumulateAndGet(elapsed, Math::max);
+
+        long elapsedMs = elapsed / 1_000_000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && elapsedMs > BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        return elapsed;
+    }
+}
@@ -0,0 +1,76 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Scoreur basé sur le service Python ML : /detect-anomaly pour un point, /detect-anomaly-batch pour les lots.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.ml", name = "scorer", havingValue = "http", matchIfMissing = true)
+public class MlServiceAnomalyScorer implements AnomalyScorer {
+    private static final Logger logger = LoggerFactory.getLogger(MlServiceAnomalyScorer.class);
+
+    private final MlClient mlClient;
+    private final AppConfig appConfig;
+
+    @Override
+    public List<Map<String, Object>> scoreBatch(List<Map<String, Object>> inputs) {
+        int batchSize = Math.max(1, appConfig.getMl().getBatchSize());
+
+        // Découper en lots envoyés en parallèle ; l'exécuteur du client borne les requêtes en vol
+        List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>();
+        for (int from = 0; from < inputs.size(); from += batchSize) {
+            futures.add(mlClient.submitBatch(inputs.subList(from, Math.min(from + batchSize, inputs.size()))));
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(inputs.size());
+        for (int i = 0; i < futures.size(); i++) {
+            int size = Math.min(batchSize, inputs.size() - i * batchSize);
+            try {
+                results.addAll(futures.get(i).join());
+            } catch (RuntimeException e) {
+                // Un lot en échec ou hors délai ne bloque pas les autres : ses points restent non évalués
+                logger.warn("Lot ML de {} points en échec: {}", size, e.getMessage());
+                results.addAll(Collections.nCopies(size, null));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Point unique (validation en temps réel) : si le service ML est indisponible,
+     * répondre avec les règles locales, marqué "degraded"
+     */
+    @Override
+    public Map<String, Object> score(Map<String, Object> input) {
+        try {
+            return mlClient.detect(input);
+        } catch (RuntimeException e) {
+            if (!appConfig.getMl().isRuleFallback()) {
+                throw e;
+            }
+            logger.debug("Service ML indisponible, validation par règles: {}", e.getMessage());
+            mlClient.getMetrics().recordFallback();
+            Map<String, Object> result = AnomalyRuleClassifier.score(input);
+            result.put("degraded", true);
+            return result;
+        }
+    }
+
+    @Override
+    public String getModelVersion() {
+        return "ml-service:" + mlClient.getModelVersion();
+    }
+}
@@ -0,0 +1,116 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.event.KpiDataChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Détection d'anomalies à la saisie : chaque mois enregistré est évalué quelques secondes après
+ * la validation de sa transaction, sans parcourir toute la table.
+ * File bornée ; un mois déjà en attente n'est pas ajouté deux fois. Un mois écarté (file pleine,
+ * service ML indisponible) sera repris par le scan incrémental, qui suit les dates de modification.
+ */
+@Component
+@RequiredArgsConstructor
+public class RealtimeAnomalyDetector {
+    private static final Logger logger = LoggerFactory.getLogger(RealtimeAnomalyDetector.class);
+
+    private final AnomalyDetectionService detectionService;
+    private final AppConfig appConfig;
+
+    private final Set<String> pendingMonths = ConcurrentHashMap.newKeySet();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        AppConfig.Realtime config = appConfig.getMl().getRealtime();
+        if (!config.isEnabled()) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(config.getWorkers(), config.getWorkers(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "anomaly-realtime-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDataChanged(KpiDataChangedEvent event) {
+        if (executor == null || event.getChangeType() != KpiDataChangedEvent.ChangeType.SAVED) {
+            return;
+        }
+        received.increment();
+
+        String key = event.getSourceType() + ":" + event.getYear() + ":" + event.getMonth();
+        if (!pendingMonths.add(key)) {
+            return; // Déjà en attente : l'évaluation lira la dernière version
+        }
+        try {
+            executor.execute(() -> scan(key, event));
+        } catch (RejectedExecutionException e) {
+            pendingMonths.remove(key);
+            dropped.increment();
+            logger.warn("File de détection pleine, {} sera repris par le scan incrémental", key);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", executor != null);
+        stats.put("received", received.sum());
+        stats.put("scanned", scanned.sum());
+        stats.put("queued", executor != null ? executor.getQueue().size() : 0);
+        stats.put("dropped", dropped.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    private void scan(String key, KpiDataChangedEvent event) {
+        // Retiré avant l'évaluation : une saisie arrivant pendant le score sera de nouveau planifiée
+        pendingMonths.remove(key);
+        try {
+            if (detectionService.scanMonth(event.getSourceType(), event.getYear(), event.getMonth())) {
+                scanned.increment();
+            } else {
+                failed.increment();
+            }
+        } catch (RuntimeException e) {
+            failed.increment();
+            logger.error("Détection à la saisie impossible pour {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.repository.RefreshTokenRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Suppression des refresh tokens expirés
+ */
+@Component
+@RequiredArgsConstructor
+public class RefreshTokenPurgeJob implements BackgroundJob {
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Override
+    public String getName() {
+        return "refresh-token-purge";
+    }
+
+    @Override
+    public String getDefaultCron() {
+        return "0 30 3 * * ?";
+    }
+
+    @Override
+    public long run() {
+        return refreshTokenRepository.deleteExpiredBefore(Instant.now());
+    }
+}
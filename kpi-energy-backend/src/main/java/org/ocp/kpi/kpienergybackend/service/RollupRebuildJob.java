@@ -0,0 +1,33 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconstruction hebdomadaire des tables d'agrégats (corrige une écriture faite hors de l'application)
+ */
+@Component
+@RequiredArgsConstructor
+public class RollupRebuildJob implements BackgroundJob {
+    private final RollupService rollupService;
+
+    @Override
+    public String getName() {
+        return "kpi-rollup-rebuild";
+    }
+
+    @Override
+    public String getDefaultCron() {
+        return "0 0 4 * * SUN";
+    }
+
+    @Override
+    public String getDefaultWindow() {
+        return "00:00-06:00";
+    }
+
+    @Override
+    public long run() {
+        return rollupService.rebuildAll();
+    }
+}
@@ -0,0 +1,201 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.entity.ElectricityRollup;
+import org.ocp.kpi.kpienergybackend.entity.WaterRollup;
+import org.ocp.kpi.kpienergybackend.repository.ElectricityRollupRepository;
+import org.ocp.kpi.kpienergybackend.repository.WaterRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Maintenance des tables d'agrégats (electricity_rollup, water_rollup) dans la transaction de saisie.
+ * Une écriture recalcule les trimestres et l'année concernés à partir des lignes brutes de cette année
+ * (12 au plus), puis la ligne ALL à partir des lignes YEAR : les minima et maxima restent exacts
+ * après une modification ou une suppression. Un verrou consultatif de transaction sérialise
+ * les écritures concurrentes sur une même table d'agrégats.
+ * Au démarrage, une table vide ou à laquelle il manque des années de la table source est reconstruite :
+ * sans cela, la ligne ALL ne refléterait que les années écrites depuis le déploiement.
+ */
+@Service
+@RequiredArgsConstructor
+public class RollupService {
+    private static final Logger logger = LoggerFactory.getLogger(RollupService.class);
+
+    private static final Rollup ELECTRICITY = new Rollup("electricity_rollup", "electricity_data",
+            new String[]{"sum_60kv_active_energy", "sum_60kv_reactive_energy", "sum_22kv_active_energy",
+                    "sum_22kv_reactive_energy", "total_active_energy", "max_60kv_peak", "max_22kv_peak",
+                    "min_60kv_power_factor", "sum_60kv_power_factor", "min_22kv_power_factor", "sum_22kv_power_factor"},
+            new String[]{"SUM(network60kv_active_energy)", "SUM(network60kv_reactive_energy)",
+                    "SUM(network22kv_active_energy)", "SUM(network22kv_reactive_energy)",
+                    "SUM(network60kv_active_energy + network22kv_active_energy)",
+                    "MAX(network60kv_peak)", "MAX(network22kv_peak)",
+                    "MIN(network60kv_power_factor)", "SUM(network60kv_power_factor)",
+                    "MIN(network22kv_power_factor)", "SUM(network22kv_power_factor)"});
+
+    private static final Rollup WATER = new Rollup("water_rollup", "water_data",
+            new String[]{"sum_f3bis", "sum_f3", "sum_se2", "sum_se3bis", "total_production",
+                    "max_monthly_production", "min_monthly_production"},
+            new String[]{"SUM(f3bis)", "SUM(f3)", "SUM(se2)", "SUM(se3bis)", "SUM(f3bis + f3 + se2 + se3bis)",
+                    "MAX(f3bis + f3 + se2 + se3bis)", "MIN(f3bis + f3 + se2 + se3bis)"});
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ElectricityRollupRepository electricityRollupRepo;
+    private final WaterRollupRepository waterRollupRepo;
+
+    /**
+     * Recalculer les agrégats après une écriture électrique (à appeler après flush, dans la même transaction)
+     */
+    @Transactional
+    public void refreshElectricityYear(int year) {
+        refreshYear(ELECTRICITY, year);
+    }
+
+    @Transactional
+    public void refreshWaterYear(int year) {
+        refreshYear(WATER, year);
+    }
+
+    /**
+     * Reconstruire entièrement les deux tables (réparation, tâche "rollup-rebuild")
+     */
+    @Transactional
+    public long rebuildAll() {
+        return rebuild(ELECTRICITY) + rebuild(WATER);
+    }
+
+    /**
+     * Reconstruire au démarrage les tables incomplètes (création, données saisies avant leur existence)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public long rebuildIfIncomplete() {
+        return rebuildIfIncomplete(ELECTRICITY) + rebuildIfIncomplete(WATER);
+    }
+
+    public Optional<ElectricityRollup> getElectricityYear(int year) {
+        return electricityRollupRepo.findByPeriodTypeAndYearAndQuarter("YEAR", year, 0);
+    }
+
+    public List<ElectricityRollup> getElectricityQuarters(int year) {
+        return electricityRollupRepo.findByPeriodTypeAndYearOrderByQuarterAsc("QUARTER", year);
+    }
+
+    public List<ElectricityRollup> getElectricityYears() {
+        return electricityRollupRepo.findByPeriodTypeOrderByYearAsc("YEAR");
+    }
+
+    public Optional<ElectricityRollup> getElectricityAllTime() {
+        return electricityRollupRepo.findByPeriodTypeAndYearAndQuarter("ALL", 0, 0);
+    }
+
+    public Optional<WaterRollup> getWaterYear(int year) {
+        return waterRollupRepo.findByPeriodTypeAndYearAndQuarter("YEAR", year, 0);
+    }
+
+    public List<WaterRollup> getWaterQuarters(int year) {
+        return waterRollupRepo.findByPeriodTypeAndYearOrderByQuarterAsc("QUARTER", year);
+    }
+
+    public List<WaterRollup> getWaterYears() {
+        return waterRollupRepo.findByPeriodTypeOrderByYearAsc("YEAR");
+    }
+
+    public Optional<WaterRollup> getWaterAllTime() {
+        return waterRollupRepo.findByPeriodTypeAndYearAndQuarter("ALL", 0, 0);
+    }
+
+    private void refreshYear(Rollup rollup, int year) {
+        lock(rollup);
+        jdbcTemplate.update(rollup.upsertYearSql, year, year);
+        jdbcTemplate.update(rollup.deleteEmptyPeriodsSql, year);
+        refreshAllTime(rollup);
+    }
+
+    private long rebuild(Rollup rollup) {
+        lock(rollup);
+        jdbcTemplate.update("DELETE FROM " + rollup.table);
+        int rows = jdbcTemplate.update(rollup.rebuildSql);
+        refreshAllTime(rollup);
+        return rows;
+    }
+
+    private long rebuildIfIncomplete(Rollup rollup) {
+        lock(rollup); // Vérification et reconstruction sous le même verrou que les écritures
+        Boolean incomplete = jdbcTemplate.queryForObject(rollup.missingYearsSql, Boolean.class);
+        if (!Boolean.TRUE.equals(incomplete)) {
+            return 0;
+        }
+        long rows = rebuild(rollup);
+        logger.info("Table {} incomplète reconstruite : {} lignes", rollup.table, rows);
+        return rows;
+    }
+
+    private void refreshAllTime(Rollup rollup) {
+        jdbcTemplate.update(rollup.upsertAllTimeSql);
+        jdbcTemplate.update(rollup.deleteEmptyAllTimeSql);
+    }
+
+    private void lock(Rollup rollup) {
+        // Libéré à la fin de la transaction
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> null, rollup.table);
+    }
+
+    /**
+     * Requêtes d'une table d'agrégats, générées à partir de ses colonnes de mesure
+     */
+    private static final class Rollup {
+        private final String table;
+        private final String upsertYearSql;
+        private final String deleteEmptyPeriodsSql;
+        private final String rebuildSql;
+        private final String upsertAllTimeSql;
+        private final String deleteEmptyAllTimeSql;
+        private final String missingYearsSql;
+
+        private Rollup(String table, String sourceTable, String[] columns, String[] rawAggregates) {
+            this.table = table;
+            String columnList = "(period_type, year, quarter, month_count, " + String.join(", ", columns) + ", updated_at)";
+            String aggregates = "COUNT(*), " + String.join(", ", rawAggregates) + ", now()";
+            String onConflict = " ON CONFLICT (period_type, year, quarter) DO UPDATE SET month_count = EXCLUDED.month_count, "
+                    + Arrays.stream(columns).map(c -> c + " = EXCLUDED." + c).collect(Collectors.joining(", "))
+                    + ", updated_at = EXCLUDED.updated_at";
+            String quarterExpression = "(month - 1) / 3 + 1";
+
+            String quarters = "SELECT 'QUARTER', year, " + quarterExpression + ", " + aggregates
+                    + " FROM " + sourceTable + " %s GROUP BY year, " + quarterExpression;
+            String years = "SELECT 'YEAR', year, 0, " + aggregates + " FROM " + sourceTable + " %s GROUP BY year";
+
+            this.upsertYearSql = "INSERT INTO " + table + " " + columnList + " "
+                    + String.format(quarters, "WHERE year = ?") + " UNION ALL " + String.format(years, "WHERE year = ?")
+                    + onConflict;
+            this.rebuildSql = "INSERT INTO " + table + " " + columnList + " "
+                    + String.format(quarters, "") + " UNION ALL " + String.format(years, "");
+            this.deleteEmptyPeriodsSql = "DELETE FROM " + table + " r WHERE r.year = ? AND r.period_type <> 'ALL' "
+                    + "AND NOT EXISTS (SELECT 1 FROM " + sourceTable + " d WHERE d.year = r.year "
+                    + "AND (r.period_type = 'YEAR' OR (d.month - 1) / 3 + 1 = r.quarter))";
+
+            // ALL : combinaison des lignes YEAR (sommes, min des minima, max des maxima)
+            String combined = Arrays.stream(columns)
+                    .map(c -> (c.startsWith("max_") ? "MAX(" : c.startsWith("min_") ? "MIN(" : "SUM(") + c + ")")
+                    .collect(Collectors.joining(", "));
+            this.upsertAllTimeSql = "INSERT INTO " + table + " " + columnList
+                    + " SELECT 'ALL', 0, 0, SUM(month_count), " + combined + ", now() FROM " + table
+                    + " WHERE period_type = 'YEAR' HAVING COUNT(*) > 0" + onConflict;
+            this.deleteEmptyAllTimeSql = "DELETE FROM " + table + " WHERE period_type = 'ALL' "
+                    + "AND NOT EXISTS (SELECT 1 FROM " + table + " WHERE period_type = 'YEAR')";
+            this.missingYearsSql = "SELECT EXISTS (SELECT year FROM " + sourceTable
+                    + " EXCEPT SELECT year FROM " + table + " WHERE period_type = 'YEAR')";
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scan d'anomalies exécuté en arrière-plan, suivi par son identifiant
+ */
+public class ScanJob {
+    public enum Status { QUEUED, RUNNING, COMPLETED, INCOMPLETE, CANCELLED, FAILED }
+
+    private final String id;
+    private final List<String> sourceTypes;
+    private final boolean fullRescan;
+    private final String requestedBy;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final ScanProgress progress = new ScanProgress();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    public ScanJob(String id, List<String> sourceTypes, boolean fullRescan, String requestedBy) {
+        this.id = id;
+        this.sourceTypes = List.copyOf(sourceTypes);
+        this.fullRescan = fullRescan;
+        this.requestedBy = requestedBy;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public List<String> getSourceTypes() {
+        return sourceTypes;
+    }
+
+    public boolean isFullRescan() {
+        return fullRescan;
+    }
+
+    public ScanProgress getProgress() {
+        return progress;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+
+    void markRunning() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void markFinished(Status finalStatus, String errorMessage) {
+        finishedAt = LocalDateTime.now();
+        error = errorMessage;
+        status = finalStatus;
+    }
+
+    /**
+     * Vue JSON : lignes évaluées, anomalies trouvées, débit et temps restant estimé
+     */
+    public Map<String, Object> snapshot() {
+        long scanned = progress.getScannedRows();
+        long expected = progress.getExpectedRows();
+        LocalDateTime start = startedAt;
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        double elapsedSeconds = start != null ? Duration.between(start, end).toMillis() / 1000.0 : 0.0;
+        double throughput = elapsedSeconds > 0 ? scanned / elapsedSeconds : 0.0;
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", id);
+        view.put("status", status.name());
+        view.put("source_types", sourceTypes);
+        view.put("full_rescan", fullRescan);
+        view.put("requested_by", requestedBy);
+        view.put("created_at", createdAt.toString());
+        view.put("started_at", start != null ? start.toString() : null);
+        view.put("finished_at", finishedAt != null ? finishedAt.toString() : null);
+        view.put("rows_scored", scanned);
+        view.put("rows_expected", expected);
+        view.put("anomalies_found", progress.getAnomaliesFound());
+        view.put("throughput_rows_per_second", throughput);
+        view.put("eta_seconds", status == Status.RUNNING && throughput > 0
+                ? Math.max(0L, Math.round((expected - scanned) / throughput)) : null);
+        view.put("error", error);
+        return view;
+    }
+}
@@ -0,0 +1,228 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.repository.ScanShardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans d'anomalies manuels en arrière-plan : la requête HTTP reçoit un identifiant de job et suit
+ * l'avancement via /api/anomalies/scan-jobs/{id}. Le scan nocturne est réparti entre les nœuds
+ * par ScanShardService.
+ * Un seul scan à la fois par type de source, sur l'ensemble des instances : un job est refusé si le run
+ * réparti a des parts actives pour ce type, et il détient pendant son exécution le bail "anomaly-scan:TYPE"
+ * (LeaseService), prolongé régulièrement. Les jobs terminés sont conservés en mémoire
+ * (les app.ml.scan-job-history derniers).
+ */
+@Service
+@RequiredArgsConstructor
+public class ScanJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ScanJobService.class);
+
+    public static final List<String> ALL_SOURCE_TYPES = List.of("ELECTRICITY", "WATER");
+
+    // Bail d'un scan manuel sur un type de source ; consulté aussi par ScanShardService.planRun
+    public static final String LEASE_PREFIX = "anomaly-scan:";
+
+    private final AnomalyDetectionService detectionService;
+    private final LeaseService leaseService;
+    private final ScanShardRepository shardRepo;
+    private final AppConfig appConfig;
+
+    private final Map<String, ScanJob> jobs = new LinkedHashMap<>();
+    private ExecutorService executor;
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Un thread par type de source suffit : deux jobs sur le même type sont refusés
+        executor = Executors.newFixedThreadPool(ALL_SOURCE_TYPES.size(), runnable -> {
+            Thread thread = new Thread(runnable, "anomaly-scan-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "anomaly-scan-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (this) {
+            jobs.values().forEach(job -> job.getProgress().cancel());
+        }
+        executor.shutdownNow();
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * Créer et lancer un job ; refusé si un job actif (ici, sur un autre nœud ou dans le run réparti)
+     * couvre déjà l'un des types demandés
+     */
+    public synchronized ScanJob submit(List<String> sourceTypes, boolean fullRescan, String requestedBy) {
+        for (ScanJob job : jobs.values()) {
+            if (job.isActive() && !Collections.disjoint(job.getSourceTypes(), sourceTypes)) {
+                throw new ScanConflictException(job);
+            }
+        }
+        if (shardRepo.countActive(sourceTypes) > 0) {
+            throw new ScanConflictException("Le scan planifié est en cours pour " + sourceTypes);
+        }
+        acquireLeases(sourceTypes);
+
+        ScanJob job = new ScanJob(UUID.randomUUID().toString(), sourceTypes, fullRescan, requestedBy);
+        jobs.put(job.getId(), job);
+        trimHistory();
+        long renewEverySeconds = Math.max(1, leaseTtl().toSeconds() / 3);
+        ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> renewLeases(job),
+                renewEverySeconds, renewEverySeconds, TimeUnit.SECONDS);
+        executor.execute(() -> {
+            try {
+                run(job);
+            } finally {
+                renewal.cancel(false);
+                sourceTypes.forEach(sourceType -> leaseService.release(LEASE_PREFIX + sourceType));
+            }
+        });
+        logger.info("Job de scan {} créé ({}, complet={}) par {}", job.getId(), sourceTypes, fullRescan, requestedBy);
+        return job;
+    }
+
+    public synchronized Optional<ScanJob> findJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public synchronized List<ScanJob> getJobs() {
+        List<ScanJob> recent = new ArrayList<>(jobs.values());
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /**
+     * Demander l'arrêt d'un job ; effectif à la fin de la tranche en cours
+     */
+    public synchronized Optional<ScanJob> cancel(String id) {
+        ScanJob job = jobs.get(id);
+        if (job != null && job.isActive()) {
+            job.getProgress().cancel();
+        }
+        return Optional.ofNullable(job);
+    }
+
+    private void run(ScanJob job) {
+        ScanProgress progress = job.getProgress();
+        if (progress.isCancelled()) {
+            job.markFinished(ScanJob.Status.CANCELLED, null);
+            return;
+        }
+        job.markRunning();
+        try {
+            boolean complete = true;
+            for (String sourceType : job.getSourceTypes()) {
+                if (progress.isCancelled()) {
+                    break;
+                }
+                complete &= "WATER".equals(sourceType)
+                        ? detectionService.scanWaterData(job.isFullRescan(), progress)
+                        : detectionService.scanElectricityData(job.isFullRescan(), progress);
+            }
+            job.markFinished(progress.isCancelled() ? ScanJob.Status.CANCELLED
+                    : complete ? ScanJob.Status.COMPLETED : ScanJob.Status.INCOMPLETE, null);
+        } catch (RuntimeException e) {
+            logger.error("Job de scan {} en échec: {}", job.getId(), e.getMessage(), e);
+            job.markFinished(ScanJob.Status.FAILED, e.getMessage());
+        }
+        logger.info("Job de scan {} terminé : {} ({} lignes, {} anomalies)", job.getId(), job.getStatus(),
+                progress.getScannedRows(), progress.getAnomaliesFound());
+    }
+
+    /**
+     * Réserver chaque type demandé ; en cas de refus, libérer ceux déjà obtenus
+     */
+    private void acquireLeases(List<String> sourceTypes) {
+        List<String> acquired = new ArrayList<>();
+        for (String sourceType : sourceTypes) {
+            if (!leaseService.tryAcquire(LEASE_PREFIX + sourceType, leaseTtl())) {
+                acquired.forEach(name -> leaseService.release(LEASE_PREFIX + name));
+                throw new ScanConflictException("Un scan est déjà en cours sur un autre nœud pour " + sourceType);
+            }
+            acquired.add(sourceType);
+        }
+    }
+
+    private void renewLeases(ScanJob job) {
+        for (String sourceType : job.getSourceTypes()) {
+            try {
+                if (!leaseService.tryAcquire(LEASE_PREFIX + sourceType, leaseTtl())) {
+                    logger.warn("Bail du scan {} perdu pour {}, arrêt du job", job.getId(), sourceType);
+                    job.getProgress().cancel();
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Prolongation du bail du scan {} impossible: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private Duration leaseTtl() {
+        return Duration.ofSeconds(appConfig.getCluster().getShardLeaseSeconds());
+    }
+
+    private void trimHistory() {
+        int history = Math.max(1, appConfig.getMl().getScanJobHistory());
+        var iterator = jobs.values().iterator();
+        while (jobs.size() > history && iterator.hasNext()) {
+            if (!iterator.next().isActive()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Un job actif couvre déjà le périmètre demandé
+     */
+    public static class ScanConflictException extends RuntimeException {
+        private final ScanJob runningJob;
+
+        public ScanConflictException(ScanJob runningJob) {
+            super("Un scan est déjà en cours pour " + runningJob.getSourceTypes());
+            this.runningJob = runningJob;
+        }
+
+        /**
+         * Conflit avec un scan d'un autre nœud ou du run réparti (pas de job local à montrer)
+         */
+        public ScanConflictException(String message) {
+            super(message);
+            this.runningJob = null;
+        }
+
+        /**
+         * Job local en conflit, ou null
+         */
+        public ScanJob getRunningJob() {
+            return runningJob;
+        }
+    }
+}
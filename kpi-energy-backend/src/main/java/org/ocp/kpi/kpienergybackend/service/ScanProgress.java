@@ -0,0 +1,46 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Avancement d'un scan d'anomalies, mis à jour par tranche ; permet aussi de l'interrompre
+ * entre deux tranches.
+ */
+public class ScanProgress {
+    private final AtomicLong expectedRows = new AtomicLong();
+    private final AtomicLong scannedRows = new AtomicLong();
+    private final AtomicLong anomaliesFound = new AtomicLong();
+    private volatile boolean cancelled;
+
+    public void addExpectedRows(long rows) {
+        expectedRows.addAndGet(rows);
+    }
+
+    public void addScannedRows(long rows) {
+        scannedRows.addAndGet(rows);
+    }
+
+    public void addAnomalies(long anomalies) {
+        anomaliesFound.addAndGet(anomalies);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getExpectedRows() {
+        return expectedRows.get();
+    }
+
+    public long getScannedRows() {
+        return scannedRows.get();
+    }
+
+    public long getAnomaliesFound() {
+        return anomaliesFound.get();
+    }
+}
@@ -0,0 +1,271 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.entity.ScanShard;
+import org.ocp.kpi.kpienergybackend.repository.ScanShardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scan planifié réparti entre les instances du backend.
+ * Le nœud qui exécute la tâche de scan nocturne (AnomalyScanJob) découpe le travail en parts (type de source, année) ;
+ * chaque nœud réserve ensuite les parts libres une par une (FOR UPDATE SKIP LOCKED).
+ * Le bail d'une part est prolongé pendant son scan (tous les tiers de shard-lease-seconds) ; une part dont
+ * le bail expire (nœud arrêté en cours de scan) redevient disponible. Un nœud qui perd le bail de sa part
+ * arrête le scan à la tranche suivante.
+ * Le planificateur Spring ne fait que réserver les parts : leur scan tourne sur les threads
+ * scan-shard-N (app.cluster.shard-workers), qui enchaînent ensuite les parts libres.
+ * Une part en échec est reprise après shard-retry-delay-seconds, jusqu'à shard-max-attempts réservations.
+ * Le filigrane d'un type de source n'avance que lorsque toutes ses parts sont terminées.
+ * Un type de source dont un scan manuel détient le bail (ScanJobService) est ignoré par le run.
+ */
+@Service
+@RequiredArgsConstructor
+public class ScanShardService {
+    private static final Logger logger = LoggerFactory.getLogger(ScanShardService.class);
+
+    private static final String CLAIM_SQL =
+            "UPDATE anomaly_scan_shard SET status = 'RUNNING', owner = ?, attempts = attempts + 1, " +
+            "lease_until = now() + ? * interval '1 second' " +
+            "WHERE id = (SELECT id FROM anomaly_scan_shard " +
+            "WHERE (status = 'PENDING' AND (lease_until IS NULL OR lease_until < now())) " +
+            "OR (status = 'RUNNING' AND lease_until < now()) " +
+            "ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, run_id, source_type, year, since, run_started_at, attempts";
+
+    private static final String RENEW_SQL =
+            "UPDATE anomaly_scan_shard SET lease_until = now() + ? * interval '1 second' " +
+            "WHERE id = ? AND owner = ? AND status = 'RUNNING'";
+
+    private static final String FINISH_SQL =
+            "UPDATE anomaly_scan_shard SET status = ?, scanned_rows = ?, anomalies_found = ?, " +
+            "finished_at = now(), lease_until = NULL WHERE id = ? AND owner = ?";
+
+    // lease_until d'une part PENDING : pas de nouvelle réservation avant cette date
+    private static final String RETRY_SQL =
+            "UPDATE anomaly_scan_shard SET status = 'PENDING', owner = NULL, " +
+            "lease_until = now() + ? * interval '1 second' WHERE id = ? AND owner = ?";
+
+    private static final String PURGE_SQL =
+            "DELETE FROM anomaly_scan_shard WHERE run_started_at < now() - interval '7 days'";
+
+    private final AnomalyDetectionService detectionService;
+    private final ScanShardRepository shardRepo;
+    private final LeaseService leaseService;
+    private final JdbcTemplate jdbcTemplate;
+    private final AppConfig appConfig;
+
+    private ScheduledExecutorService heartbeat;
+    private ExecutorService workers;
+    private int workerCount;
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+
+    @PostConstruct
+    public void start() {
+        workerCount = Math.max(1, appConfig.getCluster().getShardWorkers());
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "scan-shard-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scan-shard-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * Créer les parts d'un run ; un type de source sans données à scanner avance directement son filigrane
+     */
+    public String planRun(boolean fullRescan) {
+        jdbcTemplate.update(PURGE_SQL);
+
+        String runId = UUID.randomUUID().toString();
+        LocalDateTime runStartedAt = LocalDateTime.now();
+        List<ScanShard> shards = new ArrayList<>();
+        for (String sourceType : ScanJobService.ALL_SOURCE_TYPES) {
+            if (leaseService.isHeld(ScanJobService.LEASE_PREFIX + sourceType)) {
+                // Scan manuel en cours : son filigrane fera foi, le prochain run reprendra à partir de là
+                logger.info("Scan manuel en cours pour {}, type ignoré par le run {}", sourceType, runId);
+                continue;
+            }
+            LocalDateTime since = fullRescan ? null : detectionService.findWatermark(sourceType);
+            List<Integer> years = detectionService.findYearsToScan(sourceType, since);
+            if (years.isEmpty()) {
+                detectionService.saveWatermark(sourceType, runStartedAt);
+                continue;
+            }
+            for (Integer year : years) {
+                shards.add(ScanShard.builder()
+                        .runId(runId)
+                        .sourceType(sourceType)
+                        .year(year)
+                        .since(since)
+                        .runStartedAt(runStartedAt)
+                        .status("PENDING")
+                        .build());
+            }
+        }
+        shardRepo.saveAll(shards);
+        logger.info("Run de scan {} planifié par {} : {} parts", runId, leaseService.getNodeId(), shards.size());
+        return runId;
+    }
+
+    /**
+     * Réserver une part par worker libre et la confier à ce worker, qui enchaîne sur les parts suivantes.
+     * Le thread du planificateur (partagé avec les autres tâches @Scheduled) ne scanne jamais.
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.shard-poll-ms:15000}")
+    public void pollShards() {
+        ScanShard shard;
+        // Seul le planificateur incrémente busyWorkers : pas de dépassement du nombre de workers
+        while (busyWorkers.get() < workerCount && (shard = claimNext()) != null) {
+            ScanShard claimed = shard;
+            busyWorkers.incrementAndGet();
+            try {
+                workers.execute(() -> {
+                    try {
+                        runShard(claimed);
+                        claimAndRunShards();
+                    } catch (RuntimeException e) {
+                        logger.error("Worker de scan en échec: {}", e.getMessage(), e);
+                    } finally {
+                        busyWorkers.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                busyWorkers.decrementAndGet(); // Arrêt en cours : le bail expirera et la part sera reprise
+                return;
+            }
+        }
+    }
+
+    /**
+     * Réserver et traiter les parts disponibles sur le thread appelant ; retourne le nombre de lignes évaluées
+     */
+    public long claimAndRunShards() {
+        long scannedRows = 0;
+        ScanShard shard;
+        while ((shard = claimNext()) != null) {
+            scannedRows += runShard(shard);
+        }
+        return scannedRows;
+    }
+
+    public long countFailedShards(String runId) {
+        return shardRepo.countByRunIdAndStatus(runId, "FAILED");
+    }
+
+    public List<ScanShard> getLatestRun() {
+        return shardRepo.findLatestRun();
+    }
+
+    private ScanShard claimNext() {
+        List<ScanShard> claimed = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> {
+            Timestamp since = rs.getTimestamp("since");
+            return ScanShard.builder()
+                    .id(rs.getLong("id"))
+                    .runId(rs.getString("run_id"))
+                    .sourceType(rs.getString("source_type"))
+                    .year(rs.getInt("year"))
+                    .since(since != null ? since.toLocalDateTime() : null)
+                    .runStartedAt(rs.getTimestamp("run_started_at").toLocalDateTime())
+                    .attempts(rs.getInt("attempts"))
+                    .build();
+        }, leaseService.getNodeId(), appConfig.getCluster().getShardLeaseSeconds());
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+
+    private long runShard(ScanShard shard) {
+        ScanProgress progress = new ScanProgress();
+        int leaseSeconds = appConfig.getCluster().getShardLeaseSeconds();
+        long renewEverySeconds = Math.max(1, leaseSeconds / 3);
+        ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> renewLease(shard, progress),
+                renewEverySeconds, renewEverySeconds, TimeUnit.SECONDS);
+        String status;
+        try {
+            status = detectionService.scanYear(shard.getSourceType(), shard.getYear(), shard.getSince(), progress)
+                    ? "DONE" : "FAILED";
+        } catch (RuntimeException e) {
+            logger.error("Part {} {}/{} en échec: {}", shard.getRunId(), shard.getSourceType(), shard.getYear(), e.getMessage());
+            status = "FAILED";
+        } finally {
+            renewal.cancel(false);
+        }
+
+        int maxAttempts = Math.max(1, appConfig.getCluster().getShardMaxAttempts());
+        if ("FAILED".equals(status) && shard.getAttempts() < maxAttempts) {
+            // Le filigrane reste bloqué tant qu'une part n'est pas DONE : nouvel essai différé
+            if (jdbcTemplate.update(RETRY_SQL, appConfig.getCluster().getShardRetryDelaySeconds(),
+                    shard.getId(), leaseService.getNodeId()) > 0) {
+                logger.warn("Part {} {}/{} en échec (tentative {}/{}), nouvel essai dans {} s", shard.getRunId(),
+                        shard.getSourceType(), shard.getYear(), shard.getAttempts(), maxAttempts,
+                        appConfig.getCluster().getShardRetryDelaySeconds());
+            }
+            return progress.getScannedRows();
+        }
+
+        int updated = jdbcTemplate.update(FINISH_SQL, status, progress.getScannedRows(), progress.getAnomaliesFound(),
+                shard.getId(), leaseService.getNodeId());
+        if (updated == 0) {
+            // Bail expiré et part reprise par un autre nœud : son résultat fera foi
+            logger.warn("Part {} {}/{} reprise par un autre nœud", shard.getRunId(), shard.getSourceType(), shard.getYear());
+            return progress.getScannedRows();
+        }
+
+        if ("DONE".equals(status)
+                && shardRepo.countByRunIdAndSourceTypeAndStatusNot(shard.getRunId(), shard.getSourceType(), "DONE") == 0) {
+            detectionService.saveWatermark(shard.getSourceType(), shard.getRunStartedAt());
+            logger.info("Run {} terminé pour {}", shard.getRunId(), shard.getSourceType());
+        }
+        return progress.getScannedRows();
+    }
+
+    /**
+     * Prolonger le bail de la part en cours ; s'il a été repris par un autre nœud, arrêter le scan
+     */
+    private void renewLease(ScanShard shard, ScanProgress progress) {
+        if (progress.isCancelled()) {
+            return;
+        }
+        try {
+            int renewed = jdbcTemplate.update(RENEW_SQL, appConfig.getCluster().getShardLeaseSeconds(),
+                    shard.getId(), leaseService.getNodeId());
+            if (renewed == 0) {
+                logger.warn("Bail de la part {} {}/{} perdu, arrêt du scan", shard.getRunId(),
+                        shard.getSourceType(), shard.getYear());
+                progress.cancel();
+            }
+        } catch (RuntimeException e) {
+            // Base momentanément indisponible : nouvel essai au prochain battement, avant l'expiration
+            logger.warn("Prolongation du bail de la part {} impossible: {}", shard.getId(), e.getMessage());
+        }
+    }
+}
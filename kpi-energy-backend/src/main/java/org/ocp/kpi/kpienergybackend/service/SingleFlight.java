@@ -0,0 +1,91 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Regroupement des appels identiques simultanés : le premier appel d'une clé exécute la requête,
+ * les suivants attendent et reçoivent le même résultat (qui doit donc être immuable).
+ * Rien n'est conservé une fois l'appel terminé ; ce n'est pas un cache.
+ */
+@Component
+public class SingleFlight {
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Exécuter call, ou rejoindre l'exécution en cours pour operation + arguments
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object arguments, Supplier<T> call) {
+        OperationStats operationStats = stats.computeIfAbsent(operation, name -> new OperationStats());
+        operationStats.calls.increment();
+
+        String key = operation + ":" + arguments;
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            operationStats.coalesced.increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+
+        operationStats.executions.increment();
+        try {
+            T result = call.get();
+            created.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("in_flight", inFlight.size());
+        Map<String, Object> operations = new TreeMap<>();
+        stats.forEach((operation, operationStats) -> {
+            long calls = operationStats.calls.sum();
+            long coalesced = operationStats.coalesced.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("calls", calls);
+            entry.put("executions", operationStats.executions.sum());
+            entry.put("coalesced", coalesced);
+            entry.put("coalesced_ratio", calls == 0 ? 0.0 : (double) coalesced / calls);
+            operations.put(operation, entry);
+        });
+        result.put("operations", operations);
+        return result;
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private static final class OperationStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+    }
+}
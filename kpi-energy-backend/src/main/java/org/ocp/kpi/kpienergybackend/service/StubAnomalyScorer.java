@@ -0,0 +1,31 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scoreur local sans service Python (app.ml.scorer=stub), basé uniquement sur les règles
+ * de classification. Sert aux tests et au développement.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.ml", name = "scorer", havingValue = "stub")
+public class StubAnomalyScorer implements AnomalyScorer {
+
+    @Override
+    public List<Map<String, Object>> scoreBatch(List<Map<String, Object>> inputs) {
+        List<Map<String, Object>> results = new ArrayList<>(inputs.size());
+        for (Map<String, Object> input : inputs) {
+            results.add(AnomalyRuleClassifier.score(input));
+        }
+        return results;
+    }
+
+    @Override
+    public String getModelVersion() {
+        return "rules";
+    }
+}
@@ -0,0 +1,23 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import java.io.IOException;
+
+/**
+ * Destination ligne à ligne d'un export (CSV, XLSX) : les requêtes d'ExportService écrivent
+ * les mêmes cellules quel que soit le format.
+ */
+public interface TableWriter {
+
+    TableWriter header(String... columns) throws IOException;
+
+    TableWriter field(long value) throws IOException;
+
+    TableWriter field(double value) throws IOException;
+
+    /**
+     * Cellule vide (valeur absente)
+     */
+    TableWriter empty() throws IOException;
+
+    TableWriter endRow() throws IOException;
+}
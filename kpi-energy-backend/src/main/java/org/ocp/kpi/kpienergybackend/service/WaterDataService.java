@@ -5,10 +5,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.ocp.kpi.kpienergybackend.dto.WaterDataDto;
+import org.ocp.kpi.kpienergybackend.dto.WaterDataView;
+import org.ocp.kpi.kpienergybackend.dto.WaterSummaryDto;
 import org.ocp.kpi.kpienergybackend.entity.Utilisateur;
+import org.ocp.kpi.kpienergybackend.event.KpiDataChangedEvent;
 import org.ocp.kpi.kpienergybackend.entity.WaterData;
 import org.ocp.kpi.kpienergybackend.repository.UtilisateurRepository;
 import org.ocp.kpi.kpienergybackend.repository.WaterDataRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -24,6 +28,9 @@ public class WaterDataService {
     private final UtilisateurRepository utilisateurRepo;
     private final AuditService auditService;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RollupService rollupService;
+    private final KpiSummaryCache summaryCache;
 
     @Transactional
     public WaterData saveWaterData(WaterDataDto dto) {
@@ -54,7 +61,9 @@ public class WaterDataService {
                     .build();
         }
 
-        WaterData saved = waterRepo.save(data);
+        WaterData saved = waterRepo.saveAndFlush(data);
+        // Agrégats mis à jour dans la même transaction que la saisie
+        rollupService.refreshWaterYear(saved.getYear());
 
         // Audit logging
         try {
@@ -71,19 +80,24 @@ public class WaterDataService {
             e.printStackTrace();
         }
 
+        // Détection d'anomalies, cache, etc. : traités après validation de la transaction
+        eventPublisher.publishEvent(new KpiDataChangedEvent("WATER", saved.getId(),
+                saved.getYear(), saved.getMonth(), KpiDataChangedEvent.ChangeType.SAVED));
+
         return saved;
     }
 
-    public Optional<WaterData> getDataByYearAndMonth(int year, int month) {
-        return waterRepo.findByYearAndMonth(year, month);
+    public Optional<WaterDataView> getDataByYearAndMonth(int year, int month) {
+        return waterRepo.findViewByYearAndMonth(year, month);
     }
 
-    public List<WaterData> getMonthlyDataForYear(int year) {
-        return waterRepo.findByYearOrderByMonthAsc(year);
+    public List<WaterSummaryDto> getMonthlyDataForYear(int year) {
+        return summaryCache.getYear("WATER", year, y -> waterRepo.findSummariesBetween(y, y));
     }
 
-    public List<WaterData> getAnnualData(int startYear, int endYear) {
-        return waterRepo.findByYearBetweenOrderByYearAscMonthAsc(startYear, endYear);
+    public List<WaterSummaryDto> getAnnualData(int startYear, int endYear) {
+        return summaryCache.getYears("WATER", startYear, endYear,
+                waterRepo::findSummariesBetween, WaterSummaryDto::getYear);
     }
 
 
@@ -92,6 +106,10 @@ public class WaterDataService {
         Optional<WaterData> data = waterRepo.findByYearAndMonth(year, month);
         if (data.isPresent()) {
             waterRepo.delete(data.get());
+            waterRepo.flush();
+            rollupService.refreshWaterYear(year);
+            eventPublisher.publishEvent(new KpiDataChangedEvent("WATER", data.get().getId(),
+                    year, month, KpiDataChangedEvent.ChangeType.DELETED));
             try {
                 auditService.logAction("DELETE", "water_data", data.get().getId(),
                         objectMapper.writeValueAsString(data.get()),
@@ -0,0 +1,112 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.xssf.streaming.SXSSFCell;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Écriture XLSX en flux (SXSSF) : seules les rowWindow dernières lignes restent en mémoire,
+ * les précédentes sont vidées dans un fichier temporaire compressé puis recopiées dans l'archive
+ * au moment de write(). Les nombres sont des cellules numériques ; les trois styles sont créés
+ * une seule fois par classeur (un style par cellule épuiserait la limite de 64 000 styles).
+ */
+public final class XlsxWriter implements TableWriter, AutoCloseable {
+    private final SXSSFWorkbook workbook;
+    private final SXSSFSheet sheet;
+    private final CellStyle headerStyle;
+    private final CellStyle integerStyle;
+    private final CellStyle decimalStyle;
+    private SXSSFRow row;
+    private int rowIndex;
+    private int columnIndex;
+
+    public XlsxWriter(String sheetName, int rowWindow) {
+        this.workbook = new SXSSFWorkbook(Math.max(rowWindow, 1));
+        this.workbook.setCompressTempFiles(true);
+        this.sheet = workbook.createSheet(sheetName);
+
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        this.headerStyle = workbook.createCellStyle();
+        this.headerStyle.setFont(bold);
+        this.integerStyle = workbook.createCellStyle();
+        this.integerStyle.setDataFormat(workbook.createDataFormat().getFormat("0"));
+        this.decimalStyle = workbook.createCellStyle();
+        this.decimalStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+    }
+
+    @Override
+    public XlsxWriter header(String... columns) {
+        for (String column : columns) {
+            SXSSFCell cell = nextCell();
+            cell.setCellValue(column);
+            cell.setCellStyle(headerStyle);
+        }
+        sheet.createFreezePane(0, 1);
+        return endRow();
+    }
+
+    @Override
+    public XlsxWriter field(long value) {
+        SXSSFCell cell = nextCell();
+        cell.setCellValue(value);
+        cell.setCellStyle(integerStyle);
+        return this;
+    }
+
+    @Override
+    public XlsxWriter field(double value) {
+        SXSSFCell cell = nextCell();
+        cell.setCellValue(value);
+        cell.setCellStyle(decimalStyle);
+        return this;
+    }
+
+    @Override
+    public XlsxWriter empty() {
+        columnIndex++; // Cellule absente plutôt que vide : rien à stocker
+        return this;
+    }
+
+    @Override
+    public XlsxWriter endRow() {
+        row = null;
+        columnIndex = 0;
+        rowIndex++;
+        return this;
+    }
+
+    public long getRows() {
+        return rowIndex;
+    }
+
+    /**
+     * Assembler le classeur dans out (qui n'est pas fermé)
+     */
+    public void write(OutputStream out) throws IOException {
+        workbook.write(out);
+        out.flush();
+    }
+
+    /**
+     * Supprimer les fichiers temporaires
+     */
+    @Override
+    public void close() throws IOException {
+        workbook.dispose();
+        workbook.close();
+    }
+
+    private SXSSFCell nextCell() {
+        if (row == null) {
+            row = sheet.createRow(rowIndex);
+        }
+        return row.createCell(columnIndex++);
+    }
+}
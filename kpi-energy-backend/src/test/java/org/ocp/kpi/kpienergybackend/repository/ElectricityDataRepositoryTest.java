@@ -0,0 +1,104 @@
+package org.ocp.kpi.kpienergybackend.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityDataView;
+import org.ocp.kpi.kpienergybackend.entity.ElectricityData;
+import org.ocp.kpi.kpienergybackend.entity.Utilisateur;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lectures d'un mois : projection sur la seule table electricity_data, créateur chargé à la demande
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class ElectricityDataRepositoryTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+    }
+
+    @Autowired
+    private ElectricityDataRepository electricityRepo;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void saveMonth() {
+        Utilisateur creator = new Utilisateur();
+        creator.setNomComplet("Saisie Test");
+        creator.setEmail("saisie@example.com");
+        creator.setMotDePasse("secret-hash");
+        creator.setRole("USER");
+        creator.setTelephone("0600000000");
+        creator.setDepartement("Énergie");
+        creator.setFonction("Opérateur");
+        entityManager.persist(creator);
+        entityManager.persist(ElectricityData.builder()
+                .year(2024)
+                .month(3)
+                .network60kvActiveEnergy(1000)
+                .network60kvReactiveEnergy(500)
+                .network60kvPeak(40)
+                .network22kvActiveEnergy(200)
+                .network22kvReactiveEnergy(0)
+                .network22kvPeak(10)
+                .createdBy(creator)
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void viewReadsKpiColumnsWithoutLoadingAnyEntity() {
+        ElectricityDataView view = electricityRepo.findViewByYearAndMonth(2024, 3).orElseThrow();
+
+        assertThat(view.getNetwork60kvActiveEnergy()).isEqualTo(1000);
+        assertThat(view.getNetwork60kvPowerFactor()).isEqualTo(Math.cos(Math.atan(0.5)));
+        assertThat(view.getTotalActiveEnergy()).isEqualTo(1200);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void entityLeavesCreatorUnloadedAndOutOfJson() throws Exception {
+        ElectricityData data = electricityRepo.findByYearAndMonth(2024, 3).orElseThrow();
+
+        assertThat(Hibernate.isInitialized(data.getCreatedBy())).isFalse();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+
+        String json = new ObjectMapper().findAndRegisterModules().writeValueAsString(data);
+        assertThat(json).doesNotContain("createdBy").doesNotContain("secret-hash");
+        assertThat(Hibernate.isInitialized(data.getCreatedBy())).isFalse();
+    }
+}
@@ -0,0 +1,69 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    void initialLimitIsClampedToBounds() {
+        assertThat(new AdaptiveConcurrencyLimiter(50, 2, 8, 100, 0.5).getLimit()).isEqualTo(8);
+        assertThat(new AdaptiveConcurrencyLimiter(0, 2, 8, 100, 0.5).getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsWhenLimitReachedAndTimeoutExpires() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 100, 0.5);
+
+        assertThat(limiter.acquire(0)).isTrue();
+        assertThat(limiter.acquire(0)).isTrue();
+        assertThat(limiter.acquire(10)).isFalse();
+        assertThat(limiter.snapshot()).containsEntry("in_flight", 2).containsEntry("rejected", 1L);
+
+        limiter.release(FAST, true);
+        assertThat(limiter.acquire(0)).isTrue();
+    }
+
+    @Test
+    void fastSuccessesIncreaseLimitAdditively() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 100, 0.5);
+
+        // +1/limite par appel : 2 -> 2,5 -> 2,9 -> 3,24
+        cycle(limiter, FAST, true);
+        cycle(limiter, FAST, true);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        cycle(limiter, FAST, true);
+        assertThat(limiter.getLimit()).isEqualTo(3);
+
+        for (int i = 0; i < 100; i++) {
+            cycle(limiter, FAST, true);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void failuresAndSlowCallsBackOffMultiplicatively() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 8, 100, 0.5);
+
+        cycle(limiter, FAST, false);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        cycle(limiter, SLOW, true);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        for (int i = 0; i < 10; i++) {
+            cycle(limiter, SLOW, true);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(1);
+    }
+
+    private static void cycle(AdaptiveConcurrencyLimiter limiter, long latencyNanos, boolean success)
+            throws InterruptedException {
+        assertThat(limiter.acquire(0)).isTrue();
+        limiter.release(latencyNanos, success);
+    }
+}
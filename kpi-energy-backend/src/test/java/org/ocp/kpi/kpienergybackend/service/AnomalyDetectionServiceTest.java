@@ -0,0 +1,270 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityFeatureRow;
+import org.ocp.kpi.kpienergybackend.entity.Anomaly;
+import org.ocp.kpi.kpienergybackend.entity.ScanWatermark;
+import org.ocp.kpi.kpienergybackend.repository.AnomalyRepository;
+import org.ocp.kpi.kpienergybackend.repository.ElectricityDataRepository;
+import org.ocp.kpi.kpienergybackend.repository.ScanWatermarkRepository;
+import org.ocp.kpi.kpienergybackend.repository.WaterDataRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Scan avec le scoreur à règles (app.ml.scorer=stub), sans base ni service Python
+ */
+class AnomalyDetectionServiceTest {
+
+    private final ElectricityDataRepository electricityRepo = mock(ElectricityDataRepository.class);
+    private final AnomalyRepository anomalyRepo = mock(AnomalyRepository.class);
+    private final ScanWatermarkRepository watermarkRepo = mock(ScanWatermarkRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AppConfig appConfig = new AppConfig();
+    private final RecordingScorer scorer = new RecordingScorer();
+
+    private AnomalyDetectionService service;
+
+    @BeforeEach
+    void createService() {
+        // Une ligne par tranche : l'annulation est vérifiée entre chaque ligne
+        appConfig.getMl().setBatchSize(1);
+        appConfig.getMl().setConcurrency(1);
+        service = new AnomalyDetectionService(electricityRepo, mock(WaterDataRepository.class), anomalyRepo,
+                watermarkRepo, scorer, null, null, new AnomalyResultCache(scorer, appConfig), appConfig,
+                new ObjectMapper(), jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        when(electricityRepo.count()).thenReturn(3L);
+        when(electricityRepo.streamFeatureRows()).thenReturn(Stream.of(
+                row(1L, 0.95, 1_000_000),   // Normal
+                row(2L, 0.70, 1_000_000),   // Facteur de puissance 60 kV trop bas
+                row(3L, 0.95, 0)));          // Énergie nulle
+        when(anomalyRepo.streamSourceIds("ELECTRICITY")).thenReturn(Stream.empty());
+    }
+
+    @Test
+    void fullScanAdvancesWatermarkToScanStart() {
+        LocalDateTime before = LocalDateTime.now();
+        ScanProgress progress = new ScanProgress();
+
+        assertThat(service.scanElectricityData(true, progress)).isTrue();
+
+        ArgumentCaptor<ScanWatermark> saved = ArgumentCaptor.forClass(ScanWatermark.class);
+        verify(watermarkRepo).save(saved.capture());
+        assertThat(saved.getValue().getSourceType()).isEqualTo("ELECTRICITY");
+        assertThat(saved.getValue().getLastScannedAt()).isAfterOrEqualTo(before).isBeforeOrEqualTo(LocalDateTime.now());
+        assertThat(progress.getExpectedRows()).isEqualTo(3);
+        assertThat(progress.getScannedRows()).isEqualTo(3);
+        verify(watermarkRepo, never()).findById(any());
+    }
+
+    @Test
+    void incrementalScanReadsRowsModifiedSinceWatermarkWithOverlap() {
+        LocalDateTime watermark = LocalDateTime.of(2024, 3, 1, 2, 0);
+        LocalDateTime from = watermark.minusMinutes(5);
+        when(watermarkRepo.findById("ELECTRICITY")).thenReturn(Optional.of(
+                ScanWatermark.builder().sourceType("ELECTRICITY").lastScannedAt(watermark).build()));
+        when(electricityRepo.countModifiedSince(from)).thenReturn(1L);
+        when(electricityRepo.streamFeatureRowsModifiedSince(from)).thenReturn(Stream.of(row(4L, 0.95, 1_000_000)));
+        ScanProgress progress = new ScanProgress();
+
+        assertThat(service.scanElectricityData(false, progress)).isTrue();
+
+        assertThat(scorer.batches).hasSize(1);
+        assertThat(progress.getExpectedRows()).isEqualTo(1);
+        verify(electricityRepo, never()).streamFeatureRows();
+        verify(watermarkRepo).save(any(ScanWatermark.class));
+    }
+
+    @Test
+    void unscoredRowsKeepWatermark() {
+        scorer.failOnMonth = 2;
+
+        assertThat(service.scanElectricityData(true, new ScanProgress())).isFalse();
+
+        verify(watermarkRepo, never()).save(any(ScanWatermark.class));
+    }
+
+    @Test
+    void rulesOnlyResponsesKeepWatermarkButRecordRuleAnomalies() {
+        scorer.degraded = true; // Modèle pas encore entraîné
+
+        assertThat(service.scanElectricityData(true, new ScanProgress())).isFalse();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList()); // Mois 2 et 3
+        verify(watermarkRepo, never()).save(any(ScanWatermark.class));
+    }
+
+    @Test
+    void cancelledScanKeepsWatermark() {
+        ScanProgress progress = new ScanProgress();
+        progress.cancel();
+
+        assertThat(service.scanElectricityData(true, progress)).isFalse();
+
+        assertThat(progress.getScannedRows()).isZero();
+        verify(watermarkRepo, never()).save(any(ScanWatermark.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void alreadyReportedSourcesAreSkippedAndNewOnesInsertedInOneBatch() {
+        appConfig.getMl().setBatchSize(3);
+        when(anomalyRepo.streamSourceIds("ELECTRICITY")).thenReturn(Stream.of(3L));
+
+        assertThat(service.scanElectricityData(true, new ScanProgress())).isTrue();
+
+        ArgumentCaptor<List<Object[]>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), inserted.capture());
+        assertThat(inserted.getValue()).hasSize(1);
+        assertThat(inserted.getValue().get(0)[1]).isEqualTo(2L);
+        assertThat(inserted.getValue().get(0)[5]).isEqualTo("LOW_POWER_FACTOR");
+    }
+
+    @Test
+    void streamsRowsInSlicesOfBatchSizeTimesConcurrency() {
+        appConfig.getMl().setBatchSize(2);
+        appConfig.getMl().setConcurrency(2);
+        AtomicBoolean closed = new AtomicBoolean();
+        when(electricityRepo.streamFeatureRows()).thenReturn(LongStream.rangeClosed(1, 7)
+                .mapToObj(id -> row(id, 0.95, 1_000_000))
+                .onClose(() -> closed.set(true)));
+
+        assertThat(service.scanElectricityData(true, new ScanProgress())).isTrue();
+
+        assertThat(scorer.batches).containsExactly(4, 3);
+        assertThat(closed).isTrue(); // Curseur libéré en fin de scan
+    }
+
+    @Test
+    void yearShardStreamsOnlyThatYear() {
+        when(electricityRepo.streamFeatureRowsForYear(2023)).thenReturn(Stream.of(row(8L, 0.95, 1_000_000)));
+        ScanProgress progress = new ScanProgress();
+
+        assertThat(service.scanYear("ELECTRICITY", 2023, null, progress)).isTrue();
+
+        assertThat(progress.getScannedRows()).isEqualTo(1);
+        verify(electricityRepo, never()).streamFeatureRows();
+        verify(watermarkRepo, never()).save(any(ScanWatermark.class)); // Avancé à la fin du run
+    }
+
+    @Test
+    void resavedMonthStillAnomalousUpdatesOpenAnomaly() {
+        Anomaly reported = reported(3L, "DATA_ENTRY_ERROR");
+        when(electricityRepo.findFeatureRow(2024, 3)).thenReturn(Optional.of(row(3L, 0.70, 1_000_000)));
+        when(anomalyRepo.findBySourceTypeAndSourceId("ELECTRICITY", 3L)).thenReturn(List.of(reported));
+
+        assertThat(service.scanMonth("ELECTRICITY", 2024, 3)).isTrue();
+
+        verify(anomalyRepo).save(reported);
+        assertThat(reported.getAnomalyType()).isEqualTo("LOW_POWER_FACTOR");
+        assertThat(reported.getResolved()).isFalse();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void correctedMonthResolvesOpenAnomaly() {
+        Anomaly reported = reported(3L, "DATA_ENTRY_ERROR");
+        when(electricityRepo.findFeatureRow(2024, 3)).thenReturn(Optional.of(row(3L, 0.95, 1_000_000)));
+        when(anomalyRepo.findBySourceTypeAndSourceId("ELECTRICITY", 3L)).thenReturn(List.of(reported));
+
+        assertThat(service.scanMonth("ELECTRICITY", 2024, 3)).isTrue();
+
+        verify(anomalyRepo).save(reported);
+        assertThat(reported.getResolved()).isTrue();
+        assertThat(reported.getResolvedBy()).isEqualTo("system");
+        assertThat(reported.getResolvedAt()).isNotNull();
+    }
+
+    @Test
+    void rulesOnlyResponseDoesNotResolveOpenAnomaly() {
+        scorer.degraded = true;
+        Anomaly reported = reported(3L, "CONSUMPTION_SPIKE");
+        when(electricityRepo.findFeatureRow(2024, 3)).thenReturn(Optional.of(row(3L, 0.95, 1_000_000)));
+        when(anomalyRepo.findBySourceTypeAndSourceId("ELECTRICITY", 3L)).thenReturn(List.of(reported));
+
+        assertThat(service.scanMonth("ELECTRICITY", 2024, 3)).isFalse();
+
+        verify(anomalyRepo, never()).save(any(Anomaly.class));
+        assertThat(reported.getResolved()).isFalse();
+    }
+
+    @Test
+    void newlyAnomalousMonthIsInserted() {
+        when(electricityRepo.findFeatureRow(2024, 2)).thenReturn(Optional.of(row(2L, 0.70, 1_000_000)));
+        when(anomalyRepo.findBySourceTypeAndSourceId("ELECTRICITY", 2L)).thenReturn(List.of());
+
+        assertThat(service.scanMonth("ELECTRICITY", 2024, 2)).isTrue();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    private static Anomaly reported(Long sourceId, String anomalyType) {
+        Anomaly anomaly = new Anomaly();
+        anomaly.setId(10L);
+        anomaly.setSourceType("ELECTRICITY");
+        anomaly.setSourceId(sourceId);
+        anomaly.setAnomalyType(anomalyType);
+        anomaly.setSeverityScore(0.9);
+        return anomaly;
+    }
+
+    private static ElectricityFeatureRow row(Long id, double powerFactor60, double activeEnergy) {
+        return new ElectricityFeatureRow(id, 2024, id.intValue(), activeEnergy, 100, 1_000,
+                activeEnergy, 100, 1_000, powerFactor60, 0.95);
+    }
+
+    /**
+     * Scoreur à règles qui mémorise les lots reçus ; failOnMonth : mois laissé sans réponse (null),
+     * degraded : réponses marquées comme repli
+     */
+    private static final class RecordingScorer implements AnomalyScorer {
+        private final StubAnomalyScorer rules = new StubAnomalyScorer();
+        private final List<Integer> batches = new ArrayList<>();
+        private Integer failOnMonth;
+        private boolean degraded;
+
+        @Override
+        public List<Map<String, Object>> scoreBatch(List<Map<String, Object>> inputs) {
+            batches.add(inputs.size());
+            List<Map<String, Object>> results = new ArrayList<>(rules.scoreBatch(inputs));
+            for (int i = 0; i < inputs.size(); i++) {
+                if (failOnMonth != null && failOnMonth.equals(inputs.get(i).get("month"))) {
+                    results.set(i, null);
+                } else if (degraded) {
+                    results.get(i).put("degraded", true);
+                }
+            }
+            return results;
+        }
+
+        @Override
+        public String getModelVersion() {
+            return rules.getModelVersion();
+        }
+    }
+}
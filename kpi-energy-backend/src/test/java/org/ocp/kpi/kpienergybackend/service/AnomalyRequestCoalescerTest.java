@@ -0,0 +1,132 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnomalyRequestCoalescerTest {
+
+    private final AppConfig appConfig = new AppConfig();
+    private final EchoScorer scorer = new EchoScorer();
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+    private AnomalyRequestCoalescer coalescer;
+
+    @AfterEach
+    void stop() {
+        callers.shutdownNow();
+        if (coalescer != null) {
+            coalescer.stop();
+        }
+    }
+
+    @Test
+    void fullBatchIsFlushedWithoutWaitingForWindow() throws Exception {
+        start(60_000, 4);
+
+        long startNanos = System.nanoTime();
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int id = i;
+            results.add(callers.submit(() -> coalescer.score(point(id))));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(results.get(i).get(5, TimeUnit.SECONDS)).containsEntry("echo", i);
+        }
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos)).isLessThan(5);
+        assertThat(scorer.batchSizes).containsExactly(4);
+        assertThat(coalescer.getStats()).containsEntry("requests", 4L).containsEntry("batches", 1L);
+    }
+
+    @Test
+    void partialBatchIsFlushedWhenWindowCloses() throws Exception {
+        start(50, 32);
+
+        assertThat(coalescer.score(point(7))).containsEntry("echo", 7);
+        assertThat(scorer.batchSizes).containsExactly(1);
+    }
+
+    @Test
+    void unscoredPointIsRetriedAlone() throws Exception {
+        start(50, 32);
+        scorer.nullInBatch = true;
+
+        assertThat(coalescer.score(point(3))).containsEntry("echo", 3).containsEntry("single", true);
+    }
+
+    @Test
+    void batchFailureFallsBackToSingleScoreAndPropagatesItsError() throws Exception {
+        start(50, 32);
+        scorer.failBatch = true;
+
+        assertThat(coalescer.score(point(1))).containsEntry("single", true);
+
+        scorer.failSingle = true;
+        assertThatThrownBy(() -> coalescer.score(point(2))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void disabledCoalescerScoresDirectly() throws Exception {
+        appConfig.getMl().getCoalescer().setEnabled(false);
+        coalescer = new AnomalyRequestCoalescer(scorer, appConfig);
+        coalescer.start();
+
+        assertThat(coalescer.score(point(5))).containsEntry("single", true);
+        assertThat(scorer.batchSizes).isEmpty();
+        assertThat(coalescer.getStats()).containsEntry("enabled", false);
+    }
+
+    private void start(int windowMs, int maxBatchSize) {
+        appConfig.getMl().getCoalescer().setWindowMs(windowMs);
+        appConfig.getMl().getCoalescer().setMaxBatchSize(maxBatchSize);
+        coalescer = new AnomalyRequestCoalescer(scorer, appConfig);
+        coalescer.start();
+    }
+
+    private static Map<String, Object> point(int id) {
+        return Map.of("data_type", "water", "id", id);
+    }
+
+    /**
+     * Renvoie l'identifiant de chaque point ; "single" marque un appel unitaire
+     */
+    private static final class EchoScorer implements AnomalyScorer {
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private volatile boolean nullInBatch;
+        private volatile boolean failBatch;
+        private volatile boolean failSingle;
+
+        @Override
+        public List<Map<String, Object>> scoreBatch(List<Map<String, Object>> inputs) {
+            batchSizes.add(inputs.size());
+            if (failBatch) {
+                throw new IllegalStateException("Lot refusé");
+            }
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Map<String, Object> input : inputs) {
+                results.add(nullInBatch ? null : Map.of("echo", input.get("id")));
+            }
+            return results;
+        }
+
+        @Override
+        public Map<String, Object> score(Map<String, Object> input) {
+            if (failSingle) {
+                throw new IllegalStateException("Point refusé");
+            }
+            return Map.of("echo", input.get("id"), "single", true);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnomalyResultCacheTest {
+
+    private final AnomalyResultCache cache = new AnomalyResultCache(new StubAnomalyScorer(), new AppConfig());
+
+    @Test
+    void keyIgnoresEntryOrder() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("data_type", "water");
+        first.put("f3", 10.0);
+        first.put("f3bis", 20.0);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("f3bis", 20.0);
+        second.put("f3", 10.0);
+        second.put("data_type", "water");
+
+        assertThat(cache.keyOf(second)).isEqualTo(cache.keyOf(first));
+    }
+
+    @Test
+    void keyIgnoresPeriodAndNonNumericValues() {
+        Map<String, Object> point = water(10.0);
+        Map<String, Object> otherMonth = water(10.0);
+        otherMonth.put("year", 2030);
+        otherMonth.put("month", 7);
+        otherMonth.put("comment", "saisie manuelle");
+
+        assertThat(cache.keyOf(otherMonth)).isEqualTo(cache.keyOf(point));
+    }
+
+    @Test
+    void keyNormalisesNumericTypesAndNegativeZero() {
+        assertThat(cache.keyOf(water(1))).isEqualTo(cache.keyOf(water(1.0)));
+        assertThat(cache.keyOf(water(1L))).isEqualTo(cache.keyOf(water(1.0f)));
+        assertThat(cache.keyOf(water(-0.0))).isEqualTo(cache.keyOf(water(0)));
+    }
+
+    @Test
+    void keyDependsOnValuesAndDataType() {
+        assertThat(cache.keyOf(water(10.0))).isNotEqualTo(cache.keyOf(water(10.5)));
+
+        Map<String, Object> electricity = water(10.0);
+        electricity.put("data_type", "electricity");
+        assertThat(cache.keyOf(electricity)).isNotEqualTo(cache.keyOf(water(10.0)));
+
+        // Même valeur, feature différente
+        Map<String, Object> renamed = new HashMap<>();
+        renamed.put("data_type", "water");
+        renamed.put("f3bis", 10.0);
+        assertThat(cache.keyOf(renamed)).isNotEqualTo(cache.keyOf(water(10.0)));
+    }
+
+    @Test
+    void modelVersionChangeBetweenTwoGetsInvalidatesEntries() {
+        AtomicReference<String> version = new AtomicReference<>("v1");
+        AnomalyScorer scorer = new StubAnomalyScorer() {
+            @Override
+            public String getModelVersion() {
+                return version.get();
+            }
+        };
+        AnomalyResultCache versionedCache = new AnomalyResultCache(scorer, new AppConfig());
+        String key = versionedCache.keyOf(water(10.0));
+        versionedCache.put(key, Map.of("is_anomaly", false));
+
+        assertThat(versionedCache.get(key)).containsEntry("is_anomaly", false);
+        version.set("v2");
+        assertThat(versionedCache.get(key)).isNull();
+
+        assertThat(versionedCache.getStats())
+                .containsEntry("model_version", "v2")
+                .containsEntry("size", 0)
+                .containsEntry("invalidations", 1L);
+    }
+
+    @Test
+    void degradedResultsAreNotCached() {
+        String key = cache.keyOf(water(10.0));
+        cache.put(key, Map.of("is_anomaly", true, "degraded", true));
+
+        assertThat(cache.get(key)).isNull();
+    }
+
+    private static Map<String, Object> water(Number f3) {
+        Map<String, Object> point = new HashMap<>();
+        point.put("data_type", "water");
+        point.put("year", 2024);
+        point.put("month", 1);
+        point.put("f3", f3);
+        return point;
+    }
+}
@@ -0,0 +1,88 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mêmes cas que classify_electricity_anomaly / classify_water_anomaly (ml-service/app.py)
+ */
+class AnomalyRuleClassifierTest {
+
+    @Test
+    void classifiesElectricityRulesInPriorityOrder() {
+        assertThat(AnomalyRuleClassifier.classifyElectricity(electricity(0.80, 0.90, 1_000_000, 100), 0))
+                .isEqualTo("LOW_POWER_FACTOR");
+        assertThat(AnomalyRuleClassifier.classifyElectricity(electricity(0.95, 0.70, 1_000_000, 100), 0))
+                .isEqualTo("LOW_POWER_FACTOR");
+        assertThat(AnomalyRuleClassifier.classifyElectricity(electricity(0.95, 0.90, 40_000, 100), 0))
+                .isEqualTo("CONSUMPTION_SPIKE");
+        assertThat(AnomalyRuleClassifier.classifyElectricity(electricity(0.95, 0.90, 0, 0), 0))
+                .isEqualTo("DATA_ENTRY_ERROR");
+        assertThat(AnomalyRuleClassifier.classifyElectricity(electricity(0.95, 0.90, 1_000_000, 100), -0.6))
+                .isEqualTo("SEVERE_ANOMALY");
+        assertThat(AnomalyRuleClassifier.classifyElectricity(electricity(0.95, 0.90, 1_000_000, 100), -0.3))
+                .isEqualTo("MODERATE_ANOMALY");
+        assertThat(AnomalyRuleClassifier.classifyElectricity(electricity(0.95, 0.90, 1_000_000, 100), 0.1))
+                .isEqualTo(AnomalyRuleClassifier.GENERAL_ANOMALY);
+    }
+
+    @Test
+    void classifiesWaterRules() {
+        assertThat(AnomalyRuleClassifier.classifyWater(water(0, 20_000, 20_000, 20_000), 0)).isEqualTo("DATA_ENTRY_ERROR");
+        assertThat(AnomalyRuleClassifier.classifyWater(water(200_000, 200_000, 100_000, 100_000), 0)).isEqualTo("WATER_LEAK");
+        assertThat(AnomalyRuleClassifier.classifyWater(water(10_000, 30_000, 20_000, 20_000), 0)).isEqualTo("PRODUCTION_ISSUE");
+        assertThat(AnomalyRuleClassifier.classifyWater(water(10_000, 10_000, 10_000, 10_000), 0)).isEqualTo("LOW_CONSUMPTION");
+        assertThat(AnomalyRuleClassifier.classifyWater(water(50_000, 50_000, 50_000, 50_000), -0.6)).isEqualTo("SEVERE_WATER_ANOMALY");
+        assertThat(AnomalyRuleClassifier.classifyWater(water(50_000, 50_000, 50_000, 50_000), 0)).isEqualTo(AnomalyRuleClassifier.GENERAL_ANOMALY);
+    }
+
+    @Test
+    void scoreFlagsOnlySpecificRules() {
+        Map<String, Object> anomaly = AnomalyRuleClassifier.score(water(0, 20_000, 20_000, 20_000));
+        assertThat(anomaly).containsEntry("is_anomaly", true)
+                .containsEntry("anomaly_type", "DATA_ENTRY_ERROR")
+                .containsEntry("anomaly_score", -1.0);
+
+        Map<String, Object> normal = AnomalyRuleClassifier.score(electricity(0.95, 0.90, 1_000_000, 100));
+        assertThat(normal).containsEntry("is_anomaly", false).containsEntry("anomaly_score", 0.0);
+    }
+
+    @Test
+    void valueAcceptsNumbersAndNumericStrings() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("int", 3);
+        data.put("text", "2.5");
+        data.put("invalid", "n/a");
+
+        assertThat(AnomalyRuleClassifier.value(data, "int", 0)).isEqualTo(3.0);
+        assertThat(AnomalyRuleClassifier.value(data, "text", 0)).isEqualTo(2.5);
+        assertThat(AnomalyRuleClassifier.value(data, "invalid", 7)).isEqualTo(7.0);
+        assertThat(AnomalyRuleClassifier.value(data, "missing", 1)).isEqualTo(1.0);
+    }
+
+    private static Map<String, Object> electricity(double powerFactor60, double powerFactor22,
+                                                   double activeEnergy, double peak) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("data_type", "electricity");
+        data.put("network60kv_power_factor", powerFactor60);
+        data.put("network22kv_power_factor", powerFactor22);
+        data.put("network60kv_active_energy", activeEnergy);
+        data.put("network60kv_peak", peak);
+        data.put("network22kv_active_energy", activeEnergy);
+        return data;
+    }
+
+    private static Map<String, Object> water(double f3bis, double f3, double se2, double se3bis) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("data_type", "water");
+        data.put("f3bis", f3bis);
+        data.put("f3", f3);
+        data.put("se2", se2);
+        data.put("se3bis", se3bis);
+        return data;
+    }
+}
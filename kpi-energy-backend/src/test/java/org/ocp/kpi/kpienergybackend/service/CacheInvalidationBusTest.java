@@ -0,0 +1,137 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.event.CacheInvalidationEvent;
+import org.ocp.kpi.kpienergybackend.event.KpiDataChangedEvent;
+import org.ocp.kpi.kpienergybackend.security.CustomUserDetailsService;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Deux instances du backend simulées par deux bus sur le même serveur PostgreSQL (LISTEN/NOTIFY)
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CacheInvalidationBusTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private final AppConfig appConfig = new AppConfig();
+    private final KpiSummaryCache summaryCacheA = new KpiSummaryCache(appConfig);
+    private final KpiSummaryCache summaryCacheB = new KpiSummaryCache(appConfig);
+    private final CustomUserDetailsService usersA = mock(CustomUserDetailsService.class);
+    private final CustomUserDetailsService usersB = mock(CustomUserDetailsService.class);
+    private final AtomicInteger loadsB = new AtomicInteger();
+
+    private JdbcTemplate jdbcTemplate;
+    private CacheInvalidationBus busA;
+    private CacheInvalidationBus busB;
+
+    @BeforeEach
+    void startBuses() throws InterruptedException {
+        appConfig.getCacheBus().setPollMs(50);
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(postgres.getJdbcUrl());
+        properties.setUsername(postgres.getUsername());
+        properties.setPassword(postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+
+        busA = new CacheInvalidationBus(jdbcTemplate, properties, summaryCacheA, usersA, appConfig);
+        busB = new CacheInvalidationBus(jdbcTemplate, properties, summaryCacheB, usersB, appConfig);
+        busA.start();
+        busB.start();
+        await(() -> isConnected(busA) && isConnected(busB));
+        // Vidage complet à la connexion
+        verify(usersA, timeout(5000)).evictAll();
+        verify(usersB, timeout(5000)).evictAll();
+        clearInvocations(usersA, usersB);
+    }
+
+    @AfterEach
+    void stopBuses() {
+        busA.stop();
+        busB.stop();
+    }
+
+    @Test
+    void committedWriteInvalidatesSameYearOnOtherInstance() throws InterruptedException {
+        loadOnB(2023);
+        loadOnB(2024);
+
+        busA.onDataChanged(new KpiDataChangedEvent("WATER", 1L, 2023, 5, KpiDataChangedEvent.ChangeType.SAVED));
+
+        await(() -> applied(busB) == 1);
+        loadOnB(2023);
+        loadOnB(2024);
+        assertThat(loadsB).hasValue(3); // Seule 2023 est rechargée
+        // L'émetteur reçoit son propre message mais l'ignore
+        await(() -> received(busA) == 1);
+        assertThat(applied(busA)).isZero();
+    }
+
+    @Test
+    void userInvalidationEvictsLocallyAndRemotely() {
+        busA.onCacheInvalidation(new CacheInvalidationEvent(CacheInvalidationBus.USER, "admin"));
+
+        verify(usersA).evictAll();
+        verify(usersB, timeout(5000)).evictAll();
+    }
+
+    @Test
+    void malformedMessagesAreIgnored() throws InterruptedException {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, appConfig.getCacheBus().getChannel(), "sans séparateur");
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, appConfig.getCacheBus().getChannel(),
+                "autre|summary|WATER:deux-mille");
+
+        await(() -> received(busB) == 2);
+        assertThat(applied(busB)).isZero();
+        verify(usersB, never()).evictAll();
+    }
+
+    private void loadOnB(int year) {
+        summaryCacheB.getYear("WATER", year, y -> {
+            loadsB.incrementAndGet();
+            return List.of(y);
+        });
+    }
+
+    private static boolean isConnected(CacheInvalidationBus bus) {
+        return Boolean.TRUE.equals(bus.getStats().get("connected"));
+    }
+
+    private static long applied(CacheInvalidationBus bus) {
+        return (Long) bus.getStats().get("applied");
+    }
+
+    private static long received(CacheInvalidationBus bus) {
+        return (Long) bus.getStats().get("received");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,132 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicBoolean healthy = new AtomicBoolean(true);
+    private final List<Runnable> pendingProbes = new ArrayList<>();
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1), pendingProbes::add);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess(); // Remet le compteur à zéro
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.recordFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(pendingProbes).isEmpty(); // openDuration non écoulée
+    }
+
+    @Test
+    void probeRunsInBackgroundWhileCallersAreRejected() {
+        CircuitBreaker breaker = breaker(Duration.ZERO, pendingProbes::add);
+        open(breaker);
+
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(pendingProbes).hasSize(1); // Une seule sonde à la fois
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        pendingProbes.remove(0).run();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulTrials() {
+        CircuitBreaker breaker = breaker(Duration.ZERO, Runnable::run);
+        open(breaker);
+
+        assertThat(breaker.allowRequest()).isFalse(); // Déclenche la sonde
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.allowRequest()).isFalse(); // Permis d'essai épuisés
+
+        breaker.recordSuccess();
+        breaker.recordSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void halfOpenReopensOnFirstFailure() {
+        CircuitBreaker breaker = breaker(Duration.ZERO, Runnable::run);
+        open(breaker);
+        breaker.allowRequest();
+
+        assertThat(breaker.allowRequest()).isTrue();
+        breaker.recordFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void releasedPermitCanBeReused() {
+        CircuitBreaker breaker = breaker(Duration.ZERO, Runnable::run);
+        open(breaker);
+        breaker.allowRequest();
+
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.allowRequest()).isTrue();
+        breaker.releasePermit();
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void failedProbeKeepsCircuitOpen() {
+        healthy.set(false);
+        CircuitBreaker breaker = breaker(Duration.ZERO, Runnable::run);
+        open(breaker);
+
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        healthy.set(true);
+        assertThat(breaker.allowRequest()).isFalse(); // Nouvelle sonde, réussie cette fois
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void rejectedProbeIsRetriedOnNextCall() {
+        List<Runnable> accepted = new ArrayList<>();
+        AtomicBoolean reject = new AtomicBoolean(true);
+        CircuitBreaker breaker = breaker(Duration.ZERO, task -> {
+            if (reject.get()) {
+                throw new RejectedExecutionException();
+            }
+            accepted.add(task);
+        });
+        open(breaker);
+
+        assertThat(breaker.allowRequest()).isFalse();
+        reject.set(false);
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(accepted).hasSize(1);
+        assertThat(breaker.snapshot()).containsEntry("rejected_calls", 2L);
+    }
+
+    private CircuitBreaker breaker(Duration openDuration, Executor probeExecutor) {
+        return new CircuitBreaker("test", 3, openDuration, 2, healthy::get, probeExecutor);
+    }
+
+    private static void open(CircuitBreaker breaker) {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+    }
+}
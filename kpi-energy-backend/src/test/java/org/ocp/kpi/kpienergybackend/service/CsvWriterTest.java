@@ -0,0 +1,91 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Le format des décimaux doit rester celui de l'ancien printf("%.2f"), avec un point comme séparateur
+ */
+class CsvWriterTest {
+
+    @Test
+    void roundsHalfUpOnDecimalRepresentation() throws IOException {
+        assertThat(format(2.675)).isEqualTo("2.68");
+        assertThat(format(1.005)).isEqualTo("1.01");
+        assertThat(format(0.125)).isEqualTo("0.13");
+        assertThat(format(0.994)).isEqualTo("0.99");
+        assertThat(format(0.995)).isEqualTo("1.00");
+        assertThat(format(12.3)).isEqualTo("12.30");
+    }
+
+    @Test
+    void keepsSignOfNegativeValues() throws IOException {
+        assertThat(format(-2.675)).isEqualTo("-2.68");
+        assertThat(format(-1.005)).isEqualTo("-1.01");
+        assertThat(format(-0.001)).isEqualTo("-0.00");
+        assertThat(format(-0.005)).isEqualTo("-0.01");
+    }
+
+    @Test
+    void writesZero() throws IOException {
+        assertThat(format(0.0)).isEqualTo("0.00");
+        assertThat(format(-0.0)).isEqualTo("-0.00");
+    }
+
+    @Test
+    void writesLargeValuesWithoutExponent() throws IOException {
+        assertThat(format(123456789012.345)).isEqualTo("123456789012.35");
+        assertThat(format(1e15)).isEqualTo("1000000000000000.00");
+        assertThat(format(-1.5e20)).isEqualTo("-150000000000000000000.00");
+        assertThat(format(Double.MAX_VALUE)).isEqualTo(String.format(Locale.ROOT, "%.2f", Double.MAX_VALUE));
+    }
+
+    @Test
+    void writesNonFiniteValuesLikePrintf() throws IOException {
+        assertThat(format(Double.NaN)).isEqualTo("NaN");
+        assertThat(format(Double.POSITIVE_INFINITY)).isEqualTo("Infinity");
+        assertThat(format(Double.NEGATIVE_INFINITY)).isEqualTo("-Infinity");
+    }
+
+    @Test
+    void matchesPrintfOnRandomValues() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            double value = switch (i % 4) {
+                // Valeurs saisies au millième : nombreux cas de demi-centime
+                case 0 -> Math.round(random.nextDouble() * 10_000_000) / 1000.0;
+                case 1 -> (random.nextDouble() - 0.5) * 1000;
+                case 2 -> random.nextDouble() * Math.pow(10, random.nextInt(20));
+                default -> Double.longBitsToDouble(random.nextLong());
+            };
+            assertThat(format(value)).as("%s", value).isEqualTo(String.format(Locale.ROOT, "%.2f", value));
+        }
+    }
+
+    @Test
+    void writesRowsWithSeparators() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out, 64, 1);
+        writer.header("year", "month", "value");
+        writer.field(2024).field(1).field(-3.5).endRow();
+        writer.field(2024).empty().field(0.0).endRow();
+        writer.flush();
+
+        assertThat(out.toString()).isEqualTo("year,month,value\n2024,1,-3.50\n2024,,0.00\n");
+        assertThat(writer.getRows()).isEqualTo(3);
+    }
+
+    private static String format(double value) throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out, 64, 1000);
+        writer.field(value);
+        writer.flush();
+        return out.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DashboardServiceTest {
+
+    private final ElectricityDataService electricityService = mock(ElectricityDataService.class);
+    private final WaterDataService waterService = mock(WaterDataService.class);
+    private final AnomalyService anomalyService = mock(AnomalyService.class);
+    private final AppConfig appConfig = new AppConfig();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private DashboardService service;
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        service.stop();
+    }
+
+    @Test
+    void partsAreReadInParallel() {
+        start(3, 1000);
+        // Chaque partie attend que les trois soient lancées : un appel séquentiel dépasserait le délai
+        CountDownLatch started = new CountDownLatch(3);
+        when(electricityService.getAnnualSummary(2024)).thenAnswer(invocation -> arrive(started, List.of()));
+        when(waterService.getMonthlyDataForYear(2024)).thenAnswer(invocation -> arrive(started, List.of()));
+        when(anomalyService.getAnomalyStatistics()).thenAnswer(invocation -> arrive(started, Map.of("total", 4L)));
+
+        Map<String, Object> dashboard = service.getDashboard(2024);
+
+        assertThat(dashboard).containsEntry("year", 2024)
+                .containsEntry("anomalyStatistics", Map.of("total", 4L))
+                .containsEntry("incomplete", Map.of())
+                .containsKeys("electricitySummary", "waterMonthly", "limits");
+    }
+
+    @Test
+    void slowOrFailingPartsAreReportedAndOthersReturned() {
+        start(3, 200);
+        when(electricityService.getAnnualSummary(2024)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        when(waterService.getMonthlyDataForYear(2024)).thenThrow(new IllegalStateException("Base indisponible"));
+        when(anomalyService.getAnomalyStatistics()).thenReturn(Map.of("total", 4L));
+
+        long startNanos = System.nanoTime();
+        Map<String, Object> dashboard = service.getDashboard(2024);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)).isLessThan(2000);
+        assertThat(dashboard).containsEntry("anomalyStatistics", Map.of("total", 4L))
+                .doesNotContainKeys("electricitySummary", "waterMonthly")
+                .containsEntry("incomplete", Map.of("electricitySummary", "timeout", "waterMonthly", "error"));
+    }
+
+    @Test
+    void saturatedPoolMarksPartsBusy() {
+        appConfig.getDashboard().setQueueCapacity(1);
+        start(1, 200);
+        when(electricityService.getAnnualSummary(2024)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        Map<String, Object> dashboard = service.getDashboard(2024);
+
+        // Un thread occupé, une place en file : la troisième partie est refusée
+        assertThat(dashboard.get("incomplete")).isEqualTo(Map.of(
+                "electricitySummary", "timeout", "waterMonthly", "timeout", "anomalyStatistics", "busy"));
+    }
+
+    private void start(int workers, int timeoutMs) {
+        appConfig.getDashboard().setWorkers(workers);
+        appConfig.getDashboard().setTimeoutMs(timeoutMs);
+        service = new DashboardService(electricityService, waterService, anomalyService, appConfig);
+        service.start();
+    }
+
+    private static <T> T arrive(CountDownLatch started, T result) throws InterruptedException {
+        started.countDown();
+        started.await(5, TimeUnit.SECONDS);
+        return result;
+    }
+}
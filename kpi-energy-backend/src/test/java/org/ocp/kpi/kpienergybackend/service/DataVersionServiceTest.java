@@ -0,0 +1,95 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Version d'un périmètre lue sur un vrai serveur, puis GET conditionnel sur requête simulée
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DataVersionServiceTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private JdbcTemplate jdbcTemplate;
+    private DataVersionService versionService;
+
+    @BeforeEach
+    void createSchema() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS water_data");
+        jdbcTemplate.execute("CREATE TABLE water_data (year int, month int, created_at timestamp, updated_at timestamp)");
+        jdbcTemplate.update("INSERT INTO water_data VALUES (2023, 1, '2023-02-01 08:00', NULL), "
+                + "(2023, 2, '2023-03-01 08:00', NULL), (2024, 1, '2024-02-01 08:00', NULL)");
+        versionService = new DataVersionService(jdbcTemplate);
+    }
+
+    @Test
+    void etagChangesOnUpdateAndDeleteWithinScopeOnly() {
+        String year = versionService.forYears("WATER", 2023, 2023).getEtag();
+        String month = versionService.forMonth("WATER", 2023, 1).getEtag();
+        String otherYear = versionService.forYears("WATER", 2024, 2024).getEtag();
+        assertThat(versionService.forYears("WATER", 2023, 2023).getEtag()).isEqualTo(year);
+
+        jdbcTemplate.update("UPDATE water_data SET updated_at = '2023-04-01 08:00' WHERE year = 2023 AND month = 2");
+        String updated = versionService.forYears("WATER", 2023, 2023).getEtag();
+        assertThat(updated).isNotEqualTo(year);
+        assertThat(versionService.forMonth("WATER", 2023, 1).getEtag()).isEqualTo(month);
+        assertThat(versionService.forYears("WATER", 2024, 2024).getEtag()).isEqualTo(otherYear);
+
+        // Ligne supprimée plus ancienne que la dernière modification : seul le nombre de lignes change
+        jdbcTemplate.update("DELETE FROM water_data WHERE year = 2023 AND month = 1");
+        assertThat(versionService.forYears("WATER", 2023, 2023).getEtag()).isNotEqualTo(updated);
+    }
+
+    @Test
+    void matchingEtagAnswersNotModified() {
+        DataVersionService.DataVersion version = versionService.forAll("WATER");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/water/rollup");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, version.getEtag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(versionService.isNotModified(new ServletWebRequest(request, response), version)).isTrue();
+        assertThat(response.getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void firstRequestGetsValidators() {
+        DataVersionService.DataVersion version = versionService.forYears("WATER", 2023, 2024);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(versionService.isNotModified(
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/api/water/annual/2023/2024"), response),
+                version)).isFalse();
+
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(version.getEtag());
+        assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNotNull();
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("private, no-cache");
+    }
+
+    @Test
+    void emptyScopeHasStableEtagWithoutLastModified() {
+        DataVersionService.DataVersion version = versionService.forYears("WATER", 1990, 1991);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        versionService.isNotModified(
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/api/water/annual/1990/1991"), response),
+                version);
+
+        assertThat(version.getEtag()).isEqualTo(versionService.forYears("WATER", 1990, 1991).getEtag());
+        assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNull();
+    }
+}
@@ -0,0 +1,90 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityPeriodDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Agrégation d'une plage d'années (ElectricityDataService.getRange) sur un vrai serveur
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ElectricityDataServiceTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private ElectricityDataService service;
+
+    @BeforeEach
+    void createSchema() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS electricity_data");
+        jdbcTemplate.execute("CREATE TABLE electricity_data (year int, month int, "
+                + "network60kv_active_energy float8, network60kv_reactive_energy float8, "
+                + "network60kv_power_factor float8, network60kv_peak float8, "
+                + "network22kv_active_energy float8, network22kv_reactive_energy float8, "
+                + "network22kv_power_factor float8, network22kv_peak float8)");
+        // 2023 complète, 2024 limitée au premier trimestre ; 2022 hors plage
+        for (int year = 2022; year <= 2024; year++) {
+            for (int month = 1; month <= (year == 2024 ? 3 : 12); month++) {
+                jdbcTemplate.update("INSERT INTO electricity_data VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                        year, month, 100.0 * month, 50.0 * month, 0.9, 10.0 + month, 10.0, 0.0, 1.0, 5.0);
+            }
+        }
+        service = new ElectricityDataService(null, null, null, null, null, null, null, null, jdbcTemplate);
+    }
+
+    @Test
+    void monthlyRowsCoverTheRangeInOrder() {
+        List<ElectricityPeriodDto> rows = service.getRange(2023, 2024, "month");
+
+        assertThat(rows).hasSize(15);
+        assertThat(rows.get(0).getYear()).isEqualTo(2023);
+        assertThat(rows.get(0).getMonth()).isEqualTo(1);
+        assertThat(rows.get(14).getYear()).isEqualTo(2024);
+        assertThat(rows.get(14).getQuarter()).isEqualTo(1);
+        assertThat(rows.get(14).getMonth()).isEqualTo(3);
+    }
+
+    @Test
+    void quarterRowsSumEnergiesAndDerivePowerFactorFromTotals() {
+        List<ElectricityPeriodDto> rows = service.getRange(2023, 2023, "quarter");
+
+        assertThat(rows).extracting(ElectricityPeriodDto::getQuarter).containsExactly(1, 2, 3, 4);
+        ElectricityPeriodDto second = rows.get(1); // Avril à juin
+        assertThat(second.getMonth()).isNull();
+        assertThat(second.getMonthCount()).isEqualTo(3);
+        assertThat(second.getNetwork60kvConsumption()).isEqualTo(1500.0);
+        assertThat(second.getNetwork60kvPeak()).isEqualTo(16.0);
+        assertThat(second.getNetwork60kvPowerFactor()).isCloseTo(Math.cos(Math.atan(0.5)), within(1e-9));
+        assertThat(second.getNetwork22kvPowerFactor()).isEqualTo(1.0);
+        assertThat(second.getTotalConsumption()).isEqualTo(1530.0);
+        assertThat(second.getAvgMonthlyConsumption()).isEqualTo(510.0);
+    }
+
+    @Test
+    void yearRowsCountTheirMonths() {
+        List<ElectricityPeriodDto> rows = service.getRange(2023, 2024, "year");
+
+        assertThat(rows).extracting(ElectricityPeriodDto::getMonthCount).containsExactly(12, 3);
+        assertThat(rows.get(1).getQuarter()).isNull();
+        assertThat(rows.get(1).getNetwork60kvConsumption()).isEqualTo(600.0);
+    }
+
+    @Test
+    void unknownGroupingIsRejected() {
+        assertThatThrownBy(() -> service.getRange(2023, 2024, "week")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,46 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportJobServiceTest {
+
+    private static final long SIZE = 1000;
+
+    @Test
+    void parsesClosedAndOpenRanges() {
+        assertThat(ExportJobService.parseRange("bytes=0-499", SIZE)).containsExactly(0, 499);
+        assertThat(ExportJobService.parseRange("bytes=500-", SIZE)).containsExactly(500, 999);
+        assertThat(ExportJobService.parseRange("bytes= 10 - 20 ", SIZE)).containsExactly(10, 20);
+    }
+
+    @Test
+    void clampsEndToFileSize() {
+        assertThat(ExportJobService.parseRange("bytes=900-5000", SIZE)).containsExactly(900, 999);
+    }
+
+    @Test
+    void parsesSuffixRanges() {
+        assertThat(ExportJobService.parseRange("bytes=-100", SIZE)).containsExactly(900, 999);
+        assertThat(ExportJobService.parseRange("bytes=-5000", SIZE)).containsExactly(0, 999);
+    }
+
+    @Test
+    void unsatisfiableRangesAreEmpty() {
+        assertThat(ExportJobService.parseRange("bytes=1000-", SIZE)).isEmpty();
+        assertThat(ExportJobService.parseRange("bytes=2000-3000", SIZE)).isEmpty();
+        assertThat(ExportJobService.parseRange("bytes=-0", SIZE)).isEmpty();
+        assertThat(ExportJobService.parseRange("bytes=-10", 0)).isEmpty();
+    }
+
+    @Test
+    void invalidOrMultipleRangesServeWholeFile() {
+        assertThat(ExportJobService.parseRange("items=0-10", SIZE)).isNull();
+        assertThat(ExportJobService.parseRange("bytes=0-10,20-30", SIZE)).isNull();
+        assertThat(ExportJobService.parseRange("bytes=10", SIZE)).isNull();
+        assertThat(ExportJobService.parseRange("bytes=20-10", SIZE)).isNull();
+        assertThat(ExportJobService.parseRange("bytes=a-b", SIZE)).isNull();
+        assertThat(ExportJobService.parseRange("bytes=-", SIZE)).isNull();
+    }
+}
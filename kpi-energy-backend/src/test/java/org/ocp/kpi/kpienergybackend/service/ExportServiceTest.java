@@ -0,0 +1,72 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Export combiné (jointure externe complète) sur un vrai serveur : mois présents d'un seul côté
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ExportServiceTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final String HEADER = "Year,Month,60KV Consumption,22KV Consumption,Total Electricity,"
+            + "F3bis,F3,SE2,SE3bis,Total Water\n";
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void createSchema() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS electricity_data");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS water_data");
+        jdbcTemplate.execute("CREATE TABLE electricity_data (year int, month int, "
+                + "network60kv_active_energy double precision, network22kv_active_energy double precision)");
+        jdbcTemplate.execute("CREATE TABLE water_data (year int, month int, f3bis double precision, "
+                + "f3 double precision, se2 double precision, se3bis double precision)");
+        // Janvier des deux côtés, février en électricité seule, mars en eau seule, 2023 en électricité seule
+        jdbcTemplate.update("INSERT INTO electricity_data VALUES (2024, 2, 300, 40), (2024, 1, 100, 20), (2023, 12, 50, 5)");
+        jdbcTemplate.update("INSERT INTO water_data VALUES (2024, 3, 5, 6, 7, 8), (2024, 1, 1, 2, 3, 4)");
+        exportService = new ExportService(jdbcTemplate, new AppConfig());
+    }
+
+    @Test
+    void monthsPresentOnOneSideKeepEmptyColumnsForTheOther() throws IOException {
+        assertThat(combined(null, null)).isEqualTo(HEADER
+                + "2023,12,50.00,5.00,55.00,,,,,\n"
+                + "2024,1,100.00,20.00,120.00,1.00,2.00,3.00,4.00,10.00\n"
+                + "2024,2,300.00,40.00,340.00,,,,,\n"
+                + "2024,3,,,,5.00,6.00,7.00,8.00,26.00\n");
+        assertThat(exportService.countRows("combined", null, null)).isEqualTo(4);
+    }
+
+    @Test
+    void filterAppliesToBothSides() throws IOException {
+        assertThat(combined(2024, 3)).isEqualTo(HEADER + "2024,3,,,,5.00,6.00,7.00,8.00,26.00\n");
+        assertThat(combined(2023, null)).isEqualTo(HEADER + "2023,12,50.00,5.00,55.00,,,,,\n");
+        assertThat(exportService.countRows("combined", 2024, null)).isEqualTo(3);
+        assertThat(exportService.countRows("combined", 2022, null)).isZero();
+    }
+
+    private String combined(Integer year, Integer month) throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter csv = new CsvWriter(out, 64, 1000);
+        exportService.writeCombined(csv, year, month);
+        csv.flush();
+        return out.toString();
+    }
+}
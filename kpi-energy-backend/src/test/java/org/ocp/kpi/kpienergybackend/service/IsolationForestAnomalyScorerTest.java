@@ -0,0 +1,85 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.dto.ElectricityFeatureRow;
+import org.ocp.kpi.kpienergybackend.dto.WaterFeatureRow;
+import org.ocp.kpi.kpienergybackend.repository.ElectricityDataRepository;
+import org.ocp.kpi.kpienergybackend.repository.WaterDataRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IsolationForestAnomalyScorerTest {
+
+    private final ElectricityDataRepository electricityRepo = mock(ElectricityDataRepository.class);
+    private final WaterDataRepository waterRepo = mock(WaterDataRepository.class);
+    private final AppConfig appConfig = new AppConfig();
+    private final IsolationForestAnomalyScorer scorer = new IsolationForestAnomalyScorer(electricityRepo, waterRepo,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), appConfig);
+
+    @Test
+    void untrainedScorerAppliesRulesOnlyAndIsMarkedDegraded() {
+        assertThat(scorer.getModelVersion()).isEqualTo("isolation-forest:untrained");
+
+        Map<String, Object> result = scorer.score(electricity(0.70, 1_000_000));
+
+        assertThat(result).containsEntry("degraded", true)
+                .containsEntry("is_anomaly", true)
+                .containsEntry("anomaly_type", "LOW_POWER_FACTOR");
+    }
+
+    @Test
+    void trainedScorerFlagsOutliersAndChangesVersion() {
+        appConfig.getMl().getForest().setTrees(50);
+        when(electricityRepo.streamFeatureRows()).thenAnswer(invocation -> history(200));
+        when(waterRepo.streamFeatureRows()).thenAnswer(invocation -> Stream.<WaterFeatureRow>empty());
+
+        scorer.retrain();
+
+        assertThat(scorer.getModelVersion()).isNotEqualTo("isolation-forest:untrained");
+        assertThat(scorer.getTrainedAt()).isNotNull();
+
+        List<Map<String, Object>> results = scorer.scoreBatch(List.of(
+                electricity(0.95, 1_000_000), electricity(0.95, 9_000_000)));
+        assertThat(results.get(0)).doesNotContainKey("degraded").containsEntry("is_anomaly", false);
+        assertThat(results.get(1)).doesNotContainKey("degraded").containsEntry("is_anomaly", true);
+        assertThat((Double) results.get(1).get("anomaly_score")).isNegative();
+    }
+
+    @Test
+    void shortHistoryLeavesModelUntrained() {
+        when(electricityRepo.streamFeatureRows()).thenAnswer(invocation -> history(5));
+        when(waterRepo.streamFeatureRows()).thenAnswer(invocation -> Stream.<WaterFeatureRow>empty());
+
+        scorer.retrain();
+
+        assertThat(scorer.score(electricity(0.95, 1_000_000))).containsEntry("degraded", true);
+    }
+
+    /**
+     * Mois ordinaires : énergie autour de 1 GWh, facteurs de puissance normaux
+     */
+    private static Stream<ElectricityFeatureRow> history(int months) {
+        Random random = new Random(1);
+        return IntStream.range(0, months).mapToObj(i -> {
+            double energy = 1_000_000 + random.nextGaussian() * 20_000;
+            return new ElectricityFeatureRow((long) i, 2000 + i / 12, i % 12 + 1, energy, 10_000, 1_000,
+                    energy / 2, 5_000, 500, 0.95, 0.90);
+        });
+    }
+
+    private static Map<String, Object> electricity(double powerFactor60, double activeEnergy) {
+        return new ElectricityFeatureRow(1L, 2024, 1, activeEnergy, 10_000, 1_000,
+                activeEnergy / 2, 5_000, 500, powerFactor60, 0.90).toMlInput();
+    }
+}
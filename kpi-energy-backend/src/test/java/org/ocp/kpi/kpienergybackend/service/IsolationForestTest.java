@@ -0,0 +1,87 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class IsolationForestTest {
+
+    @Test
+    void averagePathLengthMatchesSklearn() {
+        assertThat(IsolationForest.averagePathLength(0)).isZero();
+        assertThat(IsolationForest.averagePathLength(1)).isZero();
+        assertThat(IsolationForest.averagePathLength(2)).isEqualTo(1.0);
+        // sklearn _average_path_length(256)
+        assertThat(IsolationForest.averagePathLength(256)).isCloseTo(10.244770, within(1e-6));
+        assertThat(IsolationForest.averagePathLength(1000)).isGreaterThan(IsolationForest.averagePathLength(256));
+    }
+
+    @Test
+    void percentileInterpolatesLikeNumpy() {
+        double[] values = {4, 1, 3, 2};
+
+        assertThat(IsolationForest.percentile(values, 0)).isEqualTo(1.0);
+        assertThat(IsolationForest.percentile(values, 50)).isEqualTo(2.5);
+        assertThat(IsolationForest.percentile(values, 100)).isEqualTo(4.0);
+        assertThat(values).containsExactly(4, 1, 3, 2);
+    }
+
+    @Test
+    void outlierScoresNegativeAndInlierPositive() {
+        IsolationForest forest = IsolationForest.fit(cluster(500, 1), 100, 256, 0.1, 42);
+
+        double[] inlier = {0.0, 0.0};
+        double[] outlier = {8.0, -8.0};
+
+        assertThat(forest.decisionFunction(inlier)).isPositive();
+        assertThat(forest.isOutlier(inlier)).isFalse();
+        assertThat(forest.decisionFunction(outlier)).isNegative();
+        assertThat(forest.isOutlier(outlier)).isTrue();
+        // Plus un point est isolé tôt, plus son score brut est bas
+        assertThat(forest.scoreSamples(outlier)).isLessThan(forest.scoreSamples(inlier));
+        assertThat(forest.scoreSamples(outlier)).isBetween(-1.0, 0.0);
+    }
+
+    @Test
+    void contaminationSetsShareOfTrainingOutliers() {
+        double[][] samples = cluster(1000, 2);
+        IsolationForest forest = IsolationForest.fit(samples, 100, 256, 0.05, 42);
+
+        long outliers = 0;
+        for (double[] sample : samples) {
+            if (forest.isOutlier(sample)) {
+                outliers++;
+            }
+        }
+        assertThat(outliers).isBetween(40L, 60L);
+    }
+
+    @Test
+    void sameSeedGivesSameForest() {
+        double[][] samples = cluster(300, 3);
+        IsolationForest first = IsolationForest.fit(samples, 50, 128, 0.1, 9);
+        IsolationForest second = IsolationForest.fit(samples, 50, 128, 0.1, 9);
+
+        assertThat(second.getNodeCount()).isEqualTo(first.getNodeCount());
+        assertThat(second.decisionFunction(samples[0])).isEqualTo(first.decisionFunction(samples[0]));
+    }
+
+    @Test
+    void emptyTrainingSetIsRejected() {
+        assertThatThrownBy(() -> IsolationForest.fit(new double[0][], 10, 256, 0.1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double[][] cluster(int count, long seed) {
+        Random random = new Random(seed);
+        double[][] samples = new double[count][];
+        for (int i = 0; i < count; i++) {
+            samples[i] = new double[] {random.nextGaussian(), random.nextGaussian()};
+        }
+        return samples;
+    }
+}
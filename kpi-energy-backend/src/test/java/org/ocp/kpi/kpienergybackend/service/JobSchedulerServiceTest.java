@@ -0,0 +1,159 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.entity.JobDefinition;
+import org.ocp.kpi.kpienergybackend.entity.JobRun;
+import org.ocp.kpi.kpienergybackend.repository.JobDefinitionRepository;
+import org.ocp.kpi.kpienergybackend.repository.JobRunRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JobSchedulerServiceTest {
+
+    private static final String CRON = "0 0 2 * * ?";
+
+    private final JobDefinitionRepository definitionRepo = mock(JobDefinitionRepository.class);
+    private final JobRunRepository runRepo = mock(JobRunRepository.class);
+    private final LeaseService leaseService = mock(LeaseService.class);
+    private final FailingJob job = new FailingJob();
+    private final JobSchedulerService scheduler = new JobSchedulerService(List.of(job), definitionRepo, runRepo,
+            leaseService, new AppConfig());
+
+    @BeforeEach
+    void stubRepositories() {
+        when(leaseService.tryAcquire(anyString(), any(Duration.class))).thenReturn(true);
+        when(runRepo.save(any(JobRun.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(definitionRepo.claimDueRun(anyString(), any(), any(), any())).thenReturn(1);
+    }
+
+    @AfterEach
+    void stop() {
+        scheduler.stop();
+    }
+
+    @Test
+    void nextRunFollowsCron() {
+        assertThat(JobSchedulerService.nextCronTime(CRON, LocalDateTime.of(2024, 3, 1, 1, 59)))
+                .isEqualTo(LocalDateTime.of(2024, 3, 1, 2, 0));
+        assertThat(JobSchedulerService.nextCronTime(CRON, LocalDateTime.of(2024, 3, 1, 2, 0)))
+                .isEqualTo(LocalDateTime.of(2024, 3, 2, 2, 0));
+        assertThatThrownBy(() -> JobSchedulerService.nextCronTime("tous les jours", LocalDateTime.now()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void windowGatesRunsIncludingAcrossMidnight() {
+        JobDefinition night = definition(1, 3);
+        JobSchedulerService.applyWindow(night, "22:00-06:00");
+        assertThat(JobSchedulerService.isInWindow(night, LocalTime.of(23, 30))).isTrue();
+        assertThat(JobSchedulerService.isInWindow(night, LocalTime.of(5, 59))).isTrue();
+        assertThat(JobSchedulerService.isInWindow(night, LocalTime.of(6, 0))).isFalse();
+        assertThat(JobSchedulerService.isInWindow(night, LocalTime.of(12, 0))).isFalse();
+
+        JobDefinition day = definition(1, 3);
+        JobSchedulerService.applyWindow(day, "08:00-18:00");
+        assertThat(JobSchedulerService.isInWindow(day, LocalTime.of(8, 0))).isTrue();
+        assertThat(JobSchedulerService.isInWindow(day, LocalTime.of(18, 0))).isFalse();
+
+        JobSchedulerService.applyWindow(day, "");
+        assertThat(JobSchedulerService.isInWindow(day, LocalTime.of(3, 0))).isTrue();
+        assertThatThrownBy(() -> JobSchedulerService.applyWindow(day, "08:00"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void closedWindowSkipsDueJobWithoutClaimingIt() {
+        JobDefinition definition = definition(1, 3);
+        // Fenêtre d'une minute, fermée au moment du passage
+        LocalTime closed = LocalTime.now().plusHours(2).withSecond(0).withNano(0);
+        definition.setWindowStart(closed);
+        definition.setWindowEnd(closed.plusMinutes(1));
+        when(definitionRepo.findByEnabledTrueAndNextRunAtLessThanEqual(any())).thenReturn(List.of(definition));
+
+        scheduler.tick();
+
+        verify(definitionRepo, never()).claimDueRun(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void backoffDoublesPerAttemptAndIsCapped() {
+        assertThat(JobSchedulerService.retryDelaySeconds(60, 1)).isEqualTo(60);
+        assertThat(JobSchedulerService.retryDelaySeconds(60, 2)).isEqualTo(120);
+        assertThat(JobSchedulerService.retryDelaySeconds(60, 3)).isEqualTo(240);
+        assertThat(JobSchedulerService.retryDelaySeconds(60, 17)).isEqualTo(60L << 16);
+        assertThat(JobSchedulerService.retryDelaySeconds(60, 40)).isEqualTo(60L << 16);
+        assertThat(JobSchedulerService.retryDelaySeconds(0, 5)).isZero();
+    }
+
+    @Test
+    void failedAttemptIsRetriedAfterBackoff() {
+        when(definitionRepo.findByEnabledTrueAndNextRunAtLessThanEqual(any())).thenReturn(List.of(definition(2, 3)));
+        LocalDateTime before = LocalDateTime.now();
+
+        scheduler.tick();
+
+        // Tentative 2 : 60 s * 2
+        verify(definitionRepo, timeout(2000)).reschedule(eq(job.getName()),
+                argThat(at -> !at.isBefore(before.plusSeconds(119))
+                        && !at.isAfter(LocalDateTime.now().plusSeconds(120))), eq(3));
+        verify(leaseService, timeout(1000)).release("job:" + job.getName());
+    }
+
+    @Test
+    void exhaustedAttemptsFallBackToNextCronRun() {
+        when(definitionRepo.findByEnabledTrueAndNextRunAtLessThanEqual(any())).thenReturn(List.of(definition(3, 3)));
+
+        scheduler.tick();
+
+        verify(definitionRepo, timeout(2000)).reschedule(eq(job.getName()),
+                argThat(at -> at.toLocalTime().equals(LocalTime.of(2, 0))), eq(1));
+        verify(definitionRepo, never()).reschedule(anyString(), any(), eq(4));
+    }
+
+    private static JobDefinition definition(int nextAttempt, int maxAttempts) {
+        return JobDefinition.builder()
+                .name("always-failing")
+                .cron(CRON)
+                .enabled(true)
+                .maxAttempts(maxAttempts)
+                .backoffSeconds(60)
+                .nextAttempt(nextAttempt)
+                .nextRunAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+
+    private static final class FailingJob implements BackgroundJob {
+        @Override
+        public String getName() {
+            return "always-failing";
+        }
+
+        @Override
+        public String getDefaultCron() {
+            return CRON;
+        }
+
+        @Override
+        public long run() {
+            throw new IllegalStateException("Source indisponible");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.event.KpiDataChangedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lignes de synthèse simulées par "année-mois"
+ */
+class KpiSummaryCacheTest {
+
+    private final AppConfig appConfig = new AppConfig();
+    private final KpiSummaryCache cache = new KpiSummaryCache(appConfig);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void secondReadIsServedFromCache() {
+        assertThat(cache.getYear("WATER", 2023, this::loadYear)).containsExactly("2023-1", "2023-2");
+        assertThat(cache.getYear("WATER", 2023, this::loadYear)).containsExactly("2023-1", "2023-2");
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getStats()).containsEntry("hits", 1L).containsEntry("misses", 1L).containsEntry("years", 1);
+    }
+
+    @Test
+    void writeInvalidatesOnlyItsYearAndSourceType() {
+        cache.getYear("WATER", 2023, this::loadYear);
+        cache.getYear("WATER", 2024, this::loadYear);
+        cache.getYear("ELECTRICITY", 2023, this::loadYear);
+
+        cache.onDataChanged(new KpiDataChangedEvent("WATER", 1L, 2023, 5, KpiDataChangedEvent.ChangeType.SAVED));
+
+        cache.getYear("WATER", 2023, this::loadYear);
+        cache.getYear("WATER", 2024, this::loadYear);
+        cache.getYear("ELECTRICITY", 2023, this::loadYear);
+        assertThat(loads).hasValue(4);
+        assertThat(cache.getStats()).containsEntry("invalidations", 1L);
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotCached() {
+        List<String> rows = cache.getYear("WATER", 2023, year -> {
+            // Écriture validée pendant la lecture
+            cache.invalidate("WATER", year);
+            return loadYear(year);
+        });
+
+        assertThat(rows).hasSize(2); // Servie à l'appelant, mais pas gardée
+        cache.getYear("WATER", 2023, this::loadYear);
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getStats()).containsEntry("stale_loads_discarded", 1L);
+    }
+
+    @Test
+    void rangeLoadsOnlyMissingYearsInOneQuery() {
+        cache.getYear("WATER", 2022, this::loadYear);
+        List<int[]> ranges = new ArrayList<>();
+
+        List<String> rows = cache.getYears("WATER", 2021, 2023, (start, end) -> {
+            ranges.add(new int[]{start, end});
+            List<String> loaded = new ArrayList<>();
+            for (int year = start; year <= end; year++) {
+                loaded.addAll(loadYear(year)); // 2022, déjà en cache, n'est pas dupliquée
+            }
+            return loaded;
+        }, row -> Integer.parseInt(row.substring(0, 4)));
+
+        assertThat(ranges).containsExactly(new int[]{2021, 2023});
+        assertThat(rows).containsExactly("2021-1", "2021-2", "2022-1", "2022-2", "2023-1", "2023-2");
+        assertThat(cache.getStats()).containsEntry("years", 3);
+    }
+
+    @Test
+    void leastRecentlyUsedYearIsEvicted() {
+        appConfig.getSummaryCache().setMaxYears(2);
+        cache.getYear("WATER", 2021, this::loadYear);
+        cache.getYear("WATER", 2022, this::loadYear);
+        cache.getYear("WATER", 2021, this::loadYear); // 2022 devient la plus ancienne
+        cache.getYear("WATER", 2023, this::loadYear);
+
+        cache.getYear("WATER", 2021, this::loadYear);
+        assertThat(loads).hasValue(3);
+        cache.getYear("WATER", 2022, this::loadYear);
+        assertThat(loads).hasValue(4);
+        assertThat(cache.getStats()).containsEntry("years", 2);
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        appConfig.getSummaryCache().setEnabled(false);
+
+        cache.getYear("WATER", 2023, this::loadYear);
+        cache.getYear("WATER", 2023, this::loadYear);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private List<String> loadYear(int year) {
+        loads.incrementAndGet();
+        return List.of(year + "-1", year + "-2");
+    }
+}
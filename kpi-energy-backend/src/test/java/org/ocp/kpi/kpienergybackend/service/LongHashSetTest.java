@@ -0,0 +1,65 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+    @Test
+    void addReportsWhetherValueWasNew() {
+        LongHashSet set = new LongHashSet(4);
+
+        assertThat(set.add(42)).isTrue();
+        assertThat(set.add(42)).isFalse();
+        assertThat(set.contains(42)).isTrue();
+        assertThat(set.contains(43)).isFalse();
+        assertThat(set.size()).isEqualTo(1);
+    }
+
+    @Test
+    void zeroIsStoredOutsideTheTable() {
+        LongHashSet set = new LongHashSet(4);
+
+        assertThat(set.contains(0)).isFalse();
+        assertThat(set.add(0)).isTrue();
+        assertThat(set.add(0)).isFalse();
+        assertThat(set.contains(0)).isTrue();
+        assertThat(set.size()).isEqualTo(1);
+    }
+
+    @Test
+    void growsPastExpectedSize() {
+        LongHashSet set = new LongHashSet(1);
+        for (long id = 1; id <= 10_000; id++) {
+            assertThat(set.add(id)).isTrue();
+        }
+
+        assertThat(set.size()).isEqualTo(10_000);
+        for (long id = 1; id <= 10_000; id++) {
+            assertThat(set.contains(id)).isTrue();
+        }
+        assertThat(set.contains(10_001)).isFalse();
+    }
+
+    @Test
+    void matchesHashSetOnRandomValues() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet(16);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            // Plage réduite : beaucoup de doublons, valeurs négatives et extrêmes comprises
+            long value = i % 100 == 0 ? Long.MIN_VALUE + i : random.nextInt(20_000) - 10_000;
+            assertThat(set.add(value)).isEqualTo(expected.add(value));
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (long value = -10_000; value < 10_000; value++) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MlClientMetricsTest {
+
+    @Test
+    void percentilesUseBucketUpperBounds() {
+        MlClientMetrics metrics = new MlClientMetrics();
+        for (int i = 0; i < 99; i++) {
+            metrics.recordSuccess(metrics.start(), 1);
+        }
+        metrics.recordFailure(metrics.start() - 300_000_000L, false); // 300 ms
+
+        assertThat(metrics.percentileMs(50)).isEqualTo(1);
+        assertThat(metrics.percentileMs(99)).isEqualTo(1);
+        assertThat(metrics.percentileMs(100)).isEqualTo(500);
+        assertThat(metrics.snapshot())
+                .containsEntry("calls", 100L)
+                .containsEntry("failures", 1L)
+                .containsEntry("points_scored", 99L)
+                .containsEntry("in_flight", 0);
+    }
+
+    @Test
+    void timeoutsAreCountedAsFailures() {
+        MlClientMetrics metrics = new MlClientMetrics();
+        metrics.recordFailure(metrics.start(), true);
+        metrics.recordFallback();
+
+        assertThat(metrics.snapshot())
+                .containsEntry("failures", 1L)
+                .containsEntry("timeouts", 1L)
+                .containsEntry("rule_fallbacks", 1L);
+    }
+
+    @Test
+    void emptyMetricsReportZero() {
+        MlClientMetrics metrics = new MlClientMetrics();
+
+        assertThat(metrics.percentileMs(99)).isZero();
+        assertThat(metrics.snapshot()).containsEntry("avg_latency_ms", 0.0);
+    }
+}
@@ -0,0 +1,172 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Client ML face à un faux service Python (serveur HTTP local)
+ */
+class MlClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AppConfig appConfig = new AppConfig();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long delayMs;
+    private volatile int extraResults;
+    private volatile String healthVersion = "v1";
+
+    private HttpServer server;
+    private MlClient client;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/detect-anomaly-batch", this::detectBatch);
+        server.createContext("/health", exchange -> respond(exchange,
+                Map.of("status", "healthy", "model_version", healthVersion)));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        appConfig.getMl().setServiceUrl("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void detectBatchSendsOneRequestAndKeepsOrder() {
+        client = new MlClient(appConfig);
+
+        List<Map<String, Object>> results = client.detectBatch(points(3));
+
+        assertThat(results).extracting(result -> result.get("index")).containsExactly(0, 1, 2);
+        assertThat(client.getModelVersion()).isEqualTo("v1");
+        assertThat(client.getMetrics().snapshot())
+                .containsEntry("calls", 1L)
+                .containsEntry("points_scored", 3L)
+                .containsEntry("in_flight", 0);
+    }
+
+    @Test
+    void resultCountMismatchIsAFailure() {
+        client = new MlClient(appConfig);
+        extraResults = 1;
+
+        assertThatThrownBy(() -> client.detectBatch(points(2))).isInstanceOf(IllegalStateException.class);
+        assertThat(client.getMetrics().snapshot()).containsEntry("failures", 1L);
+    }
+
+    @Test
+    void slowResponseTimesOut() {
+        appConfig.getMl().setReadTimeoutMs(200);
+        client = new MlClient(appConfig);
+        delayMs = 2000;
+
+        assertThatThrownBy(() -> client.detectBatch(points(1))).isInstanceOf(RuntimeException.class);
+        assertThat(client.getMetrics().snapshot()).containsEntry("timeouts", 1L);
+    }
+
+    @Test
+    void parallelBatchesStayWithinLimiterBound() {
+        appConfig.getMl().setConcurrency(2);
+        appConfig.getMl().getLimiter().setMaxLimit(2);
+        client = new MlClient(appConfig);
+        delayMs = 100;
+
+        List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(client.submitBatch(points(2)));
+        }
+        futures.forEach(future -> assertThat(future.join()).hasSize(2));
+
+        assertThat(maxInFlight.get()).isBetween(1, 2);
+    }
+
+    @Test
+    void modelSwapInvalidatesCachedResultsWithoutAnyMiss() throws InterruptedException {
+        appConfig.getMl().setVersionPollMs(50);
+        client = new MlClient(appConfig);
+        client.start();
+        awaitModelVersion("v1");
+        AnomalyResultCache cache = new AnomalyResultCache(new MlServiceAnomalyScorer(client, appConfig), appConfig);
+        Map<String, Object> point = points(1).get(0);
+        String key = cache.keyOf(point);
+        cache.put(key, client.detectBatch(List.of(point)).get(0));
+        assertThat(cache.get(key)).isNotNull();
+
+        // Nouveau modèle chargé côté Python : seule la relecture de /health peut le signaler
+        healthVersion = "v2";
+        awaitModelVersion("v2");
+
+        assertThat(cache.get(key)).isNull();
+    }
+
+    private void awaitModelVersion(String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!expected.equals(client.getModelVersion()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(client.getModelVersion()).isEqualTo(expected);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void detectBatch(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+            Map<String, Object> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+            List<Map<String, Object>> items = (List<Map<String, Object>>) request.get("items");
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (int i = 0; i < items.size() + extraResults; i++) {
+                results.add(Map.of("index", i, "is_anomaly", false, "anomaly_score", 0.1, "anomaly_type", "GENERAL_ANOMALY"));
+            }
+            respond(exchange, Map.of("results", results, "model_version", healthVersion));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, Map<String, Object> response) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private static List<Map<String, Object>> points(int count) {
+        List<Map<String, Object>> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(Map.of("data_type", "water", "f3", i));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,93 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MlServiceAnomalyScorerTest {
+
+    private final MlClient mlClient = mock(MlClient.class);
+    private final AppConfig appConfig = new AppConfig();
+    private final MlServiceAnomalyScorer scorer = new MlServiceAnomalyScorer(mlClient, appConfig);
+
+    @Test
+    void splitsInputsIntoBatchesAndKeepsOrder() {
+        appConfig.getMl().setBatchSize(2);
+        List<Integer> batchSizes = new ArrayList<>();
+        when(mlClient.submitBatch(anyList())).thenAnswer(invocation -> {
+            List<Map<String, Object>> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            return CompletableFuture.completedFuture(batch.stream()
+                    .map(input -> Map.<String, Object>of("echo", input.get("id")))
+                    .toList());
+        });
+
+        List<Map<String, Object>> results = scorer.scoreBatch(inputs(5));
+
+        assertThat(batchSizes).containsExactly(2, 2, 1);
+        assertThat(results).extracting(result -> result.get("echo")).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void failedBatchLeavesOnlyItsPointsUnscored() {
+        appConfig.getMl().setBatchSize(2);
+        when(mlClient.submitBatch(anyList())).thenAnswer(invocation -> {
+            List<Map<String, Object>> batch = invocation.getArgument(0);
+            if (batch.get(0).get("id").equals(2)) {
+                return CompletableFuture.failedFuture(new IllegalStateException("HTTP 500"));
+            }
+            return CompletableFuture.completedFuture(batch.stream()
+                    .map(input -> Map.<String, Object>of("echo", input.get("id")))
+                    .toList());
+        });
+
+        List<Map<String, Object>> results = scorer.scoreBatch(inputs(5));
+
+        assertThat(results).hasSize(5);
+        assertThat(results.get(0)).containsEntry("echo", 0);
+        assertThat(results.get(2)).isNull();
+        assertThat(results.get(3)).isNull();
+        assertThat(results.get(4)).containsEntry("echo", 4);
+    }
+
+    @Test
+    void singlePointFallsBackToRulesWhenServiceIsDown() {
+        when(mlClient.detect(anyMap())).thenThrow(new IllegalStateException("Service ML indisponible (disjoncteur ouvert)"));
+        when(mlClient.getMetrics()).thenReturn(new MlClientMetrics());
+        Map<String, Object> input = Map.of("data_type", "water", "f3bis", 0, "f3", 1, "se2", 1, "se3bis", 1);
+
+        Map<String, Object> result = scorer.score(input);
+
+        assertThat(result).containsEntry("degraded", true)
+                .containsEntry("is_anomaly", true)
+                .containsEntry("anomaly_type", "DATA_ENTRY_ERROR");
+        assertThat(mlClient.getMetrics().snapshot()).containsEntry("rule_fallbacks", 1L);
+    }
+
+    @Test
+    void fallbackCanBeDisabled() {
+        appConfig.getMl().setRuleFallback(false);
+        when(mlClient.detect(anyMap())).thenThrow(new IllegalStateException("Service ML indisponible (disjoncteur ouvert)"));
+
+        assertThatThrownBy(() -> scorer.score(Map.of("data_type", "water"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static List<Map<String, Object>> inputs(int count) {
+        List<Map<String, Object>> inputs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            inputs.add(Map.of("data_type", "water", "id", i));
+        }
+        return inputs;
+    }
+}
@@ -0,0 +1,95 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Requêtes propres à PostgreSQL (ON CONFLICT, verrous consultatifs) : exécutées sur un vrai serveur
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RollupServiceTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private JdbcTemplate jdbcTemplate;
+    private RollupService rollupService;
+
+    @BeforeEach
+    void createSchema() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS electricity_data, electricity_rollup, water_data, water_rollup");
+        jdbcTemplate.execute("CREATE TABLE electricity_data (year int, month int, "
+                + "network60kv_active_energy float8, network60kv_reactive_energy float8, "
+                + "network60kv_power_factor float8, network60kv_peak float8, "
+                + "network22kv_active_energy float8, network22kv_reactive_energy float8, "
+                + "network22kv_power_factor float8, network22kv_peak float8)");
+        jdbcTemplate.execute("CREATE TABLE electricity_rollup (id bigserial, period_type varchar(10), year int, "
+                + "quarter int, month_count bigint, sum_60kv_active_energy float8, sum_60kv_reactive_energy float8, "
+                + "sum_22kv_active_energy float8, sum_22kv_reactive_energy float8, total_active_energy float8, "
+                + "max_60kv_peak float8, max_22kv_peak float8, min_60kv_power_factor float8, "
+                + "sum_60kv_power_factor float8, min_22kv_power_factor float8, sum_22kv_power_factor float8, "
+                + "updated_at timestamp, UNIQUE (period_type, year, quarter))");
+        jdbcTemplate.execute("CREATE TABLE water_data (year int, month int, f3bis float8, f3 float8, se2 float8, se3bis float8)");
+        jdbcTemplate.execute("CREATE TABLE water_rollup (id bigserial, period_type varchar(10), year int, "
+                + "quarter int, month_count bigint, sum_f3bis float8, sum_f3 float8, sum_se2 float8, sum_se3bis float8, "
+                + "total_production float8, max_monthly_production float8, min_monthly_production float8, "
+                + "updated_at timestamp, UNIQUE (period_type, year, quarter))");
+        rollupService = new RollupService(jdbcTemplate, null, null);
+    }
+
+    @Test
+    void allTimeCoversExistingHistoryAfterFirstWrite() {
+        // Historique saisi avant la création de la table d'agrégats
+        for (int year = 2021; year <= 2023; year++) {
+            for (int month = 1; month <= 12; month++) {
+                insertElectricity(year, month, 100 * year + month);
+            }
+        }
+
+        assertThat(rollupService.rebuildIfIncomplete()).isGreaterThan(0);
+        insertElectricity(2024, 1, 500);
+        rollupService.refreshElectricityYear(2024);
+
+        Map<String, Object> allTime = jdbcTemplate.queryForMap(
+                "SELECT month_count, sum_60kv_active_energy, max_60kv_peak FROM electricity_rollup WHERE period_type = 'ALL'");
+        Map<String, Object> years = jdbcTemplate.queryForMap(
+                "SELECT SUM(month_count) AS month_count, SUM(sum_60kv_active_energy) AS sum_60kv_active_energy, "
+                + "MAX(max_60kv_peak) AS max_60kv_peak FROM electricity_rollup WHERE period_type = 'YEAR'");
+        Double sourceTotal = jdbcTemplate.queryForObject(
+                "SELECT SUM(network60kv_active_energy) FROM electricity_data", Double.class);
+
+        assertThat(((Number) allTime.get("month_count")).longValue()).isEqualTo(37);
+        assertThat(((Number) allTime.get("month_count")).longValue())
+                .isEqualTo(((Number) years.get("month_count")).longValue());
+        assertThat((Double) allTime.get("sum_60kv_active_energy"))
+                .isEqualTo((Double) years.get("sum_60kv_active_energy"))
+                .isEqualTo(sourceTotal);
+        assertThat(allTime.get("max_60kv_peak")).isEqualTo(years.get("max_60kv_peak"));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM electricity_rollup WHERE period_type = 'YEAR'", Long.class)).isEqualTo(4);
+    }
+
+    @Test
+    void completeTableIsNotRebuilt() {
+        insertElectricity(2023, 1, 10);
+        rollupService.refreshElectricityYear(2023);
+
+        assertThat(rollupService.rebuildIfIncomplete()).isZero();
+    }
+
+    private void insertElectricity(int year, int month, double activeEnergy) {
+        jdbcTemplate.update("INSERT INTO electricity_data VALUES (?, ?, ?, 0, 0.9, ?, ?, 0, 0.95, ?)",
+                year, month, activeEnergy, activeEnergy / 10, activeEnergy / 2, activeEnergy / 20);
+    }
+}
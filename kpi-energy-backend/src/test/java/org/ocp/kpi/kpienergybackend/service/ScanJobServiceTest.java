@@ -0,0 +1,135 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.repository.ScanShardRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScanJobServiceTest {
+
+    private final AnomalyDetectionService detectionService = mock(AnomalyDetectionService.class);
+    private final LeaseService leaseService = mock(LeaseService.class);
+    private final ScanShardRepository shardRepo = mock(ScanShardRepository.class);
+    private final ScanJobService service = new ScanJobService(detectionService, leaseService, shardRepo, new AppConfig());
+
+    @BeforeEach
+    void start() {
+        service.start();
+        when(leaseService.tryAcquire(any(), any(Duration.class))).thenReturn(true);
+    }
+
+    @AfterEach
+    void stop() {
+        service.stop();
+    }
+
+    @Test
+    void completedJobReleasesItsLeases() throws InterruptedException {
+        when(detectionService.scanElectricityData(eq(true), any())).thenReturn(true);
+        when(detectionService.scanWaterData(eq(true), any())).thenReturn(true);
+
+        ScanJob job = service.submit(ScanJobService.ALL_SOURCE_TYPES, true, "admin");
+
+        awaitFinished(job);
+        assertThat(job.getStatus()).isEqualTo(ScanJob.Status.COMPLETED);
+        verify(leaseService, timeout(1000)).release("anomaly-scan:ELECTRICITY");
+        verify(leaseService, timeout(1000)).release("anomaly-scan:WATER");
+        assertThat(job.snapshot()).containsEntry("status", "COMPLETED").containsEntry("requested_by", "admin");
+    }
+
+    @Test
+    void unscoredRowsMakeJobIncomplete() throws InterruptedException {
+        when(detectionService.scanWaterData(eq(false), any())).thenReturn(false);
+
+        ScanJob job = service.submit(List.of("WATER"), false, "admin");
+
+        awaitFinished(job);
+        assertThat(job.getStatus()).isEqualTo(ScanJob.Status.INCOMPLETE);
+    }
+
+    @Test
+    void overlappingJobIsRefusedWhileFirstRuns() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(detectionService.scanElectricityData(eq(false), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        ScanJob running = service.submit(List.of("ELECTRICITY"), false, "admin");
+
+        assertThatThrownBy(() -> service.submit(ScanJobService.ALL_SOURCE_TYPES, false, "other"))
+                .isInstanceOfSatisfying(ScanJobService.ScanConflictException.class,
+                        e -> assertThat(e.getRunningJob()).isSameAs(running));
+        // Type disjoint : accepté
+        when(detectionService.scanWaterData(eq(false), any())).thenReturn(true);
+        assertThat(service.submit(List.of("WATER"), false, "other").getId()).isNotEqualTo(running.getId());
+
+        release.countDown();
+        awaitFinished(running);
+    }
+
+    @Test
+    void leaseHeldElsewhereReleasesTheOnesAlreadyAcquired() {
+        when(leaseService.tryAcquire(eq("anomaly-scan:WATER"), any(Duration.class))).thenReturn(false);
+
+        assertThatThrownBy(() -> service.submit(ScanJobService.ALL_SOURCE_TYPES, true, "admin"))
+                .isInstanceOf(ScanJobService.ScanConflictException.class);
+
+        verify(leaseService).release("anomaly-scan:ELECTRICITY");
+        assertThat(service.getJobs()).isEmpty();
+    }
+
+    @Test
+    void activeShardsRefuseJobWithoutTakingLeases() {
+        when(shardRepo.countActive(anyList())).thenReturn(2L);
+
+        assertThatThrownBy(() -> service.submit(List.of("ELECTRICITY"), true, "admin"))
+                .isInstanceOf(ScanJobService.ScanConflictException.class);
+
+        verify(leaseService, never()).tryAcquire(any(), any(Duration.class));
+    }
+
+    @Test
+    void cancelledJobStopsBeforeNextSourceType() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(detectionService.scanElectricityData(eq(true), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        ScanJob job = service.submit(ScanJobService.ALL_SOURCE_TYPES, true, "admin");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        service.cancel(job.getId());
+        release.countDown();
+
+        awaitFinished(job);
+        assertThat(job.getStatus()).isEqualTo(ScanJob.Status.CANCELLED);
+        verify(detectionService, never()).scanWaterData(eq(true), any());
+    }
+
+    private static void awaitFinished(ScanJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (job.isActive() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(job.isActive()).isFalse();
+    }
+}
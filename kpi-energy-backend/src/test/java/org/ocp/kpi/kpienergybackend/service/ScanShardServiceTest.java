@@ -0,0 +1,127 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ocp.kpi.kpienergybackend.config.AppConfig;
+import org.ocp.kpi.kpienergybackend.entity.ScanShard;
+import org.ocp.kpi.kpienergybackend.repository.ScanShardRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Parts du scan réparti, base simulée : la réservation renvoie les parts fournies par le test
+ */
+class ScanShardServiceTest {
+
+    private static final LocalDateTime RUN_STARTED_AT = LocalDateTime.of(2024, 3, 1, 2, 0);
+
+    private final AnomalyDetectionService detectionService = mock(AnomalyDetectionService.class);
+    private final ScanShardRepository shardRepo = mock(ScanShardRepository.class);
+    private final LeaseService leaseService = mock(LeaseService.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AppConfig appConfig = new AppConfig();
+    private final ScanShardService service = new ScanShardService(detectionService, shardRepo, leaseService,
+            jdbcTemplate, appConfig);
+
+    @BeforeEach
+    void start() {
+        appConfig.getCluster().setShardMaxAttempts(3);
+        appConfig.getCluster().setShardRetryDelaySeconds(60);
+        service.start();
+        when(leaseService.getNodeId()).thenReturn("node-1");
+        when(jdbcTemplate.update(anyString(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(1);
+    }
+
+    @AfterEach
+    void stop() {
+        service.stop();
+    }
+
+    @Test
+    void failedShardIsRequeuedWhileAttemptsRemain() {
+        claims(shard(1));
+        when(detectionService.scanYear(eq("WATER"), eq(2023), any(), any())).thenReturn(false);
+
+        service.claimAndRunShards();
+
+        verify(jdbcTemplate).update(contains("SET status = 'PENDING'"), eq(60), eq(7L), eq("node-1"));
+        verify(jdbcTemplate, never()).update(contains("finished_at"), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void lastAttemptFailureIsTerminal() {
+        claims(shard(3));
+        when(detectionService.scanYear(eq("WATER"), eq(2023), any(), any())).thenThrow(new IllegalStateException("ML"));
+
+        service.claimAndRunShards();
+
+        verify(jdbcTemplate).update(contains("finished_at"), eq("FAILED"), anyLong(), anyLong(), eq(7L), eq("node-1"));
+        verify(jdbcTemplate, never()).update(contains("SET status = 'PENDING'"), any(), any(), any());
+        verify(detectionService, never()).saveWatermark(any(), any());
+    }
+
+    @Test
+    void lastDoneShardAdvancesWatermarkToRunStart() {
+        claims(shard(2));
+        when(detectionService.scanYear(eq("WATER"), eq(2023), any(), any())).thenReturn(true);
+        when(shardRepo.countByRunIdAndSourceTypeAndStatusNot("run-1", "WATER", "DONE")).thenReturn(0L);
+
+        service.claimAndRunShards();
+
+        verify(jdbcTemplate).update(contains("finished_at"), eq("DONE"), anyLong(), anyLong(), eq(7L), eq("node-1"));
+        verify(detectionService).saveWatermark("WATER", RUN_STARTED_AT);
+    }
+
+    @Test
+    void pollRunsShardsOnWorkerThreadNotOnScheduler() throws Exception {
+        claims(shard(1));
+        CompletableFuture<String> scanThread = new CompletableFuture<>();
+        when(detectionService.scanYear(eq("WATER"), eq(2023), any(), any())).thenAnswer(invocation -> {
+            scanThread.complete(Thread.currentThread().getName());
+            return true;
+        });
+
+        service.pollShards();
+
+        assertThat(scanThread.get(5, TimeUnit.SECONDS)).startsWith("scan-shard-");
+        verify(jdbcTemplate, timeout(1000)).update(contains("finished_at"), eq("DONE"), anyLong(), anyLong(),
+                eq(7L), eq("node-1"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void claims(ScanShard shard) {
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any()))
+                .thenReturn(List.of(shard))
+                .thenReturn(List.of());
+    }
+
+    private static ScanShard shard(int attempts) {
+        return ScanShard.builder()
+                .id(7L)
+                .runId("run-1")
+                .sourceType("WATER")
+                .year(2023)
+                .runStartedAt(RUN_STARTED_AT)
+                .attempts(attempts)
+                .build();
+    }
+}
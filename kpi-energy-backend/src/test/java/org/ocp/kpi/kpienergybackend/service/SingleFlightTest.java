@@ -0,0 +1,133 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final ExecutorService callers = Executors.newFixedThreadPool(4);
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @AfterEach
+    void stop() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalCallsShareOneExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> leader = callers.submit(() -> singleFlight.execute("summary", 2023, () -> slowCall(release)));
+        awaitInFlight(1);
+
+        List<Future<Object>> joiners = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            joiners.add(callers.submit(() -> singleFlight.execute("summary", 2023, () -> slowCall(release))));
+        }
+        awaitStat("coalesced", 3L);
+        release.countDown();
+
+        Object result = leader.get(5, TimeUnit.SECONDS);
+        for (Future<Object> joiner : joiners) {
+            assertThat(joiner.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        }
+        assertThat(executions).hasValue(1);
+        assertThat(operationStats()).containsEntry("calls", 4L).containsEntry("executions", 1L);
+    }
+
+    @Test
+    void failureReachesEveryJoiner() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("Base indisponible");
+        Future<Object> leader = callers.submit(() -> singleFlight.execute("summary", 2023, () -> {
+            await(release);
+            throw failure;
+        }));
+        awaitInFlight(1);
+        Future<Object> joiner = callers.submit(() -> singleFlight.execute("summary", 2023, () -> slowCall(release)));
+        awaitStat("coalesced", 1L);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class).hasCause(failure);
+        assertThatThrownBy(() -> joiner.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class).hasCause(failure);
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void keyIsRemovedOnceCallEndsSoNextCallExecutesAgain() {
+        assertThatThrownBy(() -> singleFlight.execute("summary", 2023, () -> {
+            throw new IllegalStateException("Base indisponible");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.getStats()).containsEntry("in_flight", 0);
+
+        assertThat(singleFlight.execute("summary", 2023, this::fastCall)).isEqualTo(1);
+        assertThat(singleFlight.execute("summary", 2023, this::fastCall)).isEqualTo(2);
+        assertThat(singleFlight.getStats()).containsEntry("in_flight", 0);
+        assertThat(operationStats()).containsEntry("executions", 3L).containsEntry("coalesced", 0L);
+    }
+
+    @Test
+    void differentArgumentsAreNotCoalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> first = callers.submit(() -> singleFlight.execute("summary", 2023, () -> slowCall(release)));
+        Future<Object> second = callers.submit(() -> singleFlight.execute("summary", 2024, () -> slowCall(release)));
+        awaitInFlight(2);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNotSameAs(second.get(5, TimeUnit.SECONDS));
+        assertThat(executions).hasValue(2);
+    }
+
+    private Object slowCall(CountDownLatch release) {
+        await(release);
+        executions.incrementAndGet();
+        return new Object();
+    }
+
+    private int fastCall() {
+        return executions.incrementAndGet();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> operationStats() {
+        return (Map<String, Object>) ((Map<String, Object>) singleFlight.getStats().get("operations")).get("summary");
+    }
+
+    private void awaitInFlight(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Integer.valueOf(expected).equals(singleFlight.getStats().get("in_flight")) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(singleFlight.getStats()).containsEntry("in_flight", expected);
+    }
+
+    private void awaitStat(String name, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Long.valueOf(expected).equals(operationStats().get(name)) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(operationStats()).containsEntry(name, expected);
+    }
+}
@@ -0,0 +1,63 @@
+package org.ocp.kpi.kpienergybackend.service;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Classeur écrit en flux puis relu en entier : lignes vidées de la fenêtre, cellules typées, styles partagés
+ */
+class XlsxWriterTest {
+
+    @Test
+    void rowsBeyondWindowAreWrittenWithNumericCells() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxWriter writer = new XlsxWriter("Water", 10)) {
+            writer.header("Year", "Month", "F3bis");
+            for (int i = 1; i <= 1000; i++) {
+                writer.field(2024).field(i).field(i * 1.5).endRow();
+            }
+            assertThat(writer.getRows()).isEqualTo(1001);
+            writer.write(out);
+        }
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            XSSFSheet sheet = workbook.getSheet("Water");
+            assertThat(sheet.getLastRowNum()).isEqualTo(1000);
+            assertThat(sheet.getRow(0).getCell(2).getStringCellValue()).isEqualTo("F3bis");
+            assertThat(sheet.getRow(0).getCell(0).getCellStyle().getFont().getBold()).isTrue();
+            assertThat(sheet.getPaneInformation().isFreezePane()).isTrue();
+
+            XSSFRow last = sheet.getRow(1000);
+            assertThat(last.getCell(1).getCellType()).isEqualTo(CellType.NUMERIC);
+            assertThat(last.getCell(1).getNumericCellValue()).isEqualTo(1000);
+            assertThat(last.getCell(2).getNumericCellValue()).isEqualTo(1500.0);
+            assertThat(last.getCell(2).getCellStyle().getDataFormatString()).isEqualTo("#,##0.00");
+            // Par défaut, en-tête, entier et décimal : pas un style par cellule
+            assertThat(workbook.getNumCellStyles()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void emptyFieldLeavesCellAbsent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxWriter writer = new XlsxWriter("Combined", 100)) {
+            writer.field(2024).empty().field(3.25).endRow();
+            writer.write(out);
+        }
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            XSSFRow row = workbook.getSheet("Combined").getRow(0);
+            assertThat(row.getCell(1)).isNull();
+            assertThat(row.getCell(2).getNumericCellValue()).isEqualTo(3.25);
+        }
+    }
+}